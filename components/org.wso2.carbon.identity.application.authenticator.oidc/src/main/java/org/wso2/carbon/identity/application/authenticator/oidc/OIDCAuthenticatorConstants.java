@@ -58,6 +58,8 @@ public class OIDCAuthenticatorConstants {
     public static final String LOGOUT_TOKEN = "logout_token";
     public static final Pattern OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN = Pattern.compile("(.*)/identity/oidc" +
             "/slo(.*)");
+    public static final String OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_PATH = "/identity/oidc/slo";
+    public static final String OIDC_BACKCHANNEL_BATCH_LOGOUT_ENDPOINT_PATH = "/identity/oidc/slo/batch";
 
     public class AuthenticatorConfParams {
 
@@ -66,6 +68,64 @@ public class OIDCAuthenticatorConstants {
         }
 
         public static final String DEFAULT_IDP_CONFIG = "DefaultIdPConfig";
+
+        // When enabled, the id token is kept only in the OIDCStateInfo and not duplicated as a context property.
+        public static final String ENABLE_COMPACT_SESSION_STORAGE = "enableCompactSessionStorage";
+        public static final String TOKEN_COMPRESSION_THRESHOLD = "tokenCompressionThreshold";
+
+        public static final int DEFAULT_TOKEN_COMPRESSION_THRESHOLD = 1024;
+
+        // Duplicate authorization code callbacks share the result of the first token request.
+        public static final String ENABLE_CODE_EXCHANGE_DEDUPLICATION = "enableCodeExchangeDeduplication";
+        public static final String CODE_EXCHANGE_RESULT_RETENTION_PERIOD = "codeExchangeResultRetentionPeriod";
+        public static final String CODE_EXCHANGE_MAX_RETAINED_RESULTS = "codeExchangeMaxRetainedResults";
+        public static final String CODE_EXCHANGE_MAX_WAIT = "codeExchangeMaxWait";
+
+        public static final long DEFAULT_CODE_EXCHANGE_RESULT_RETENTION_PERIOD = 5000;
+        public static final int DEFAULT_CODE_EXCHANGE_MAX_RETAINED_RESULTS = 10000;
+        public static final long DEFAULT_CODE_EXCHANGE_MAX_WAIT = 10000;
+
+        // Connection to the token endpoint is warmed up while the user authenticates at the federated IdP, when the
+        // IdP keeps idle connections alive for the expected round trip.
+        public static final String ENABLE_TOKEN_ENDPOINT_PRE_CONNECT = "enableTokenEndpointPreConnect";
+        public static final String PRE_CONNECT_INTERVAL = "preConnectInterval";
+        public static final String PRE_CONNECT_TIMEOUT = "preConnectTimeout";
+        public static final String MAX_CONCURRENT_PRE_CONNECTS = "maxConcurrentPreConnects";
+        public static final String PRE_CONNECT_EXPECTED_ROUND_TRIP = "preConnectExpectedRoundTrip";
+
+        public static final long DEFAULT_PRE_CONNECT_INTERVAL = 30000;
+        public static final int DEFAULT_PRE_CONNECT_TIMEOUT = 2000;
+        public static final int DEFAULT_MAX_CONCURRENT_PRE_CONNECTS = 2;
+        public static final long DEFAULT_PRE_CONNECT_EXPECTED_ROUND_TRIP = 30000;
+
+        // Endpoints of the OIDC IdPs are warmed up at server startup and on tenant load.
+        public static final String ENABLE_IDP_WARMUP = "enableIdPWarmup";
+        public static final String IDP_WARMUP_PARALLELISM = "idpWarmupParallelism";
+        public static final String IDP_WARMUP_TIMEOUT = "idpWarmupTimeout";
+
+        public static final int DEFAULT_IDP_WARMUP_PARALLELISM = 4;
+        public static final long DEFAULT_IDP_WARMUP_TIMEOUT = 30000;
+
+        // Outbound calls the request thread does not wait for are executed on a bounded, virtual thread capable
+        // executor.
+        public static final String ENABLE_OUTBOUND_CALL_EXECUTOR = "enableOutboundCallExecutor";
+        public static final String PREFER_VIRTUAL_THREADS = "preferVirtualThreads";
+        public static final String MAX_CONCURRENT_OUTBOUND_CALLS = "maxConcurrentOutboundCalls";
+        public static final String OUTBOUND_CALL_TIMEOUT = "outboundCallTimeout";
+
+        public static final int DEFAULT_MAX_CONCURRENT_OUTBOUND_CALLS = 200;
+        public static final long DEFAULT_OUTBOUND_CALL_TIMEOUT = 30000;
+
+        // The user info request overlaps with the id token processing. Requires the outbound call executor.
+        public static final String ENABLE_ASYNC_USER_INFO_REQUEST = "enableAsyncUserInfoRequest";
+
+        // Errors are logged sampled and rate limited per error code.
+        public static final String ENABLE_SAMPLED_ERROR_LOGGING = "enableSampledErrorLogging";
+        public static final String ERROR_LOG_SAMPLING_WINDOW = "errorLogSamplingWindow";
+        public static final String ERROR_LOG_MAX_ERRORS_PER_WINDOW = "errorLogMaxErrorsPerWindow";
+
+        public static final long DEFAULT_ERROR_LOG_SAMPLING_WINDOW = 10000;
+        public static final int DEFAULT_ERROR_LOG_MAX_ERRORS_PER_WINDOW = 10;
     }
 
     public class IdPConfParams {
@@ -127,11 +187,102 @@ public class OIDCAuthenticatorConstants {
 
         public static final String ENABLE_IAT_VALIDATION = "enableIatValidation";
         public static final String IAT_VALIDITY_PERIOD = "iatValidityPeriod";
+        public static final String LOGOUT_TOKEN_MAX_LENGTH = "logoutTokenMaxLength";
+        public static final String ENABLE_ISSUER_IDP_CACHE = "enableIssuerIdPCache";
+        public static final String ISSUER_IDP_CACHE_TIMEOUT = "issuerIdPCacheTimeout";
+        public static final String ISSUER_IDP_CACHE_NEGATIVE_TIMEOUT = "issuerIdPCacheNegativeTimeout";
+        public static final String ISSUER_IDP_CACHE_MAX_ENTRIES = "issuerIdPCacheMaxEntries";
+        public static final String ISSUER_IDP_CACHE_MAX_NEGATIVE_ENTRIES = "issuerIdPCacheMaxNegativeEntries";
+        public static final String ENABLE_FEDERATED_SESSION_INDEX = "enableFederatedSessionIndex";
+        public static final String FEDERATED_SESSION_INDEX_TIMEOUT = "federatedSessionIndexTimeout";
+        public static final String FEDERATED_SESSION_INDEX_MAX_ENTRIES = "federatedSessionIndexMaxEntries";
+        public static final String FEDERATED_SESSION_INDEX_STORAGE = "federatedSessionIndexStorage";
+        public static final String FEDERATED_SESSION_INDEX_MEMORY_BUDGET = "federatedSessionIndexMemoryBudget";
+        public static final String OFF_HEAP_STORAGE = "offHeap";
+        public static final String ENABLE_FEDERATED_SESSION_INDEX_PERSISTENCE =
+                "enableFederatedSessionIndexPersistence";
+        public static final String FEDERATED_SESSION_INDEX_DIRECTORY = "federatedSessionIndexDirectory";
+        public static final String FEDERATED_SESSION_INDEX_JOURNAL_SIZE = "federatedSessionIndexJournalSize";
+        public static final String FEDERATED_SESSION_INDEX_SNAPSHOT_INTERVAL = "federatedSessionIndexSnapshotInterval";
+        public static final String ENABLE_FEDERATED_SESSION_INDEX_WRITE_BEHIND =
+                "enableFederatedSessionIndexWriteBehind";
+        public static final String FEDERATED_SESSION_INDEX_FLUSH_INTERVAL = "federatedSessionIndexFlushInterval";
+        public static final String FEDERATED_SESSION_INDEX_MAX_PENDING_WRITES = "federatedSessionIndexMaxPendingWrites";
+        public static final String ENABLE_SID_FILTER = "enableSidFilter";
+        public static final String SID_FILTER_MEMORY_BUDGET = "sidFilterMemoryBudget";
+        public static final String SID_FILTER_EXPECTED_SIDS = "sidFilterExpectedSids";
+        public static final String SID_FILTER_REBUILD_INTERVAL = "sidFilterRebuildInterval";
+        // The sid filter only knows the sids of other nodes after a rebuild, hence it is only used on a single node.
+        public static final String SID_FILTER_SINGLE_NODE = "sidFilterSingleNode";
+        public static final String ENABLE_FEDERATED_USER_ID_CACHE = "enableFederatedUserIdCache";
+        public static final String FEDERATED_USER_ID_CACHE_TIMEOUT = "federatedUserIdCacheTimeout";
+        public static final String FEDERATED_USER_ID_CACHE_MAX_ENTRIES = "federatedUserIdCacheMaxEntries";
+        public static final String ENABLE_BATCH_LOGOUT = "enableBatchLogout";
+        public static final String BATCH_LOGOUT_MAX_TOKENS = "batchLogoutMaxTokens";
+        public static final String BATCH_LOGOUT_PARALLELISM = "batchLogoutParallelism";
+        public static final String BATCH_LOGOUT_VALIDATION_TIMEOUT = "batchLogoutValidationTimeout";
+        public static final String ENABLE_LOGOUT_TOKEN_REPLAY_CACHE = "enableLogoutTokenReplayCache";
+        public static final String LOGOUT_TOKEN_REPLAY_CACHE_MAX_ENTRIES = "logoutTokenReplayCacheMaxEntries";
+        public static final String ENABLE_LOGOUT_COALESCING = "enableLogoutCoalescing";
+        public static final String LOGOUT_COALESCING_MAX_WAIT = "logoutCoalescingMaxWait";
+        public static final String ENABLE_LOGOUT_RATE_LIMIT = "enableLogoutRateLimit";
+        public static final int TOO_MANY_REQUESTS_STATUS_CODE = 429;
+        public static final String LOGOUT_RATE_LIMIT_PERMITS_PER_SECOND = "logoutRateLimitPermitsPerSecond";
+        public static final String LOGOUT_RATE_LIMIT_BURST = "logoutRateLimitBurst";
+        public static final String LOGOUT_RATE_LIMIT_MAX_ISSUERS = "logoutRateLimitMaxIssuers";
+        public static final String ENABLE_PARALLEL_SESSION_TERMINATION = "enableParallelSessionTermination";
+        public static final String PARALLEL_SESSION_TERMINATION_PARALLELISM = "parallelSessionTerminationParallelism";
+        public static final String PARALLEL_SESSION_TERMINATION_TIMEOUT = "parallelSessionTerminationTimeout";
+        public static final String ENABLE_IDP_SESSION_TERMINATION = "enableIdPSessionTermination";
+        public static final String IDP_SESSION_TERMINATION_PARALLELISM = "idpSessionTerminationParallelism";
+        public static final String IDP_SESSION_TERMINATION_PAGE_SIZE = "idpSessionTerminationPageSize";
+        public static final String IDP_SESSION_TERMINATION_RATE = "idpSessionTerminationRate";
+        public static final String IDP_SESSION_TERMINATION_PAGE_TIMEOUT = "idpSessionTerminationPageTimeout";
+        public static final String IDP_SESSION_TERMINATION_DIRECTORY = "idpSessionTerminationDirectory";
+        public static final String ENABLE_LOGOUT_CONCURRENCY_LIMIT = "enableLogoutConcurrencyLimit";
+        public static final String MAX_CONCURRENT_LOGOUT_REQUESTS = "maxConcurrentLogoutRequests";
+        public static final String LOGOUT_CONCURRENCY_LIMIT_WAIT = "logoutConcurrencyLimitWait";
 
         public static final String LOGOUT_SUCCESS = "OIDC back-channel logout success.";
         public static final String LOGOUT_FAILURE_SERVER_ERROR = "OIDC Back-channel logout failed due to an internal " +
                 "server error.";
 
         public static final long DEFAULT_IAT_VALIDITY_PERIOD = 15000;
+        public static final int DEFAULT_LOGOUT_TOKEN_MAX_LENGTH = 16384;
+        // Bounds how long the nodes of a cluster may disagree after an identity provider change.
+        public static final long DEFAULT_ISSUER_IDP_CACHE_TIMEOUT = 60000;
+        public static final long DEFAULT_ISSUER_IDP_CACHE_NEGATIVE_TIMEOUT = 30000;
+        public static final int DEFAULT_ISSUER_IDP_CACHE_MAX_ENTRIES = 1000;
+        public static final int DEFAULT_ISSUER_IDP_CACHE_MAX_NEGATIVE_ENTRIES = 100;
+        public static final long DEFAULT_FEDERATED_SESSION_INDEX_TIMEOUT = 28800000;
+        public static final int DEFAULT_FEDERATED_SESSION_INDEX_MAX_ENTRIES = 100000;
+        public static final long DEFAULT_FEDERATED_SESSION_INDEX_MEMORY_BUDGET = 268435456;
+        public static final int DEFAULT_FEDERATED_SESSION_INDEX_JOURNAL_SIZE = 16777216;
+        public static final long DEFAULT_FEDERATED_SESSION_INDEX_SNAPSHOT_INTERVAL = 600000;
+        public static final long DEFAULT_FEDERATED_SESSION_INDEX_FLUSH_INTERVAL = 50;
+        public static final int DEFAULT_FEDERATED_SESSION_INDEX_MAX_PENDING_WRITES = 10000;
+        public static final int DEFAULT_SID_FILTER_MEMORY_BUDGET = 1048576;
+        public static final long DEFAULT_SID_FILTER_EXPECTED_SIDS = 500000;
+        public static final long DEFAULT_SID_FILTER_REBUILD_INTERVAL = 300000;
+        public static final long DEFAULT_FEDERATED_USER_ID_CACHE_TIMEOUT = 300000;
+        public static final int DEFAULT_FEDERATED_USER_ID_CACHE_MAX_ENTRIES = 100000;
+        public static final int DEFAULT_BATCH_LOGOUT_MAX_TOKENS = 100;
+        public static final int DEFAULT_BATCH_LOGOUT_PARALLELISM = 4;
+        public static final long DEFAULT_BATCH_LOGOUT_VALIDATION_TIMEOUT = 10000;
+        public static final int DEFAULT_LOGOUT_TOKEN_REPLAY_CACHE_MAX_ENTRIES = 100000;
+        public static final long DEFAULT_LOGOUT_COALESCING_MAX_WAIT = 10000;
+        public static final int DEFAULT_LOGOUT_RATE_LIMIT_PERMITS_PER_SECOND = 50;
+        public static final int DEFAULT_LOGOUT_RATE_LIMIT_BURST = 100;
+        public static final int DEFAULT_LOGOUT_RATE_LIMIT_MAX_ISSUERS = 1000;
+        public static final int DEFAULT_PARALLEL_SESSION_TERMINATION_PARALLELISM = 8;
+        public static final long DEFAULT_PARALLEL_SESSION_TERMINATION_TIMEOUT = 10000;
+        public static final int DEFAULT_IDP_SESSION_TERMINATION_PARALLELISM = 16;
+        public static final int DEFAULT_IDP_SESSION_TERMINATION_PAGE_SIZE = 1000;
+        public static final int DEFAULT_IDP_SESSION_TERMINATION_RATE = 10000;
+        public static final long DEFAULT_IDP_SESSION_TERMINATION_PAGE_TIMEOUT = 60000;
+        public static final int DEFAULT_MAX_CONCURRENT_LOGOUT_REQUESTS = 64;
+        public static final long DEFAULT_LOGOUT_CONCURRENCY_LIMIT_WAIT = 100;
+        // Seconds a client is asked to wait before retrying a logout request rejected by the concurrency limit.
+        public static final long LOGOUT_CONCURRENCY_LIMIT_RETRY_AFTER = 1;
     }
 }
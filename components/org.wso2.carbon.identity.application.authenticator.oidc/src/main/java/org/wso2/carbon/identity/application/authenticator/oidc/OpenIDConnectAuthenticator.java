@@ -46,8 +46,14 @@ import org.wso2.carbon.identity.application.authentication.framework.model.Authe
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSidFilter;
 import org.wso2.carbon.identity.application.authenticator.oidc.model.OIDCStateInfo;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.EndpointPreConnector;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCAuthenticatorConfigUtil;
 import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OutboundCallExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SampledErrorLogger;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SingleFlight;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.model.Property;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
@@ -80,6 +86,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -334,7 +342,8 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
                 }
             }
         } catch (IOException e) {
-            log.error("Communication error occurred while accessing user info endpoint", e);
+            logError(ErrorMessages.IO_ERROR.getCode(), "Communication error occurred while accessing user info " +
+                    "endpoint", e);
         }
 
         return claims;
@@ -410,6 +419,7 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
                     }
                 }
                 response.sendRedirect(loginPage);
+                preConnectTokenEndpoint(authenticatorProperties);
             } else {
                 if (log.isDebugEnabled()) {
                     log.debug(ErrorMessages.RETRIEVING_AUTHENTICATOR_PROPERTIES_FAILED.getMessage());
@@ -433,6 +443,20 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
         return;
     }
 
+    /**
+     * Warm up the connection to the token endpoint, which is needed once the user returns from the federated IdP.
+     *
+     * @param authenticatorProperties Authenticator properties of the federated IdP.
+     */
+    private void preConnectTokenEndpoint(Map<String, String> authenticatorProperties) {
+
+        EndpointPreConnector tokenEndpointPreConnector =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getTokenEndpointPreConnector();
+        if (tokenEndpointPreConnector != null) {
+            tokenEndpointPreConnector.preConnect(getTokenEndpoint(authenticatorProperties));
+        }
+    }
+
     private String getStateParameter(AuthenticationContext context, Map<String, String> authenticatorProperties) {
 
         String state = context.getContextIdentifier() + "," + OIDCAuthenticatorConstants.LOGIN_TYPE;
@@ -452,6 +476,7 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
     protected void processAuthenticationResponse(HttpServletRequest request, HttpServletResponse response,
                                                  AuthenticationContext context) throws AuthenticationFailedException {
 
+        Future<Map<ClaimMapping, String>> subjectAttributesFuture = null;
         try {
 
             OAuthAuthzResponse authzResponse = OAuthAuthzResponse.oauthCodeAuthzResponse(request);
@@ -459,7 +484,8 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
 
             // Create OAuth client that uses custom http client under the hood
             OAuthClient oAuthClient = new OAuthClient(new URLConnectionClient());
-            OAuthClientResponse oAuthResponse = getOauthResponse(oAuthClient, accessTokenRequest);
+            OAuthClientResponse oAuthResponse = getOauthResponse(context, authzResponse, oAuthClient,
+                    accessTokenRequest);
 
             // TODO : return access token and id token to framework
             String accessToken = oAuthResponse.getParam(OIDCAuthenticatorConstants.ACCESS_TOKEN);
@@ -478,8 +504,21 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
                                 authenticatorProperties.get(OIDCAuthenticatorConstants.CLIENT_ID)));
             }
 
+            Map<String, String> authenticatorParams = OIDCAuthenticatorConfigUtil.getParameterMap();
+            // Fetch the user info while the id token is processed, when enabled.
+            subjectAttributesFuture = requestSubjectAttributesAsync(oAuthResponse, authenticatorProperties,
+                    authenticatorParams);
+            boolean compactSessionStorage = OIDCAuthenticatorConfigUtil.getBooleanParameter(authenticatorParams,
+                    OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_COMPACT_SESSION_STORAGE, false);
+
             OIDCStateInfo stateInfoOIDC = new OIDCStateInfo();
             stateInfoOIDC.setIdTokenHint(idToken);
+            if (compactSessionStorage) {
+                stateInfoOIDC.setCompressionThreshold(OIDCAuthenticatorConfigUtil.getIntParameter(
+                        authenticatorParams, OIDCAuthenticatorConstants.AuthenticatorConfParams
+                                .TOKEN_COMPRESSION_THRESHOLD,
+                        OIDCAuthenticatorConstants.AuthenticatorConfParams.DEFAULT_TOKEN_COMPRESSION_THRESHOLD));
+            }
             context.setStateInfo(stateInfoOIDC);
 
             context.setProperty(OIDCAuthenticatorConstants.ACCESS_TOKEN, accessToken);
@@ -489,6 +528,10 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
             Map<String, Object> jsonObject = new HashMap<>();
 
             if (StringUtils.isNotBlank(idToken)) {
+                if (!compactSessionStorage) {
+                    // In the compact mode the id token is only kept in the OIDCStateInfo.
+                    context.setProperty(OIDCAuthenticatorConstants.ID_TOKEN, idToken);
+                }
                 jsonObject = getIdTokenClaims(context, idToken);
                 if (jsonObject == null) {
                     String errorMessage = ErrorMessages.DECODED_JSON_OBJECT_IS_NULL.getMessage();
@@ -505,6 +548,11 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
                     // Add 'sid' claim into authentication context, to be stored in the UserSessionStore for
                     // single logout.
                     context.setProperty(FEDERATED_IDP_SESSION_ID + idpName, sidClaim);
+                    FederatedSidFilter federatedSidFilter =
+                            OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSidFilter();
+                    if (federatedSidFilter != null) {
+                        federatedSidFilter.add(sidClaim);
+                    }
                 }
 
                 if (log.isDebugEnabled() && IdentityUtil
@@ -530,7 +578,11 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
                         getAuthenticateUser(context, jsonObject, oAuthResponse));
             }
 
-            claims.putAll(getSubjectAttributes(oAuthResponse, authenticatorProperties));
+            if (subjectAttributesFuture != null) {
+                claims.putAll(awaitSubjectAttributes(subjectAttributesFuture));
+            } else {
+                claims.putAll(getSubjectAttributes(oAuthResponse, authenticatorProperties));
+            }
             authenticatedUser.setUserAttributes(claims);
 
             context.setSubject(authenticatedUser);
@@ -538,6 +590,11 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
         } catch (OAuthProblemException e) {
             throw new AuthenticationFailedException(ErrorMessages.AUTHENTICATION_PROCESS_FAILED.getCode(),
                     ErrorMessages.AUTHENTICATION_PROCESS_FAILED.getMessage(), context.getSubject(), e);
+        } finally {
+            if (subjectAttributesFuture != null) {
+                // Stop the user info request if the id token processing failed before its result was awaited.
+                subjectAttributesFuture.cancel(true);
+            }
         }
     }
 
@@ -592,7 +649,6 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
 
     private Map<String, Object> getIdTokenClaims(AuthenticationContext context, String idToken) {
 
-        context.setProperty(OIDCAuthenticatorConstants.ID_TOKEN, idToken);
         String base64Body = idToken.split("\\.")[1];
         byte[] decoded = Base64.decodeBase64(base64Body.getBytes());
         Set<Map.Entry<String, Object>> jwtAttributeSet = new HashSet<>();
@@ -788,6 +844,76 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
         return oAuthResponse;
     }
 
+    /**
+     * Exchange the authorization code for tokens. When the deduplication is enabled, replayed callbacks carrying the
+     * same authorization code for the same context share the result of the first token request instead of
+     * redeeming the already used code again.
+     */
+    private OAuthClientResponse getOauthResponse(AuthenticationContext context, OAuthAuthzResponse authzResponse,
+                                                 OAuthClient oAuthClient, OAuthClientRequest accessTokenRequest)
+            throws AuthenticationFailedException {
+
+        SingleFlight<String, OAuthClientResponse> codeExchangeSingleFlight =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getCodeExchangeSingleFlight();
+        String contextIdentifier = context.getContextIdentifier();
+        String code = authzResponse.getCode();
+        if (codeExchangeSingleFlight == null || StringUtils.isBlank(contextIdentifier) || StringUtils.isBlank(code)) {
+            return getOauthResponse(oAuthClient, accessTokenRequest);
+        }
+        return codeExchangeSingleFlight.execute(contextIdentifier + ":" + code,
+                () -> getOauthResponse(oAuthClient, accessTokenRequest));
+    }
+
+    /**
+     * Start retrieving the subject attributes from the user info endpoint on the outbound call executor, so that the
+     * request overlaps with the id token processing.
+     *
+     * @return Future of the subject attributes, or null if the attributes should be retrieved synchronously.
+     */
+    private Future<Map<ClaimMapping, String>> requestSubjectAttributesAsync(
+            OAuthClientResponse oAuthResponse, Map<String, String> authenticatorProperties,
+            Map<String, String> authenticatorParams) {
+
+        OutboundCallExecutor outboundCallExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getOutboundCallExecutor();
+        if (outboundCallExecutor == null || !OIDCAuthenticatorConfigUtil.getBooleanParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_ASYNC_USER_INFO_REQUEST, false)) {
+            return null;
+        }
+        try {
+            return outboundCallExecutor.submit(() -> getSubjectAttributes(oAuthResponse, authenticatorProperties));
+        } catch (TimeoutException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to start the user info request asynchronously. Proceeding synchronously.", e);
+            }
+            return null;
+        }
+    }
+
+    private Map<ClaimMapping, String> awaitSubjectAttributes(
+            Future<Map<ClaimMapping, String>> subjectAttributesFuture) {
+
+        try {
+            return OpenIDConnectAuthenticatorDataHolder.getInstance().getOutboundCallExecutor()
+                    .<Map<ClaimMapping, String>, RuntimeException>await(subjectAttributesFuture);
+        } catch (TimeoutException e) {
+            logError(ErrorMessages.IO_ERROR.getCode(), "Communication error occurred while accessing user info " +
+                    "endpoint", e);
+            return new HashMap<>();
+        }
+    }
+
+    private void logError(String errorCode, String message, Throwable e) {
+
+        SampledErrorLogger sampledErrorLogger = OpenIDConnectAuthenticatorDataHolder.getInstance()
+                .getSampledErrorLogger();
+        if (sampledErrorLogger != null) {
+            sampledErrorLogger.error(log, errorCode, message, e);
+        } else {
+            log.error(message, e);
+        }
+    }
+
     @Override
     public String getContextIdentifier(HttpServletRequest request) {
 
@@ -1053,6 +1179,11 @@ public class OpenIDConnectAuthenticator extends AbstractApplicationAuthenticator
         try {
             URL obj = new URL(url);
             HttpURLConnection urlConnection = (HttpURLConnection) obj.openConnection();
+            OutboundCallExecutor outboundCallExecutor =
+                    OpenIDConnectAuthenticatorDataHolder.getInstance().getOutboundCallExecutor();
+            if (outboundCallExecutor != null) {
+                outboundCallExecutor.applyTimeouts(urlConnection);
+            }
             urlConnection.setRequestMethod("GET");
             urlConnection.setRequestProperty("Authorization", "Bearer " + accessToken);
             reader = new BufferedReader(new InputStreamReader(urlConnection.getInputStream()));
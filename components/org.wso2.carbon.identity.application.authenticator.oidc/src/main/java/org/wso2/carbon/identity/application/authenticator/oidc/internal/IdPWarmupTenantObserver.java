@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.internal;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.IdPEndpointWarmer;
+import org.wso2.carbon.utils.AbstractAxis2ConfigurationContextObserver;
+
+/**
+ * Warms up the OIDC IdP endpoints of a tenant when the tenant is loaded.
+ */
+public class IdPWarmupTenantObserver extends AbstractAxis2ConfigurationContextObserver {
+
+    @Override
+    public void createdConfigurationContext(ConfigurationContext configurationContext) {
+
+        IdPEndpointWarmer idPEndpointWarmer = OpenIDConnectAuthenticatorDataHolder.getInstance().getIdPEndpointWarmer();
+        if (idPEndpointWarmer != null) {
+            idPEndpointWarmer.warmup(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain());
+        }
+    }
+}
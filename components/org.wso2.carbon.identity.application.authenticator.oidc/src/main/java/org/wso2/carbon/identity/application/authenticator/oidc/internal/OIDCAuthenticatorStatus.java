@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.internal;
+
+import org.wso2.carbon.identity.application.authenticator.oidc.util.IdPEndpointWarmer;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+
+/**
+ * Reads the status of the OIDC authenticator from the optimizations held by the data holder.
+ */
+public class OIDCAuthenticatorStatus implements OIDCAuthenticatorStatusMXBean {
+
+    public static final String OBJECT_NAME =
+            "org.wso2.carbon.identity.application.authenticator.oidc:type=OIDCAuthenticatorStatus";
+
+    @Override
+    public boolean isWarm() {
+
+        return OpenIDConnectAuthenticatorDataHolder.getInstance().isWarm();
+    }
+
+    @Override
+    public int getPendingWarmupCount() {
+
+        IdPEndpointWarmer idPEndpointWarmer = OpenIDConnectAuthenticatorDataHolder.getInstance().getIdPEndpointWarmer();
+        return idPEndpointWarmer != null ? idPEndpointWarmer.getPendingWarmupCount() : 0;
+    }
+
+    @Override
+    public long getPermittedLogoutCount() {
+
+        RateLimiter logoutRateLimiter = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutRateLimiter();
+        return logoutRateLimiter != null ? logoutRateLimiter.getPermittedCount() : 0;
+    }
+
+    @Override
+    public long getRateLimitedLogoutCount() {
+
+        RateLimiter logoutRateLimiter = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutRateLimiter();
+        return logoutRateLimiter != null ? logoutRateLimiter.getRejectedCount() : 0;
+    }
+
+    @Override
+    public int getRateLimitedIssuerCount() {
+
+        RateLimiter logoutRateLimiter = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutRateLimiter();
+        return logoutRateLimiter != null ? logoutRateLimiter.getTrackedKeyCount() : 0;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.internal;
+
+/**
+ * Status of the OIDC authenticator, published through JMX for readiness checks and monitoring.
+ */
+public interface OIDCAuthenticatorStatusMXBean {
+
+    /**
+     * Check whether the OIDC IdP endpoint warm-ups requested so far are completed or timed out. Always true when the
+     * IdP warm-up is not enabled.
+     *
+     * @return True if the node is warm.
+     */
+    boolean isWarm();
+
+    /**
+     * Get the number of tenant warm-ups requested and not yet completed or timed out.
+     *
+     * @return Number of pending warm-ups, or 0 when the IdP warm-up is not enabled.
+     */
+    int getPendingWarmupCount();
+
+    /**
+     * Get the number of logout requests permitted by the logout rate limit.
+     *
+     * @return Number of permitted logout requests, or 0 when the logout rate limit is not enabled.
+     */
+    long getPermittedLogoutCount();
+
+    /**
+     * Get the number of logout requests rejected by the logout rate limit.
+     *
+     * @return Number of rejected logout requests, or 0 when the logout rate limit is not enabled.
+     */
+    long getRateLimitedLogoutCount();
+
+    /**
+     * Get the number of buckets tracked by the logout rate limit, one per verified issuer and one per tenant shared by
+     * the unverified issuers.
+     *
+     * @return Number of tracked buckets, or 0 when the logout rate limit is not enabled.
+     */
+    int getRateLimitedIssuerCount();
+}
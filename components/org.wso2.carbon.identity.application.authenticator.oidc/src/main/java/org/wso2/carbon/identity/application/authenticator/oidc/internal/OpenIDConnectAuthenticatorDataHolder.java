@@ -16,8 +16,25 @@
 
 package org.wso2.carbon.identity.application.authenticator.oidc.internal;
 
+import org.apache.oltu.oauth2.client.response.OAuthClientResponse;
 import org.wso2.carbon.identity.application.authentication.framework.ServerSessionManagementService;
 import org.wso2.carbon.identity.application.authentication.framework.UserSessionManagementService;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndexJournal;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSidFilter;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedUserIdCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.LogoutTokenReplayCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutResponse;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.processor.IdPSessionTerminator;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.Bulkhead;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.EndpointPreConnector;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.IdPEndpointWarmer;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OutboundCallExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ParallelTaskExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SampledErrorLogger;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SingleFlight;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataManagementService;
 import org.wso2.carbon.user.core.service.RealmService;
 
@@ -33,6 +50,38 @@ public class OpenIDConnectAuthenticatorDataHolder {
 
     private UserSessionManagementService userSessionManagementService;
 
+    private SingleFlight<String, OAuthClientResponse> codeExchangeSingleFlight;
+
+    private EndpointPreConnector tokenEndpointPreConnector;
+
+    private IdPEndpointWarmer idPEndpointWarmer;
+
+    private OutboundCallExecutor outboundCallExecutor;
+    private SampledErrorLogger sampledErrorLogger;
+
+    private IssuerIdPCache issuerIdPCache;
+
+    private FederatedSessionIndex federatedSessionIndex;
+
+    private FederatedSessionIndexJournal federatedSessionIndexJournal;
+
+    private FederatedSidFilter federatedSidFilter;
+
+    private FederatedUserIdCache federatedUserIdCache;
+
+    private ParallelTaskExecutor batchLogoutExecutor;
+
+    private ParallelTaskExecutor sessionTerminationExecutor;
+
+    private IdPSessionTerminator idPSessionTerminator;
+
+    private LogoutTokenReplayCache logoutTokenReplayCache;
+
+    private SingleFlight<String, LogoutResponse> logoutSingleFlight;
+
+    private RateLimiter logoutRateLimiter;
+    private Bulkhead logoutBulkhead;
+
     private OpenIDConnectAuthenticatorDataHolder() {
 
     }
@@ -83,4 +132,184 @@ public class OpenIDConnectAuthenticatorDataHolder {
 
         this.userSessionManagementService = userSessionManagementService;
     }
+
+    public SingleFlight<String, OAuthClientResponse> getCodeExchangeSingleFlight() {
+
+        return codeExchangeSingleFlight;
+    }
+
+    public void setCodeExchangeSingleFlight(SingleFlight<String, OAuthClientResponse> codeExchangeSingleFlight) {
+
+        this.codeExchangeSingleFlight = codeExchangeSingleFlight;
+    }
+
+    public EndpointPreConnector getTokenEndpointPreConnector() {
+
+        return tokenEndpointPreConnector;
+    }
+
+    public void setTokenEndpointPreConnector(EndpointPreConnector tokenEndpointPreConnector) {
+
+        this.tokenEndpointPreConnector = tokenEndpointPreConnector;
+    }
+
+    public IdPEndpointWarmer getIdPEndpointWarmer() {
+
+        return idPEndpointWarmer;
+    }
+
+    public void setIdPEndpointWarmer(IdPEndpointWarmer idPEndpointWarmer) {
+
+        this.idPEndpointWarmer = idPEndpointWarmer;
+    }
+
+    public OutboundCallExecutor getOutboundCallExecutor() {
+
+        return outboundCallExecutor;
+    }
+
+    public void setOutboundCallExecutor(OutboundCallExecutor outboundCallExecutor) {
+
+        this.outboundCallExecutor = outboundCallExecutor;
+    }
+
+    public SampledErrorLogger getSampledErrorLogger() {
+
+        return sampledErrorLogger;
+    }
+
+    public void setSampledErrorLogger(SampledErrorLogger sampledErrorLogger) {
+
+        this.sampledErrorLogger = sampledErrorLogger;
+    }
+
+    public IssuerIdPCache getIssuerIdPCache() {
+
+        return issuerIdPCache;
+    }
+
+    public void setIssuerIdPCache(IssuerIdPCache issuerIdPCache) {
+
+        this.issuerIdPCache = issuerIdPCache;
+    }
+
+    public FederatedSessionIndex getFederatedSessionIndex() {
+
+        return federatedSessionIndex;
+    }
+
+    public void setFederatedSessionIndex(FederatedSessionIndex federatedSessionIndex) {
+
+        this.federatedSessionIndex = federatedSessionIndex;
+    }
+
+    public FederatedSessionIndexJournal getFederatedSessionIndexJournal() {
+
+        return federatedSessionIndexJournal;
+    }
+
+    public void setFederatedSessionIndexJournal(FederatedSessionIndexJournal federatedSessionIndexJournal) {
+
+        this.federatedSessionIndexJournal = federatedSessionIndexJournal;
+    }
+
+    public FederatedSidFilter getFederatedSidFilter() {
+
+        return federatedSidFilter;
+    }
+
+    public void setFederatedSidFilter(FederatedSidFilter federatedSidFilter) {
+
+        this.federatedSidFilter = federatedSidFilter;
+    }
+
+    public FederatedUserIdCache getFederatedUserIdCache() {
+
+        return federatedUserIdCache;
+    }
+
+    public void setFederatedUserIdCache(FederatedUserIdCache federatedUserIdCache) {
+
+        this.federatedUserIdCache = federatedUserIdCache;
+    }
+
+    public ParallelTaskExecutor getBatchLogoutExecutor() {
+
+        return batchLogoutExecutor;
+    }
+
+    public void setBatchLogoutExecutor(ParallelTaskExecutor batchLogoutExecutor) {
+
+        this.batchLogoutExecutor = batchLogoutExecutor;
+    }
+
+    public ParallelTaskExecutor getSessionTerminationExecutor() {
+
+        return sessionTerminationExecutor;
+    }
+
+    public void setSessionTerminationExecutor(ParallelTaskExecutor sessionTerminationExecutor) {
+
+        this.sessionTerminationExecutor = sessionTerminationExecutor;
+    }
+
+    public IdPSessionTerminator getIdPSessionTerminator() {
+
+        return idPSessionTerminator;
+    }
+
+    public void setIdPSessionTerminator(IdPSessionTerminator idPSessionTerminator) {
+
+        this.idPSessionTerminator = idPSessionTerminator;
+    }
+
+    public LogoutTokenReplayCache getLogoutTokenReplayCache() {
+
+        return logoutTokenReplayCache;
+    }
+
+    public void setLogoutTokenReplayCache(LogoutTokenReplayCache logoutTokenReplayCache) {
+
+        this.logoutTokenReplayCache = logoutTokenReplayCache;
+    }
+
+    public SingleFlight<String, LogoutResponse> getLogoutSingleFlight() {
+
+        return logoutSingleFlight;
+    }
+
+    public void setLogoutSingleFlight(SingleFlight<String, LogoutResponse> logoutSingleFlight) {
+
+        this.logoutSingleFlight = logoutSingleFlight;
+    }
+
+    public RateLimiter getLogoutRateLimiter() {
+
+        return logoutRateLimiter;
+    }
+
+    public void setLogoutRateLimiter(RateLimiter logoutRateLimiter) {
+
+        this.logoutRateLimiter = logoutRateLimiter;
+    }
+
+    public Bulkhead getLogoutBulkhead() {
+
+        return logoutBulkhead;
+    }
+
+    public void setLogoutBulkhead(Bulkhead logoutBulkhead) {
+
+        this.logoutBulkhead = logoutBulkhead;
+    }
+
+    /**
+     * Check whether the IdP endpoint warm-up is completed. Always true when the warm-up is not enabled.
+     *
+     * @return True if the node is warm.
+     */
+    public boolean isWarm() {
+
+        return idPEndpointWarmer == null || idPEndpointWarmer.isWarm();
+    }
 }
@@ -20,18 +20,45 @@ package org.wso2.carbon.identity.application.authenticator.oidc.internal;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.osgi.service.component.ComponentContext;
+import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.identity.application.authentication.framework.ApplicationAuthenticator;
+import org.wso2.carbon.identity.application.authentication.framework.AuthenticationDataPublisher;
 import org.wso2.carbon.identity.application.authentication.framework.ServerSessionManagementService;
 import org.wso2.carbon.identity.application.authentication.framework.UserSessionManagementService;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.HttpIdentityRequestFactory;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.HttpIdentityResponseFactory;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityProcessor;
+import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.AuthenticatorConfParams;
+import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.BackchannelLogout;
 import org.wso2.carbon.identity.application.authenticator.oidc.OpenIDConnectAuthenticator;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndexJournal;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndexUpdater;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSidFilter;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedUserIdCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.InMemoryFederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCacheInvalidationListener;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.LogoutTokenReplayCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.OffHeapFederatedSessionIndex;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.factory.LogoutRequestFactory;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.factory.LogoutResponseFactory;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.processor.FederatedIdpInitLogoutProcessor;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.processor.IdPSessionTerminator;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.Bulkhead;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.EndpointPreConnector;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.IdPEndpointWarmer;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCAuthenticatorConfigUtil;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OutboundCallExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ParallelTaskExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SampledErrorLogger;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SingleFlight;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataManagementService;
+import org.wso2.carbon.idp.mgt.listener.IdentityProviderMgtListener;
 import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.utils.Axis2ConfigurationContextObserver;
+import org.wso2.carbon.utils.CarbonUtils;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -39,6 +66,16 @@ import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 @Component(
         name = "identity.application.authenticator.oidc.component",
         immediate = true
@@ -59,6 +96,31 @@ public class OpenIDConnectAuthenticatorServiceComponent {
                     new FederatedIdpInitLogoutProcessor(), null);
             ctxt.getBundleContext().registerService(HttpIdentityResponseFactory.class.getName(),
                     new LogoutResponseFactory(), null);
+            initializeOptimizations(OIDCAuthenticatorConfigUtil.getParameterMap());
+            IdPEndpointWarmer idPEndpointWarmer = OpenIDConnectAuthenticatorDataHolder.getInstance()
+                    .getIdPEndpointWarmer();
+            if (idPEndpointWarmer != null) {
+                ctxt.getBundleContext().registerService(Axis2ConfigurationContextObserver.class.getName(),
+                        new IdPWarmupTenantObserver(), null);
+                idPEndpointWarmer.warmup(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+            }
+            if (OpenIDConnectAuthenticatorDataHolder.getInstance().getIssuerIdPCache() != null) {
+                ctxt.getBundleContext().registerService(IdentityProviderMgtListener.class.getName(),
+                        new IssuerIdPCacheInvalidationListener(), null);
+            }
+            if (OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex() != null ||
+                    OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedUserIdCache() != null) {
+                ctxt.getBundleContext().registerService(AuthenticationDataPublisher.class.getName(),
+                        new FederatedSessionIndexUpdater(), null);
+            }
+            IdPSessionTerminator idPSessionTerminator =
+                    OpenIDConnectAuthenticatorDataHolder.getInstance().getIdPSessionTerminator();
+            if (idPSessionTerminator != null) {
+                ctxt.getBundleContext().registerService(IdPSessionTerminator.class.getName(), idPSessionTerminator,
+                        null);
+                idPSessionTerminator.resume();
+            }
+            registerStatusMBean();
             if (log.isDebugEnabled()) {
                 log.debug("OpenID Connect Authenticator bundle is activated");
             }
@@ -67,9 +129,436 @@ public class OpenIDConnectAuthenticatorServiceComponent {
         }
     }
 
+    /**
+     * Initialize the optional optimizations enabled through the authenticator parameters.
+     *
+     * @param parameters OIDC authenticator parameters.
+     */
+    private void initializeOptimizations(Map<String, String> parameters) {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = OpenIDConnectAuthenticatorDataHolder.getInstance();
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                AuthenticatorConfParams.ENABLE_CODE_EXCHANGE_DEDUPLICATION, false)) {
+            long retentionPeriod = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.CODE_EXCHANGE_RESULT_RETENTION_PERIOD,
+                    AuthenticatorConfParams.DEFAULT_CODE_EXCHANGE_RESULT_RETENTION_PERIOD);
+            int maxRetainedResults = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.CODE_EXCHANGE_MAX_RETAINED_RESULTS,
+                    AuthenticatorConfParams.DEFAULT_CODE_EXCHANGE_MAX_RETAINED_RESULTS);
+            long maxWait = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.CODE_EXCHANGE_MAX_WAIT,
+                    AuthenticatorConfParams.DEFAULT_CODE_EXCHANGE_MAX_WAIT);
+            dataHolder.setCodeExchangeSingleFlight(new SingleFlight<>(retentionPeriod, maxRetainedResults, maxWait));
+            if (log.isDebugEnabled()) {
+                log.debug("Authorization code exchange deduplication is enabled with a retention period of " +
+                        retentionPeriod + " ms.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                AuthenticatorConfParams.ENABLE_TOKEN_ENDPOINT_PRE_CONNECT, false)) {
+            long preConnectInterval = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.PRE_CONNECT_INTERVAL, AuthenticatorConfParams.DEFAULT_PRE_CONNECT_INTERVAL);
+            int preConnectTimeout = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.PRE_CONNECT_TIMEOUT, AuthenticatorConfParams.DEFAULT_PRE_CONNECT_TIMEOUT);
+            int maxConcurrentPreConnects = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.MAX_CONCURRENT_PRE_CONNECTS,
+                    AuthenticatorConfParams.DEFAULT_MAX_CONCURRENT_PRE_CONNECTS);
+            long expectedRoundTrip = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.PRE_CONNECT_EXPECTED_ROUND_TRIP,
+                    AuthenticatorConfParams.DEFAULT_PRE_CONNECT_EXPECTED_ROUND_TRIP);
+            dataHolder.setTokenEndpointPreConnector(new EndpointPreConnector(preConnectInterval, preConnectTimeout,
+                    maxConcurrentPreConnects, expectedRoundTrip));
+            if (log.isDebugEnabled()) {
+                log.debug("Token endpoint pre-connect is enabled with an interval of " + preConnectInterval +
+                        " ms per endpoint, for endpoints keeping connections alive for " + expectedRoundTrip +
+                        " ms.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, AuthenticatorConfParams.ENABLE_IDP_WARMUP,
+                false)) {
+            int parallelism = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.IDP_WARMUP_PARALLELISM,
+                    AuthenticatorConfParams.DEFAULT_IDP_WARMUP_PARALLELISM);
+            long timeout = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.IDP_WARMUP_TIMEOUT, AuthenticatorConfParams.DEFAULT_IDP_WARMUP_TIMEOUT);
+            EndpointPreConnector preConnector = dataHolder.getTokenEndpointPreConnector();
+            if (preConnector != null) {
+                // Shares the keep-alive times learnt while warming up with the token endpoint pre-connects.
+                dataHolder.setIdPEndpointWarmer(new IdPEndpointWarmer(preConnector, parallelism, timeout));
+            } else {
+                dataHolder.setIdPEndpointWarmer(new IdPEndpointWarmer(OIDCAuthenticatorConfigUtil.getIntParameter(
+                        parameters, AuthenticatorConfParams.PRE_CONNECT_TIMEOUT,
+                        AuthenticatorConfParams.DEFAULT_PRE_CONNECT_TIMEOUT), parallelism, timeout));
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                AuthenticatorConfParams.ENABLE_OUTBOUND_CALL_EXECUTOR, false)) {
+            boolean preferVirtualThreads = OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                    AuthenticatorConfParams.PREFER_VIRTUAL_THREADS, true);
+            int maxConcurrentCalls = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.MAX_CONCURRENT_OUTBOUND_CALLS,
+                    AuthenticatorConfParams.DEFAULT_MAX_CONCURRENT_OUTBOUND_CALLS);
+            long callTimeout = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.OUTBOUND_CALL_TIMEOUT,
+                    AuthenticatorConfParams.DEFAULT_OUTBOUND_CALL_TIMEOUT);
+            OutboundCallExecutor outboundCallExecutor = new OutboundCallExecutor(preferVirtualThreads,
+                    maxConcurrentCalls, callTimeout);
+            dataHolder.setOutboundCallExecutor(outboundCallExecutor);
+            if (log.isDebugEnabled()) {
+                log.debug("Asynchronous IdP calls are executed on " + (outboundCallExecutor.isVirtualThreads() ?
+                        "virtual" : "platform") + " threads with a maximum concurrency of " + maxConcurrentCalls);
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                AuthenticatorConfParams.ENABLE_SAMPLED_ERROR_LOGGING, false)) {
+            long samplingWindow = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    AuthenticatorConfParams.ERROR_LOG_SAMPLING_WINDOW,
+                    AuthenticatorConfParams.DEFAULT_ERROR_LOG_SAMPLING_WINDOW);
+            int maxErrorsPerWindow = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    AuthenticatorConfParams.ERROR_LOG_MAX_ERRORS_PER_WINDOW,
+                    AuthenticatorConfParams.DEFAULT_ERROR_LOG_MAX_ERRORS_PER_WINDOW);
+            dataHolder.setSampledErrorLogger(new SampledErrorLogger(samplingWindow, maxErrorsPerWindow));
+            if (log.isDebugEnabled()) {
+                log.debug("Sampled error logging is enabled with a maximum of " + maxErrorsPerWindow +
+                        " errors per error code in " + samplingWindow + " ms.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.ENABLE_ISSUER_IDP_CACHE,
+                false)) {
+            long timeToLive = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.ISSUER_IDP_CACHE_TIMEOUT, BackchannelLogout.DEFAULT_ISSUER_IDP_CACHE_TIMEOUT);
+            long negativeTimeToLive = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.ISSUER_IDP_CACHE_NEGATIVE_TIMEOUT,
+                    BackchannelLogout.DEFAULT_ISSUER_IDP_CACHE_NEGATIVE_TIMEOUT);
+            int maxEntries = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.ISSUER_IDP_CACHE_MAX_ENTRIES,
+                    BackchannelLogout.DEFAULT_ISSUER_IDP_CACHE_MAX_ENTRIES);
+            int maxNegativeEntries = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.ISSUER_IDP_CACHE_MAX_NEGATIVE_ENTRIES,
+                    BackchannelLogout.DEFAULT_ISSUER_IDP_CACHE_MAX_NEGATIVE_ENTRIES);
+            dataHolder.setIssuerIdPCache(new IssuerIdPCache(timeToLive, negativeTimeToLive, maxEntries,
+                    maxNegativeEntries));
+            if (log.isDebugEnabled()) {
+                log.debug("Issuer to identity provider cache is enabled with a time to live of " + timeToLive +
+                        " ms.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_FEDERATED_SESSION_INDEX, false)) {
+            long timeToLive = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.FEDERATED_SESSION_INDEX_TIMEOUT,
+                    BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_TIMEOUT);
+            if (BackchannelLogout.OFF_HEAP_STORAGE.equals(
+                    parameters.get(BackchannelLogout.FEDERATED_SESSION_INDEX_STORAGE))) {
+                long memoryBudget = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                        BackchannelLogout.FEDERATED_SESSION_INDEX_MEMORY_BUDGET,
+                        BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_MEMORY_BUDGET);
+                OffHeapFederatedSessionIndex offHeapIndex = new OffHeapFederatedSessionIndex(timeToLive, memoryBudget);
+                dataHolder.setFederatedSessionIndex(offHeapIndex);
+                if (log.isDebugEnabled()) {
+                    log.debug("Off-heap federated session index is enabled with a memory budget of " + memoryBudget +
+                            " bytes.");
+                }
+                if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                        BackchannelLogout.ENABLE_FEDERATED_SESSION_INDEX_PERSISTENCE, false)) {
+                    initializeFederatedSessionIndexJournal(offHeapIndex, parameters);
+                }
+            } else {
+                int maxEntries = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                        BackchannelLogout.FEDERATED_SESSION_INDEX_MAX_ENTRIES,
+                        BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_MAX_ENTRIES);
+                dataHolder.setFederatedSessionIndex(new InMemoryFederatedSessionIndex(timeToLive, maxEntries));
+                if (log.isDebugEnabled()) {
+                    log.debug("Federated session index is enabled with a maximum of " + maxEntries + " entries.");
+                }
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.ENABLE_SID_FILTER, false)) {
+            if (!OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.SID_FILTER_SINGLE_NODE,
+                    false)) {
+                log.warn("Federated sid filter is not enabled, as it can miss the sids of the sessions created on " +
+                        "the other nodes of a cluster. Set " + BackchannelLogout.SID_FILTER_SINGLE_NODE + " to " +
+                        "true to enable it on a single node deployment.");
+            } else {
+                int memoryBudget = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                        BackchannelLogout.SID_FILTER_MEMORY_BUDGET, BackchannelLogout.DEFAULT_SID_FILTER_MEMORY_BUDGET);
+                long expectedSids = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                        BackchannelLogout.SID_FILTER_EXPECTED_SIDS, BackchannelLogout.DEFAULT_SID_FILTER_EXPECTED_SIDS);
+                long rebuildInterval = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                        BackchannelLogout.SID_FILTER_REBUILD_INTERVAL,
+                        BackchannelLogout.DEFAULT_SID_FILTER_REBUILD_INTERVAL);
+                dataHolder.setFederatedSidFilter(new FederatedSidFilter(memoryBudget, expectedSids,
+                        rebuildInterval));
+                if (log.isDebugEnabled()) {
+                    log.debug("Federated sid filter is enabled with a memory budget of " + memoryBudget +
+                            " bytes.");
+                }
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_FEDERATED_USER_ID_CACHE, false)) {
+            long timeToLive = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.FEDERATED_USER_ID_CACHE_TIMEOUT,
+                    BackchannelLogout.DEFAULT_FEDERATED_USER_ID_CACHE_TIMEOUT);
+            int maxEntries = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.FEDERATED_USER_ID_CACHE_MAX_ENTRIES,
+                    BackchannelLogout.DEFAULT_FEDERATED_USER_ID_CACHE_MAX_ENTRIES);
+            dataHolder.setFederatedUserIdCache(new FederatedUserIdCache(timeToLive, maxEntries));
+            if (log.isDebugEnabled()) {
+                log.debug("Federated user id cache is enabled with a time to live of " + timeToLive + " ms.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.ENABLE_BATCH_LOGOUT,
+                false)) {
+            int parallelism = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.BATCH_LOGOUT_PARALLELISM, BackchannelLogout.DEFAULT_BATCH_LOGOUT_PARALLELISM);
+            dataHolder.setBatchLogoutExecutor(new ParallelTaskExecutor(parallelism, "oidc-batch-logout-"));
+            if (log.isDebugEnabled()) {
+                log.debug("Batch back-channel logout is enabled with a parallelism of " + parallelism + ".");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_LOGOUT_TOKEN_REPLAY_CACHE, false)) {
+            // Logout tokens are remembered for at most the iat validity period, which is configured in seconds.
+            long maxTimeToLive = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.IAT_VALIDITY_PERIOD, BackchannelLogout.DEFAULT_IAT_VALIDITY_PERIOD) * 1000;
+            int maxEntries = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.LOGOUT_TOKEN_REPLAY_CACHE_MAX_ENTRIES,
+                    BackchannelLogout.DEFAULT_LOGOUT_TOKEN_REPLAY_CACHE_MAX_ENTRIES);
+            dataHolder.setLogoutTokenReplayCache(new LogoutTokenReplayCache(maxTimeToLive, maxEntries));
+            if (log.isDebugEnabled()) {
+                log.debug("Logout token replay cache is enabled with a maximum of " + maxEntries + " entries.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.ENABLE_LOGOUT_COALESCING,
+                false)) {
+            // Only concurrent terminations are shared. A later logout of the same subject terminates its new sessions.
+            long maxWait = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.LOGOUT_COALESCING_MAX_WAIT, BackchannelLogout.DEFAULT_LOGOUT_COALESCING_MAX_WAIT);
+            dataHolder.setLogoutSingleFlight(new SingleFlight<>(maxWait));
+            if (log.isDebugEnabled()) {
+                log.debug("Coalescing of concurrent back-channel logouts is enabled.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters, BackchannelLogout.ENABLE_LOGOUT_RATE_LIMIT,
+                false)) {
+            int permitsPerSecond = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.LOGOUT_RATE_LIMIT_PERMITS_PER_SECOND,
+                    BackchannelLogout.DEFAULT_LOGOUT_RATE_LIMIT_PERMITS_PER_SECOND);
+            int burst = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.LOGOUT_RATE_LIMIT_BURST, BackchannelLogout.DEFAULT_LOGOUT_RATE_LIMIT_BURST);
+            int maxIssuers = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.LOGOUT_RATE_LIMIT_MAX_ISSUERS,
+                    BackchannelLogout.DEFAULT_LOGOUT_RATE_LIMIT_MAX_ISSUERS);
+            dataHolder.setLogoutRateLimiter(new RateLimiter(permitsPerSecond, burst, maxIssuers));
+            if (log.isDebugEnabled()) {
+                log.debug("Back-channel logout rate limit is enabled with " + permitsPerSecond + " requests per " +
+                        "second and a burst of " + burst + " per issuer.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_LOGOUT_CONCURRENCY_LIMIT, false)) {
+            int maxConcurrentRequests = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.MAX_CONCURRENT_LOGOUT_REQUESTS,
+                    BackchannelLogout.DEFAULT_MAX_CONCURRENT_LOGOUT_REQUESTS);
+            long maxWait = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.LOGOUT_CONCURRENCY_LIMIT_WAIT,
+                    BackchannelLogout.DEFAULT_LOGOUT_CONCURRENCY_LIMIT_WAIT);
+            dataHolder.setLogoutBulkhead(new Bulkhead(maxConcurrentRequests, maxWait));
+            if (log.isDebugEnabled()) {
+                log.debug("Back-channel logout concurrency limit is enabled with a maximum of " +
+                        maxConcurrentRequests + " requests processed at a time.");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_PARALLEL_SESSION_TERMINATION, false)) {
+            int parallelism = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.PARALLEL_SESSION_TERMINATION_PARALLELISM,
+                    BackchannelLogout.DEFAULT_PARALLEL_SESSION_TERMINATION_PARALLELISM);
+            dataHolder.setSessionTerminationExecutor(new ParallelTaskExecutor(parallelism,
+                    "oidc-session-termination-"));
+            if (log.isDebugEnabled()) {
+                log.debug("Parallel termination of the sessions of a user is enabled with a parallelism of " +
+                        parallelism + ".");
+            }
+        }
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_IDP_SESSION_TERMINATION, false)) {
+            initializeIdPSessionTerminator(parameters);
+        }
+    }
+
+    private void initializeFederatedSessionIndexJournal(OffHeapFederatedSessionIndex offHeapIndex,
+                                                        Map<String, String> parameters) {
+
+        String directory = parameters.get(BackchannelLogout.FEDERATED_SESSION_INDEX_DIRECTORY);
+        Path directoryPath = directory != null ? Paths.get(directory) : Paths.get(CarbonUtils.getCarbonHome(),
+                "repository", "data", "oidc", "federated-session-index");
+        int journalSize = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                BackchannelLogout.FEDERATED_SESSION_INDEX_JOURNAL_SIZE,
+                BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_JOURNAL_SIZE);
+        long snapshotInterval = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                BackchannelLogout.FEDERATED_SESSION_INDEX_SNAPSHOT_INTERVAL,
+                BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_SNAPSHOT_INTERVAL);
+        long flushInterval = 0;
+        int maxPendingWrites = 0;
+        if (OIDCAuthenticatorConfigUtil.getBooleanParameter(parameters,
+                BackchannelLogout.ENABLE_FEDERATED_SESSION_INDEX_WRITE_BEHIND, false)) {
+            flushInterval = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                    BackchannelLogout.FEDERATED_SESSION_INDEX_FLUSH_INTERVAL,
+                    BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_FLUSH_INTERVAL);
+            maxPendingWrites = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                    BackchannelLogout.FEDERATED_SESSION_INDEX_MAX_PENDING_WRITES,
+                    BackchannelLogout.DEFAULT_FEDERATED_SESSION_INDEX_MAX_PENDING_WRITES);
+        }
+        FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(offHeapIndex, directoryPath,
+                journalSize, flushInterval, maxPendingWrites);
+        try {
+            journal.start(snapshotInterval);
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setFederatedSessionIndexJournal(journal);
+            if (log.isDebugEnabled() && flushInterval > 0) {
+                log.debug("Federated session index changes are journaled in batches with a flush interval of " +
+                        flushInterval + " ms.");
+            }
+        } catch (IOException e) {
+            log.error("Error while starting the federated session index journal in: " + directoryPath +
+                    ". The federated session index is not persisted.", e);
+        }
+    }
+
+    private void initializeIdPSessionTerminator(Map<String, String> parameters) {
+
+        int parallelism = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                BackchannelLogout.IDP_SESSION_TERMINATION_PARALLELISM,
+                BackchannelLogout.DEFAULT_IDP_SESSION_TERMINATION_PARALLELISM);
+        int pageSize = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                BackchannelLogout.IDP_SESSION_TERMINATION_PAGE_SIZE,
+                BackchannelLogout.DEFAULT_IDP_SESSION_TERMINATION_PAGE_SIZE);
+        int sessionsPerSecond = OIDCAuthenticatorConfigUtil.getIntParameter(parameters,
+                BackchannelLogout.IDP_SESSION_TERMINATION_RATE, BackchannelLogout.DEFAULT_IDP_SESSION_TERMINATION_RATE);
+        long pageTimeout = OIDCAuthenticatorConfigUtil.getLongParameter(parameters,
+                BackchannelLogout.IDP_SESSION_TERMINATION_PAGE_TIMEOUT,
+                BackchannelLogout.DEFAULT_IDP_SESSION_TERMINATION_PAGE_TIMEOUT);
+        String directory = parameters.get(BackchannelLogout.IDP_SESSION_TERMINATION_DIRECTORY);
+        Path directoryPath = directory != null ? Paths.get(directory) : Paths.get(CarbonUtils.getCarbonHome(),
+                "repository", "data", "oidc", "idp-session-termination");
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setIdPSessionTerminator(new IdPSessionTerminator(
+                parallelism, pageSize, sessionsPerSecond, pageTimeout, directoryPath));
+        if (log.isDebugEnabled()) {
+            log.debug("Termination of the sessions of an identity provider is enabled with a parallelism of " +
+                    parallelism + " and a rate of " + sessionsPerSecond + " sessions per second.");
+        }
+    }
+
+    /**
+     * Publish the status of the authenticator through JMX, so that readiness checks can wait for the node to be warm.
+     */
+    private void registerStatusMBean() {
+
+        try {
+            ObjectName objectName = new ObjectName(OIDCAuthenticatorStatus.OBJECT_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(new OIDCAuthenticatorStatus(), objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while registering the OIDC authenticator status MBean.", e);
+        }
+    }
+
+    private void unregisterStatusMBean() {
+
+        try {
+            ObjectName objectName = new ObjectName(OIDCAuthenticatorStatus.OBJECT_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while unregistering the OIDC authenticator status MBean.", e);
+        }
+    }
+
     @Deactivate
     protected void deactivate(ComponentContext ctxt) {
 
+        unregisterStatusMBean();
+
+        EndpointPreConnector tokenEndpointPreConnector =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getTokenEndpointPreConnector();
+        if (tokenEndpointPreConnector != null) {
+            tokenEndpointPreConnector.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setTokenEndpointPreConnector(null);
+        }
+        IdPEndpointWarmer idPEndpointWarmer = OpenIDConnectAuthenticatorDataHolder.getInstance().getIdPEndpointWarmer();
+        if (idPEndpointWarmer != null) {
+            idPEndpointWarmer.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setIdPEndpointWarmer(null);
+        }
+        OutboundCallExecutor outboundCallExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getOutboundCallExecutor();
+        if (outboundCallExecutor != null) {
+            outboundCallExecutor.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setOutboundCallExecutor(null);
+        }
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setSampledErrorLogger(null);
+        IssuerIdPCache issuerIdPCache = OpenIDConnectAuthenticatorDataHolder.getInstance().getIssuerIdPCache();
+        if (issuerIdPCache != null) {
+            issuerIdPCache.invalidateAll();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setIssuerIdPCache(null);
+        }
+        FederatedSessionIndexJournal federatedSessionIndexJournal =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndexJournal();
+        if (federatedSessionIndexJournal != null) {
+            // Written before the index is cleared, so that the next startup recovers the index.
+            federatedSessionIndexJournal.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setFederatedSessionIndexJournal(null);
+        }
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        if (federatedSessionIndex != null) {
+            federatedSessionIndex.clear();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setFederatedSessionIndex(null);
+        }
+        FederatedSidFilter federatedSidFilter =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSidFilter();
+        if (federatedSidFilter != null) {
+            federatedSidFilter.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setFederatedSidFilter(null);
+        }
+        FederatedUserIdCache federatedUserIdCache =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedUserIdCache();
+        if (federatedUserIdCache != null) {
+            federatedUserIdCache.clear();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setFederatedUserIdCache(null);
+        }
+        ParallelTaskExecutor batchLogoutExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getBatchLogoutExecutor();
+        if (batchLogoutExecutor != null) {
+            batchLogoutExecutor.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setBatchLogoutExecutor(null);
+        }
+        IdPSessionTerminator idPSessionTerminator =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getIdPSessionTerminator();
+        if (idPSessionTerminator != null) {
+            idPSessionTerminator.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setIdPSessionTerminator(null);
+        }
+        ParallelTaskExecutor sessionTerminationExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getSessionTerminationExecutor();
+        if (sessionTerminationExecutor != null) {
+            sessionTerminationExecutor.shutdown();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setSessionTerminationExecutor(null);
+        }
+        LogoutTokenReplayCache logoutTokenReplayCache =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutTokenReplayCache();
+        if (logoutTokenReplayCache != null) {
+            logoutTokenReplayCache.clear();
+            OpenIDConnectAuthenticatorDataHolder.getInstance().setLogoutTokenReplayCache(null);
+        }
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setLogoutSingleFlight(null);
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setLogoutRateLimiter(null);
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setLogoutBulkhead(null);
         if (log.isDebugEnabled()) {
             log.debug("OpenID Connect Authenticator bundle is deactivated");
         }
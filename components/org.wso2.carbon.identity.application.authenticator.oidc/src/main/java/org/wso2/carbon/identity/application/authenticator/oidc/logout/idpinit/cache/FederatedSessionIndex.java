@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+/**
+ * Index from the sid of a federated IdP session to the local session.
+ * The index is filled when a session is created and its entries are removed when the session is terminated, or when
+ * they expire. A miss does not mean the session does not exist, hence the session store has to be consulted on a miss.
+ * An entry may outlive its session if the session is removed through a path that is not observed, for instance on
+ * another node of a cluster. Such an entry is not harmless, as the sid may since map to a new session of a later login
+ * through the same IdP session, hence the session of a hit has to be checked to exist before it is trusted.
+ */
+public interface FederatedSessionIndex {
+
+    /**
+     * Add the mapping of the sid to the local session.
+     *
+     * @param idpName   Name of the federated IdP.
+     * @param sid       Sid of the federated IdP session.
+     * @param sessionId Id of the local session.
+     */
+    void put(String idpName, String sid, String sessionId);
+
+    /**
+     * Get the local session of the sid.
+     *
+     * @param idpName Name of the federated IdP.
+     * @param sid     Sid of the federated IdP session.
+     * @return Id of the local session or null if the sid is not in the index.
+     */
+    String getSessionId(String idpName, String sid);
+
+    /**
+     * Remove the mapping of the sid.
+     *
+     * @param idpName Name of the federated IdP.
+     * @param sid     Sid of the federated IdP session.
+     */
+    void remove(String idpName, String sid);
+
+    /**
+     * Remove all the sids of the local session, if the index can look them up by the session.
+     *
+     * @param sessionId Id of the local session.
+     */
+    void removeSession(String sessionId);
+
+    /**
+     * Remove all the entries.
+     */
+    void clear();
+
+    /**
+     * Get the number of sids in the index, including the expired entries that are not removed yet.
+     *
+     * @return Number of sids.
+     */
+    int size();
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists the off-heap federated session index, so that a node recovers the index on startup instead of falling
+ * back to the session store until the index is filled again.
+ * The changes to the index are appended to a memory-mapped journal, and a compacted snapshot of the index is written
+ * periodically, after which the journals covered by the snapshot are deleted. Each journal record and the snapshot
+ * are checksummed, and the recovery stops at the first record that does not match its checksum. The journal is not
+ * forced to the disk on each append, hence the changes made shortly before an operating system crash may be lost,
+ * which is harmless as the index falls back to the session store on a miss.
+ * With write-behind enabled, the changes are queued by the threads updating the index and appended to the journal in
+ * batches on a flush interval, so that logins do not contend on the journal while holding the locks of the index.
+ * The index itself is updated immediately, hence lookups see the queued changes. The queued changes are lost if the
+ * process stops without a shutdown, in the same way as the changes not yet forced to the disk.
+ * A full journal is forced to the disk and closed on the snapshot thread, as the journal is rotated by the thread
+ * appending to it, which holds the lock of an index segment unless write-behind is enabled.
+ */
+public class FederatedSessionIndexJournal implements OffHeapFederatedSessionIndex.ChangeListener {
+
+    private static final Log log = LogFactory.getLog(FederatedSessionIndexJournal.class);
+
+    private static final String SNAPSHOT_FILE_NAME = "snapshot.dat";
+    private static final String SNAPSHOT_TEMP_FILE_NAME = "snapshot.tmp";
+    private static final String JOURNAL_FILE_PREFIX = "journal-";
+    private static final String JOURNAL_FILE_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x4f534958;
+    private static final int SNAPSHOT_VERSION = 1;
+    // Magic, version and the generation to replay from, followed by the entries, the entry count and the checksum.
+    private static final int SNAPSHOT_HEADER_SIZE = 16;
+    private static final int SNAPSHOT_TRAILER_SIZE = 12;
+    private static final byte RECORD_END = 0;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+    // Type, key hash, expiry time, session id length, session id and checksum.
+    private static final int MAX_RECORD_SIZE = 1 + 16 + 8 + 1 + OffHeapFederatedSessionIndex.MAX_SESSION_ID_LENGTH + 4;
+
+    private final OffHeapFederatedSessionIndex index;
+    private final Path directory;
+    private final int journalSize;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final ScheduledExecutorService flushExecutor;
+    private final BlockingQueue<byte[]> pendingRecords;
+    private final long flushIntervalMillis;
+    private final Object snapshotLock = new Object();
+    private final CRC32 recordChecksum = new CRC32();
+    private final byte[] recordBuffer = new byte[MAX_RECORD_SIZE];
+
+    // Journal being appended to, guarded by this.
+    private long generation;
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    private boolean snapshotScheduled;
+
+    /**
+     * Create the journal of the index.
+     *
+     * @param index       Index to persist.
+     * @param directory   Directory of the snapshot and the journals.
+     * @param journalSize Size in bytes of a journal file.
+     */
+    public FederatedSessionIndexJournal(OffHeapFederatedSessionIndex index, Path directory, int journalSize) {
+
+        this(index, directory, journalSize, 0, 0);
+    }
+
+    /**
+     * Create the journal of the index, with the changes appended to the journal in batches.
+     *
+     * @param index               Index to persist.
+     * @param directory           Directory of the snapshot and the journals.
+     * @param journalSize         Size in bytes of a journal file.
+     * @param flushIntervalMillis Interval in milliseconds between two batches. Zero to append the changes at once.
+     * @param maxPendingRecords   Maximum number of changes queued. The changes beyond it are appended at once.
+     */
+    public FederatedSessionIndexJournal(OffHeapFederatedSessionIndex index, Path directory, int journalSize,
+                                        long flushIntervalMillis, int maxPendingRecords) {
+
+        this.index = index;
+        this.directory = directory;
+        this.journalSize = Math.max(MAX_RECORD_SIZE * 2, journalSize);
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-session-index-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMillis > 0) {
+            this.flushIntervalMillis = flushIntervalMillis;
+            this.pendingRecords = new ArrayBlockingQueue<>(Math.max(1, maxPendingRecords));
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "oidc-session-index-journal-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.flushIntervalMillis = 0;
+            this.pendingRecords = null;
+            this.flushExecutor = null;
+        }
+    }
+
+    /**
+     * Recover the index from the snapshot and the journals, start a new journal and schedule the snapshots. The
+     * changes to the index are journaled from then on.
+     *
+     * @param snapshotIntervalMillis Interval in milliseconds between two snapshots.
+     * @throws IOException If the journal could not be created.
+     */
+    public void start(long snapshotIntervalMillis) throws IOException {
+
+        Files.createDirectories(directory);
+        long startTime = System.currentTimeMillis();
+        long replayFrom = loadSnapshot();
+        List<Long> generations = listJournalGenerations();
+        int records = 0;
+        for (long journalGeneration : generations) {
+            if (journalGeneration >= replayFrom) {
+                records += replayJournal(journalGeneration);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Recovered " + index.size() + " federated session index entries with " + records +
+                    " journal records in " + (System.currentTimeMillis() - startTime) + " ms.");
+        }
+
+        synchronized (this) {
+            generation = generations.isEmpty() ? replayFrom : Math.max(replayFrom, generations.get(
+                    generations.size() - 1) + 1);
+            openJournal();
+        }
+        index.setChangeListener(this);
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshot, snapshotIntervalMillis, snapshotIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        if (flushExecutor != null) {
+            flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void onPut(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId) {
+
+        if (pendingRecords == null) {
+            synchronized (this) {
+                append(recordBuffer, writePutRecord(ByteBuffer.wrap(recordBuffer), keyHashHigh, keyHashLow,
+                        expiryTime, sessionId));
+            }
+            return;
+        }
+        byte[] record = new byte[1 + 16 + 8 + 1 + sessionId.length];
+        writePutRecord(ByteBuffer.wrap(record), keyHashHigh, keyHashLow, expiryTime, sessionId);
+        enqueue(record);
+    }
+
+    @Override
+    public void onRemove(long keyHashHigh, long keyHashLow) {
+
+        if (pendingRecords == null) {
+            synchronized (this) {
+                append(recordBuffer, writeRemoveRecord(ByteBuffer.wrap(recordBuffer), keyHashHigh, keyHashLow));
+            }
+            return;
+        }
+        byte[] record = new byte[1 + 16];
+        writeRemoveRecord(ByteBuffer.wrap(record), keyHashHigh, keyHashLow);
+        enqueue(record);
+    }
+
+    /**
+     * Append the queued changes to the journal.
+     */
+    void flush() {
+
+        synchronized (this) {
+            appendPendingRecords();
+        }
+    }
+
+    /**
+     * Stop the journaling and write a final snapshot, so that the next startup does not replay the journals.
+     */
+    public void shutdown() {
+
+        snapshotExecutor.shutdown();
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        try {
+            snapshotExecutor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (flushExecutor != null) {
+                flushExecutor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        index.setChangeListener(null);
+        snapshot();
+        synchronized (this) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Write a snapshot of the index and delete the journals it covers.
+     */
+    void snapshot() {
+
+        synchronized (snapshotLock) {
+            takeSnapshot();
+        }
+    }
+
+    private void takeSnapshot() {
+
+        long replayFrom;
+        synchronized (this) {
+            snapshotScheduled = false;
+            // The queued changes belong to the journals covered by the snapshot.
+            appendPendingRecords();
+            try {
+                // Changes from now on go to a new journal, which is replayed on top of the snapshot.
+                rotateJournal();
+            } catch (IOException e) {
+                log.error("Error while rotating the federated session index journal.", e);
+                return;
+            }
+            replayFrom = generation;
+        }
+        try {
+            writeSnapshot(replayFrom);
+            for (long journalGeneration : listJournalGenerations()) {
+                if (journalGeneration < replayFrom) {
+                    Files.deleteIfExists(getJournalPath(journalGeneration));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error while writing the federated session index snapshot.", e);
+        }
+    }
+
+    private static int writePutRecord(ByteBuffer record, long keyHashHigh, long keyHashLow, long expiryTime,
+                                      byte[] sessionId) {
+
+        record.put(RECORD_PUT).putLong(keyHashHigh).putLong(keyHashLow).putLong(expiryTime)
+                .put((byte) sessionId.length).put(sessionId);
+        return record.position();
+    }
+
+    private static int writeRemoveRecord(ByteBuffer record, long keyHashHigh, long keyHashLow) {
+
+        record.put(RECORD_REMOVE).putLong(keyHashHigh).putLong(keyHashLow);
+        return record.position();
+    }
+
+    private void enqueue(byte[] record) {
+
+        if (pendingRecords.offer(record)) {
+            return;
+        }
+        // The queue is full. The queued changes are appended first to keep the order of the changes of a key.
+        synchronized (this) {
+            appendPendingRecords();
+            append(record, record.length);
+        }
+    }
+
+    private void appendPendingRecords() {
+
+        if (pendingRecords == null) {
+            return;
+        }
+        // Bounded by the changes queued so far, so that a steady stream of changes can not hold the journal.
+        for (int count = pendingRecords.size(); count > 0; count--) {
+            byte[] record = pendingRecords.poll();
+            if (record == null) {
+                break;
+            }
+            append(record, record.length);
+        }
+    }
+
+    private void append(byte[] record, int recordLength) {
+
+        if (journal == null) {
+            return;
+        }
+        if (journal.remaining() < recordLength + 4 + 1) {
+            try {
+                rotateJournal();
+            } catch (IOException e) {
+                log.error("Error while rotating the federated session index journal. Journaling is stopped.", e);
+                closeJournal();
+                return;
+            }
+            // The snapshot taken on shutdown covers the rotated journals.
+            if (!snapshotScheduled && !snapshotExecutor.isShutdown()) {
+                snapshotScheduled = true;
+                snapshotExecutor.execute(this::snapshot);
+            }
+        }
+        recordChecksum.reset();
+        recordChecksum.update(record, 0, recordLength);
+        journal.put(record, 0, recordLength);
+        journal.putInt((int) recordChecksum.getValue());
+    }
+
+    private void rotateJournal() throws IOException {
+
+        retireJournal(journalChannel, journal);
+        journalChannel = null;
+        journal = null;
+        generation++;
+        openJournal();
+    }
+
+    /**
+     * Force the journal to the disk and close it on the snapshot thread, so that the thread rotating the journal does
+     * not wait for the whole mapping to be written. The journal is closed at once if the snapshots are stopped.
+     *
+     * @param channel Channel of the journal.
+     * @param mapping Mapping of the journal.
+     */
+    private void retireJournal(FileChannel channel, MappedByteBuffer mapping) {
+
+        if (!snapshotExecutor.isShutdown()) {
+            try {
+                snapshotExecutor.execute(() -> closeJournal(channel, mapping));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Shut down concurrently. The journal is closed at once.
+            }
+        }
+        closeJournal(channel, mapping);
+    }
+
+    private void openJournal() throws IOException {
+
+        journalChannel = FileChannel.open(getJournalPath(generation), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, journalSize);
+    }
+
+    private void closeJournal() {
+
+        closeJournal(journalChannel, journal);
+        journalChannel = null;
+        journal = null;
+    }
+
+    private static void closeJournal(FileChannel channel, MappedByteBuffer mapping) {
+
+        if (mapping != null) {
+            mapping.force();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Error while closing the federated session index journal.", e);
+            }
+        }
+    }
+
+    private void writeSnapshot(long replayFrom) throws IOException {
+
+        Path tempFile = directory.resolve(SNAPSHOT_TEMP_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 checksum = new CRC32();
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)), checksum));
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeLong(replayFrom);
+            // The entry count is not known upfront, hence it is written after the entries.
+            CountingEntryWriter entryWriter = new CountingEntryWriter(output);
+            index.forEachLiveEntry(entryWriter);
+            output.writeInt(entryWriter.count);
+            output.flush();
+            new DataOutputStream(Channels.newOutputStream(channel)).writeLong(checksum.getValue());
+            channel.force(true);
+        }
+        Files.move(tempFile, directory.resolve(SNAPSHOT_FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load the snapshot into the index.
+     *
+     * @return Generation of the first journal to replay on top of the snapshot.
+     */
+    private long loadSnapshot() {
+
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE_NAME);
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SNAPSHOT_HEADER_SIZE + SNAPSHOT_TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                log.warn("Federated session index snapshot is truncated. The index is not recovered.");
+                return 0;
+            }
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer content = snapshot.duplicate();
+            content.limit((int) size - Long.BYTES);
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            if (checksum.getValue() != snapshot.getLong((int) size - Long.BYTES) ||
+                    snapshot.getInt(0) != SNAPSHOT_MAGIC || snapshot.getInt(4) != SNAPSHOT_VERSION) {
+                log.warn("Federated session index snapshot is corrupted. The index is not recovered.");
+                return 0;
+            }
+            long replayFrom = snapshot.getLong(8);
+            int count = snapshot.getInt((int) size - SNAPSHOT_TRAILER_SIZE);
+            snapshot.position(SNAPSHOT_HEADER_SIZE);
+            snapshot.limit((int) size - SNAPSHOT_TRAILER_SIZE);
+            for (int i = 0; i < count; i++) {
+                long keyHashHigh = snapshot.getLong();
+                long keyHashLow = snapshot.getLong();
+                long expiryTime = snapshot.getLong();
+                byte[] sessionId = new byte[snapshot.get() & 0xff];
+                snapshot.get(sessionId);
+                index.putHashed(keyHashHigh, keyHashLow, expiryTime, sessionId);
+            }
+            return replayFrom;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error while loading the federated session index snapshot. The index is not recovered.", e);
+            index.clear();
+            return 0;
+        }
+    }
+
+    /**
+     * Replay the records of the journal into the index, up to the first record that does not match its checksum.
+     *
+     * @return Number of records replayed.
+     */
+    private int replayJournal(long journalGeneration) {
+
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(getJournalPath(journalGeneration), StandardOpenOption.READ)) {
+            MappedByteBuffer journalBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 checksum = new CRC32();
+            while (journalBuffer.remaining() > 1 + 16 + 4) {
+                int start = journalBuffer.position();
+                byte type = journalBuffer.get();
+                if (type != RECORD_PUT && type != RECORD_REMOVE) {
+                    break;
+                }
+                long keyHashHigh = journalBuffer.getLong();
+                long keyHashLow = journalBuffer.getLong();
+                long expiryTime = 0;
+                byte[] sessionId = null;
+                if (type == RECORD_PUT) {
+                    if (journalBuffer.remaining() < 8 + 1) {
+                        break;
+                    }
+                    expiryTime = journalBuffer.getLong();
+                    int length = journalBuffer.get() & 0xff;
+                    if (journalBuffer.remaining() < length + 4) {
+                        break;
+                    }
+                    sessionId = new byte[length];
+                    journalBuffer.get(sessionId);
+                }
+                int end = journalBuffer.position();
+                ByteBuffer record = journalBuffer.duplicate();
+                record.position(start).limit(end);
+                checksum.reset();
+                checksum.update(record);
+                if ((int) checksum.getValue() != journalBuffer.getInt()) {
+                    break;
+                }
+                if (type == RECORD_PUT) {
+                    index.putHashed(keyHashHigh, keyHashLow, expiryTime, sessionId);
+                } else {
+                    index.removeHashed(keyHashHigh, keyHashLow);
+                }
+                records++;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error while replaying the federated session index journal: " + journalGeneration, e);
+        }
+        return records;
+    }
+
+    private List<Long> listJournalGenerations() throws IOException {
+
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory,
+                JOURNAL_FILE_PREFIX + "*" + JOURNAL_FILE_SUFFIX)) {
+            for (Path journalPath : journals) {
+                String fileName = journalPath.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(fileName.substring(JOURNAL_FILE_PREFIX.length(),
+                            fileName.length() - JOURNAL_FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring the unknown file in the federated session index directory: " + fileName);
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private Path getJournalPath(long journalGeneration) {
+
+        return directory.resolve(JOURNAL_FILE_PREFIX + journalGeneration + JOURNAL_FILE_SUFFIX);
+    }
+
+    /**
+     * Writes the entries of the index to the snapshot and counts them.
+     */
+    private static class CountingEntryWriter implements OffHeapFederatedSessionIndex.EntryConsumer {
+
+        private final DataOutputStream output;
+        private int count;
+
+        private CountingEntryWriter(DataOutputStream output) {
+
+            this.output = output;
+        }
+
+        @Override
+        public void accept(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId)
+                throws IOException {
+
+            output.writeLong(keyHashHigh);
+            output.writeLong(keyHashLow);
+            output.writeLong(expiryTime);
+            output.writeByte(sessionId.length);
+            output.write(sessionId);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.AuthenticationDataPublisher;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.ExternalIdPConfig;
+import org.wso2.carbon.identity.application.authentication.framework.context.SessionContext;
+import org.wso2.carbon.identity.application.authentication.framework.exception.UserIdNotFoundException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
+import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.core.bean.context.MessageContext;
+import org.wso2.carbon.identity.core.handler.AbstractIdentityMessageHandler;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.wso2.carbon.identity.base.IdentityConstants.FEDERATED_IDP_SESSION_ID;
+
+/**
+ * Keeps the federated session index in sync with the local sessions. The session id is only assigned by the
+ * framework after the authenticators complete, hence the sids stored in the authentication context at login are
+ * indexed when the session is created or updated. The id of the federated user is cached at the same time, as it is
+ * only resolved by the framework when the session is stored.
+ */
+public class FederatedSessionIndexUpdater extends AbstractIdentityMessageHandler implements
+        AuthenticationDataPublisher {
+
+    private static final Log log = LogFactory.getLog(FederatedSessionIndexUpdater.class);
+
+    private static final String NAME = "OIDCFederatedSessionIndexUpdater";
+
+    @Override
+    public String getName() {
+
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled(MessageContext messageContext) {
+
+        // Registered only when the federated session index or the federated user id cache is enabled.
+        return true;
+    }
+
+    @Override
+    public boolean canHandle(MessageContext messageContext) {
+
+        return true;
+    }
+
+    @Override
+    public void publishAuthenticationStepSuccess(HttpServletRequest request, AuthenticationContext context,
+                                                 Map<String, Object> params) {
+
+    }
+
+    @Override
+    public void publishAuthenticationStepFailure(HttpServletRequest request, AuthenticationContext context,
+                                                 Map<String, Object> params) {
+
+    }
+
+    @Override
+    public void publishAuthenticationSuccess(HttpServletRequest request, AuthenticationContext context,
+                                             Map<String, Object> params) {
+
+    }
+
+    @Override
+    public void publishAuthenticationFailure(HttpServletRequest request, AuthenticationContext context,
+                                             Map<String, Object> params) {
+
+    }
+
+    @Override
+    public void publishSessionCreation(HttpServletRequest request, AuthenticationContext context,
+                                       SessionContext sessionContext, Map<String, Object> params) {
+
+        indexSession(context, params);
+        cacheFederatedUserId(context, params);
+    }
+
+    @Override
+    public void publishSessionUpdate(HttpServletRequest request, AuthenticationContext context,
+                                     SessionContext sessionContext, Map<String, Object> params) {
+
+        indexSession(context, params);
+        cacheFederatedUserId(context, params);
+    }
+
+    @Override
+    public void publishSessionTermination(HttpServletRequest request, AuthenticationContext context,
+                                          SessionContext sessionContext, Map<String, Object> params) {
+
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        String sessionId = getSessionId(params);
+        if (federatedSessionIndex != null && sessionId != null) {
+            federatedSessionIndex.removeSession(sessionId);
+        }
+    }
+
+    private void indexSession(AuthenticationContext context, Map<String, Object> params) {
+
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        String sessionId = getSessionId(params);
+        if (federatedSessionIndex == null || sessionId == null || context == null ||
+                context.getProperties() == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> property : context.getProperties().entrySet()) {
+            if (property.getKey().startsWith(FEDERATED_IDP_SESSION_ID) && property.getValue() instanceof String &&
+                    StringUtils.isNotBlank((String) property.getValue())) {
+                String idpName = property.getKey().substring(FEDERATED_IDP_SESSION_ID.length());
+                federatedSessionIndex.put(idpName, (String) property.getValue(), sessionId);
+                if (log.isDebugEnabled()) {
+                    log.debug("Indexed the sid of the federated IdP: " + idpName + " for the session: " + sessionId);
+                }
+            }
+        }
+    }
+
+    private void cacheFederatedUserId(AuthenticationContext context, Map<String, Object> params) {
+
+        FederatedUserIdCache federatedUserIdCache =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedUserIdCache();
+        if (federatedUserIdCache == null || context == null || params == null) {
+            return;
+        }
+        Object user = params.get(FrameworkConstants.AnalyticsAttributes.USER);
+        ExternalIdPConfig externalIdP = context.getExternalIdP();
+        if (!(user instanceof AuthenticatedUser) || !((AuthenticatedUser) user).isFederatedUser() ||
+                externalIdP == null || externalIdP.getIdentityProvider() == null) {
+            return;
+        }
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) user;
+        String idpId = externalIdP.getIdentityProvider().getId();
+        // The external IdP of the context is the IdP of the last federated step.
+        if (!StringUtils.equals(externalIdP.getIdPName(), authenticatedUser.getFederatedIdPName()) ||
+                !StringUtils.isNumeric(idpId) || StringUtils.isBlank(authenticatedUser.getUserName())) {
+            return;
+        }
+        try {
+            federatedUserIdCache.put(IdentityTenantUtil.getTenantId(authenticatedUser.getTenantDomain()),
+                    Integer.parseInt(idpId), authenticatedUser.getUserName(), authenticatedUser.getUserId());
+        } catch (UserIdNotFoundException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Federated user id is not available for the user of the IdP: " +
+                        authenticatedUser.getFederatedIdPName(), e);
+            }
+        }
+    }
+
+    private String getSessionId(Map<String, Object> params) {
+
+        if (params == null) {
+            return null;
+        }
+        Object sessionId = params.get(FrameworkConstants.AnalyticsAttributes.SESSION_ID);
+        return sessionId instanceof String ? (String) sessionId : null;
+    }
+}
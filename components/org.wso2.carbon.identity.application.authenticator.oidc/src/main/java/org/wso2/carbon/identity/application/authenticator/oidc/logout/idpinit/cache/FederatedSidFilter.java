@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.BloomFilter;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefilter of the sids of the federated IdP sessions, used to answer logout requests for unknown sids without a
+ * session store lookup.
+ * The sids are added to a Bloom filter at login, and the filter is periodically rebuilt from the federated session
+ * mappings of this authenticator to drop the sids of the removed sessions. The sids added during the retention period
+ * are added to each rebuilt filter too, as the session of a sid is only persisted once the authentication flow
+ * completes. The filter is only authoritative after the first successful rebuild, and only if no sid was dropped from
+ * the retained sids due to the size limit. Sids of the sessions created on other nodes of a cluster are only known
+ * after the next rebuild, hence a negative answer is only complete, and the filter should only be used, when all the
+ * sessions are created on this node.
+ */
+public class FederatedSidFilter {
+
+    private static final Log log = LogFactory.getLog(FederatedSidFilter.class);
+
+    private static final String GET_FEDERATED_SIDS = "SELECT IDP_SESSION_ID FROM IDN_FED_AUTH_SESSION_MAPPING " +
+            "WHERE AUTHENTICATOR_ID = ?";
+    private static final int FETCH_SIZE = 1000;
+    // Default timeout of an authentication flow.
+    private static final long MIN_RECENT_SID_RETENTION = 900000;
+    private static final double FALSE_POSITIVE_RATE_WARN_THRESHOLD = 0.05;
+
+    private final Map<String, Long> recentSids = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong skippedLookups = new AtomicLong();
+    private final AtomicLong positiveLookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final ScheduledExecutorService rebuildExecutor;
+    private final int memoryBudgetBytes;
+    private final long expectedSids;
+    private final long recentSidRetention;
+    private final int maxRecentSids;
+
+    private volatile BloomFilter filter;
+    private volatile boolean authoritative;
+    private volatile long lastOverflowTime;
+    // Filter being rebuilt, guarded by the lock.
+    private BloomFilter nextFilter;
+
+    /**
+     * Create a federated sid filter and schedule its rebuilds.
+     *
+     * @param memoryBudgetBytes     Size of the Bloom filter in bytes.
+     * @param expectedSids          Expected number of federated sids.
+     * @param rebuildIntervalMillis Interval in milliseconds between two rebuilds.
+     */
+    public FederatedSidFilter(int memoryBudgetBytes, long expectedSids, long rebuildIntervalMillis) {
+
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.expectedSids = expectedSids;
+        this.recentSidRetention = Math.max(2 * rebuildIntervalMillis, MIN_RECENT_SID_RETENTION);
+        this.maxRecentSids = (int) Math.min(Integer.MAX_VALUE, Math.max(1, expectedSids));
+        this.filter = new BloomFilter(memoryBudgetBytes, expectedSids);
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-sid-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuildExecutor.scheduleWithFixedDelay(this::rebuild, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add the sid of a federated IdP session.
+     *
+     * @param sid Sid of the federated IdP session.
+     */
+    public void add(String sid) {
+
+        long currentTime = System.currentTimeMillis();
+        if (recentSids.size() < maxRecentSids || recentSids.containsKey(sid)) {
+            recentSids.put(sid, currentTime);
+        } else {
+            lastOverflowTime = currentTime;
+        }
+        lock.readLock().lock();
+        try {
+            filter.add(sid);
+            if (nextFilter != null) {
+                nextFilter.add(sid);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check whether the sid might have a session.
+     *
+     * @param sid Sid of the logout token.
+     * @return False if the sid definitely has no session.
+     */
+    public boolean mightContain(String sid) {
+
+        if (!authoritative) {
+            return true;
+        }
+        if (filter.mightContain(sid)) {
+            return true;
+        }
+        skippedLookups.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Record the result of the session store lookup of a sid that passed the filter.
+     *
+     * @param found Whether a session was found for the sid.
+     */
+    public void recordLookup(boolean found) {
+
+        positiveLookups.incrementAndGet();
+        if (!found) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered by the filter without the session store.
+     *
+     * @return Number of skipped lookups.
+     */
+    public long getSkippedLookups() {
+
+        return skippedLookups.get();
+    }
+
+    /**
+     * Get the fraction of the sids passed by the filter that had no session. This includes the sids of the sessions
+     * removed since the last rebuild.
+     *
+     * @return Observed false positive rate.
+     */
+    public double getObservedFalsePositiveRate() {
+
+        long positives = positiveLookups.get();
+        return positives == 0 ? 0 : (double) falsePositives.get() / positives;
+    }
+
+    /**
+     * Get the false positive rate of the filter estimated from its fill ratio.
+     *
+     * @return Estimated false positive rate.
+     */
+    public double getEstimatedFalsePositiveRate() {
+
+        return filter.getEstimatedFalsePositiveRate();
+    }
+
+    public boolean isAuthoritative() {
+
+        return authoritative;
+    }
+
+    /**
+     * Stop the rebuilds.
+     */
+    public void shutdown() {
+
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild the filter from the federated session mappings.
+     */
+    void rebuild() {
+
+        long startTime = System.currentTimeMillis();
+        BloomFilter rebuiltFilter = new BloomFilter(memoryBudgetBytes, expectedSids);
+        lock.writeLock().lock();
+        try {
+            nextFilter = rebuiltFilter;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        boolean loaded = false;
+        try {
+            loadPersistedSids(rebuiltFilter);
+            loaded = true;
+        } catch (SQLException | RuntimeException e) {
+            log.error("Error while loading the federated session mappings. The sid filter is not rebuilt.", e);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                long retainedAfter = startTime - recentSidRetention;
+                recentSids.values().removeIf(addedTime -> addedTime < retainedAfter);
+                for (String sid : recentSids.keySet()) {
+                    rebuiltFilter.add(sid);
+                }
+                filter = rebuiltFilter;
+                authoritative = lastOverflowTime < retainedAfter;
+            }
+            nextFilter = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (loaded) {
+            double estimatedFalsePositiveRate = rebuiltFilter.getEstimatedFalsePositiveRate();
+            if (estimatedFalsePositiveRate > FALSE_POSITIVE_RATE_WARN_THRESHOLD) {
+                log.warn("Estimated false positive rate of the federated sid filter is " + estimatedFalsePositiveRate +
+                        " with " + rebuiltFilter.getInsertions() + " sids. Consider increasing the memory budget.");
+            } else if (log.isDebugEnabled()) {
+                log.debug("Rebuilt the federated sid filter with " + rebuiltFilter.getInsertions() + " sids in " +
+                        (System.currentTimeMillis() - startTime) + " ms. Estimated false positive rate: " +
+                        estimatedFalsePositiveRate + ", authoritative: " + authoritative);
+            }
+        }
+    }
+
+    private void loadPersistedSids(BloomFilter bloomFilter) throws SQLException {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement preparedStatement = connection.prepareStatement(GET_FEDERATED_SIDS)) {
+            preparedStatement.setString(1, OIDCAuthenticatorConstants.AUTHENTICATOR_NAME);
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    String sid = resultSet.getString(1);
+                    if (sid != null) {
+                        bloomFilter.add(sid);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ExpiringCache;
+
+/**
+ * Caches the id of the federated user of a sub claim, so that sub based logouts resolve the user without a session
+ * store lookup. The cache is filled when a federated session is created and when a user is looked up for a logout.
+ * The user id of a sub only changes when the federated user is removed from the session store, which happens after
+ * all the sessions of the user are removed, hence an entry is refreshed on the next login of the user.
+ */
+public class FederatedUserIdCache {
+
+    private final ExpiringCache<UserKey, String> userIds;
+    private final long timeToLive;
+
+    /**
+     * Create a federated user id cache.
+     *
+     * @param timeToLive Time in milliseconds a user id is cached.
+     * @param maxEntries Maximum number of user ids cached.
+     */
+    public FederatedUserIdCache(long timeToLive, int maxEntries) {
+
+        this.userIds = new ExpiringCache<>(maxEntries);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Get the cached id of the federated user.
+     *
+     * @param tenantId Tenant id.
+     * @param idpId    Id of the federated IdP.
+     * @param sub      Subject identifier of the user at the federated IdP.
+     * @return User id or null if not cached.
+     */
+    public String getUserId(int tenantId, int idpId, String sub) {
+
+        return userIds.get(new UserKey(tenantId, idpId, sub));
+    }
+
+    /**
+     * Cache the id of the federated user.
+     *
+     * @param tenantId Tenant id.
+     * @param idpId    Id of the federated IdP.
+     * @param sub      Subject identifier of the user at the federated IdP.
+     * @param userId   Id of the federated user.
+     */
+    public void put(int tenantId, int idpId, String sub, String userId) {
+
+        userIds.put(new UserKey(tenantId, idpId, sub), userId, timeToLive);
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear() {
+
+        userIds.clear();
+    }
+
+    /**
+     * Key of a federated user.
+     */
+    private static final class UserKey {
+
+        private final int tenantId;
+        private final int idpId;
+        private final String sub;
+
+        private UserKey(int tenantId, int idpId, String sub) {
+
+            this.tenantId = tenantId;
+            this.idpId = idpId;
+            this.sub = sub;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof UserKey)) {
+                return false;
+            }
+            UserKey other = (UserKey) object;
+            return tenantId == other.tenantId && idpId == other.idpId && sub.equals(other.sub);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return 31 * (31 * tenantId + idpId) + sub.hashCode();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ExpiringCache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded federated session index kept in the Java heap.
+ * When the index is full, adding a sid evicts the least recently used sid in constant time. The sids of a session
+ * are tracked in a separate bounded map, which evicts independently. A sid whose session was evicted from that map
+ * is not removed with its session, and stays in the index until it expires or is evicted.
+ */
+public class InMemoryFederatedSessionIndex implements FederatedSessionIndex {
+
+    private static final char KEY_SEPARATOR = '\n';
+
+    private final ExpiringCache<String, String> sessionIdsByKey;
+    private final ExpiringCache<String, Set<String>> keysBySessionId;
+    private final long timeToLive;
+
+    /**
+     * Create an in-memory federated session index.
+     *
+     * @param timeToLive Time in milliseconds an entry is kept in the index.
+     * @param maxEntries Maximum number of sids kept in the index.
+     */
+    public InMemoryFederatedSessionIndex(long timeToLive, int maxEntries) {
+
+        this.sessionIdsByKey = new ExpiringCache<>(maxEntries);
+        this.keysBySessionId = new ExpiringCache<>(maxEntries);
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public void put(String idpName, String sid, String sessionId) {
+
+        String key = getKey(idpName, sid);
+        Set<String> keys = keysBySessionId.get(sessionId);
+        if (keys == null) {
+            keys = ConcurrentHashMap.newKeySet();
+            if (!keysBySessionId.put(sessionId, keys, timeToLive)) {
+                return;
+            }
+        }
+        if (sessionIdsByKey.put(key, sessionId, timeToLive)) {
+            keys.add(key);
+        }
+    }
+
+    @Override
+    public String getSessionId(String idpName, String sid) {
+
+        return sessionIdsByKey.get(getKey(idpName, sid));
+    }
+
+    @Override
+    public void remove(String idpName, String sid) {
+
+        sessionIdsByKey.remove(getKey(idpName, sid));
+    }
+
+    @Override
+    public void removeSession(String sessionId) {
+
+        Set<String> keys = keysBySessionId.get(sessionId);
+        keysBySessionId.remove(sessionId);
+        if (keys != null) {
+            for (String key : keys) {
+                sessionIdsByKey.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        sessionIdsByKey.clear();
+        keysBySessionId.clear();
+    }
+
+    @Override
+    public int size() {
+
+        return sessionIdsByKey.size();
+    }
+
+    private static String getKey(String idpName, String sid) {
+
+        return idpName + KEY_SEPARATOR + sid;
+    }
+}
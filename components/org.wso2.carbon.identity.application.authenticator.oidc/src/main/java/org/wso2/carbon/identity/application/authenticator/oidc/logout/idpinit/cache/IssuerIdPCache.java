@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ExpiringCache;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the identity provider resolved for the issuer of a logout token, per tenant.
+ * The issuer of a logout token is not verified before the identity provider is resolved, hence issuers without a
+ * registered identity provider are cached as negative entries in a separate, smaller cache with a shorter time to
+ * live, so that requests with arbitrary issuers can not evict the resolved identity providers. All the entries of a
+ * tenant are invalidated when an identity provider of the tenant changes. An invalidation replaces the cache of the
+ * tenant, hence a resolution that was in progress during the invalidation can only populate the discarded cache.
+ * The invalidation is local to the node where the identity provider was changed. The other nodes of a cluster serve
+ * the previous resolution until the entry expires, hence the time to live bounds how long the nodes disagree.
+ */
+public class IssuerIdPCache {
+
+    private final Map<String, TenantCache> tenantCaches = new ConcurrentHashMap<>();
+    private final long timeToLive;
+    private final long negativeTimeToLive;
+    private final int maxEntriesPerTenant;
+    private final int maxNegativeEntriesPerTenant;
+
+    /**
+     * Create an issuer to identity provider cache.
+     *
+     * @param timeToLive                  Time in milliseconds a resolved identity provider is cached.
+     * @param negativeTimeToLive          Time in milliseconds an unknown issuer is cached.
+     * @param maxEntriesPerTenant         Maximum number of resolved issuers cached per tenant.
+     * @param maxNegativeEntriesPerTenant Maximum number of unknown issuers cached per tenant.
+     */
+    public IssuerIdPCache(long timeToLive, long negativeTimeToLive, int maxEntriesPerTenant,
+                          int maxNegativeEntriesPerTenant) {
+
+        this.timeToLive = timeToLive;
+        this.negativeTimeToLive = negativeTimeToLive;
+        this.maxEntriesPerTenant = maxEntriesPerTenant;
+        this.maxNegativeEntriesPerTenant = maxNegativeEntriesPerTenant;
+    }
+
+    /**
+     * Get the cache of the tenant. Lookups and the subsequent population should use the same tenant cache.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Cache of the tenant keyed by issuer.
+     */
+    public TenantCache getTenantCache(String tenantDomain) {
+
+        return tenantCaches.computeIfAbsent(tenantDomain, key -> new TenantCache(maxEntriesPerTenant,
+                maxNegativeEntriesPerTenant));
+    }
+
+    /**
+     * Cache the resolution of the issuer.
+     *
+     * @param tenantCache Cache of the tenant.
+     * @param issuer      Issuer of the logout token.
+     * @param resolvedIdP Resolved identity provider.
+     */
+    public void put(TenantCache tenantCache, String issuer, ResolvedIdP resolvedIdP) {
+
+        if (resolvedIdP.isResolved()) {
+            tenantCache.unresolvedIssuers.remove(issuer);
+            tenantCache.resolvedIssuers.put(issuer, resolvedIdP, timeToLive);
+        } else {
+            tenantCache.unresolvedIssuers.put(issuer, resolvedIdP, negativeTimeToLive);
+        }
+    }
+
+    /**
+     * Invalidate all the entries of the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void invalidate(String tenantDomain) {
+
+        if (tenantDomain != null) {
+            tenantCaches.remove(tenantDomain);
+        }
+    }
+
+    /**
+     * Invalidate all the entries.
+     */
+    public void invalidateAll() {
+
+        tenantCaches.clear();
+    }
+
+    /**
+     * Issuers cached for a tenant.
+     */
+    public static class TenantCache {
+
+        private final ExpiringCache<String, ResolvedIdP> resolvedIssuers;
+        private final ExpiringCache<String, ResolvedIdP> unresolvedIssuers;
+
+        private TenantCache(int maxEntries, int maxNegativeEntries) {
+
+            this.resolvedIssuers = new ExpiringCache<>(maxEntries);
+            this.unresolvedIssuers = new ExpiringCache<>(maxNegativeEntries);
+        }
+
+        /**
+         * Get the cached resolution of the issuer.
+         *
+         * @param issuer Issuer of the logout token.
+         * @return Resolved identity provider, the unresolved identity provider if the issuer is cached as unknown,
+         * or null if the issuer is not cached.
+         */
+        public ResolvedIdP get(String issuer) {
+
+            ResolvedIdP resolvedIdP = resolvedIssuers.get(issuer);
+            return resolvedIdP != null ? resolvedIdP : unresolvedIssuers.get(issuer);
+        }
+    }
+
+    /**
+     * Identity provider resolved for an issuer along with the client id registered for it.
+     */
+    public static class ResolvedIdP {
+
+        private static final ResolvedIdP UNRESOLVED = new ResolvedIdP(null, null);
+        private static final int UNKNOWN_IDP_ID = -1;
+
+        private final IdentityProvider identityProvider;
+        private final String clientId;
+        private final int identityProviderId;
+
+        public ResolvedIdP(IdentityProvider identityProvider, String clientId) {
+
+            this.identityProvider = identityProvider;
+            this.clientId = clientId;
+            this.identityProviderId = identityProvider != null && StringUtils.isNumeric(identityProvider.getId()) ?
+                    Integer.parseInt(identityProvider.getId()) : UNKNOWN_IDP_ID;
+        }
+
+        /**
+         * Get the resolution of an issuer without a registered identity provider.
+         *
+         * @return Unresolved identity provider.
+         */
+        public static ResolvedIdP unresolved() {
+
+            return UNRESOLVED;
+        }
+
+        public IdentityProvider getIdentityProvider() {
+
+            return identityProvider;
+        }
+
+        public String getClientId() {
+
+            return clientId;
+        }
+
+        /**
+         * Get the numeric id of the identity provider.
+         *
+         * @return Id of the identity provider, or a negative value if the id is not numeric.
+         */
+        public int getIdentityProviderId() {
+
+            return identityProviderId;
+        }
+
+        public boolean isResolved() {
+
+            return identityProvider != null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the logout tokens that were processed, until they can no longer be accepted by the iat validation, so
+ * that redelivered logout tokens are acknowledged without being processed again.
+ * The entries are held in a concurrent map, and are expired with a timer wheel whose buckets hold the keys expiring
+ * in a tick. The elapsed buckets are drained by the thread that advances the wheel, hence expiry does not need a
+ * background thread or a lock, and costs a constant amount of work per entry.
+ */
+public class LogoutTokenReplayCache {
+
+    private static final int WHEEL_TICKS = 512;
+    private static final long MIN_TICK_MILLIS = 1000;
+
+    private final Map<String, Long> expiryTimes = new ConcurrentHashMap<>();
+    private final Queue<String>[] wheel;
+    private final AtomicLong sweptTick;
+    private final long maxTimeToLive;
+    private final long tickMillis;
+    private final int maxEntries;
+
+    /**
+     * Create a logout token replay cache.
+     *
+     * @param maxTimeToLive Maximum time in milliseconds a logout token is remembered.
+     * @param maxEntries    Maximum number of logout tokens remembered.
+     */
+    @SuppressWarnings("unchecked")
+    public LogoutTokenReplayCache(long maxTimeToLive, int maxEntries) {
+
+        this.maxTimeToLive = maxTimeToLive;
+        this.maxEntries = maxEntries;
+        this.tickMillis = Math.max(MIN_TICK_MILLIS, maxTimeToLive / WHEEL_TICKS);
+        // An extra bucket keeps the bucket of the furthest expiry apart from the bucket being drained.
+        int bucketCount = (int) (maxTimeToLive / tickMillis) + 2;
+        this.wheel = new Queue[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.sweptTick = new AtomicLong(System.currentTimeMillis() / tickMillis);
+    }
+
+    /**
+     * Check whether the logout token was processed.
+     *
+     * @param key Key of the logout token.
+     * @return True if the logout token was processed and is still remembered.
+     */
+    public boolean contains(String key) {
+
+        Long expiryTime = expiryTimes.get(key);
+        return expiryTime != null && expiryTime > System.currentTimeMillis();
+    }
+
+    /**
+     * Remember the logout token until the expiry time, limited to the maximum time to live.
+     *
+     * @param key        Key of the logout token.
+     * @param expiryTime Time in milliseconds after which the logout token can not be accepted.
+     * @return True if the logout token is remembered.
+     */
+    public boolean add(String key, long expiryTime) {
+
+        long currentTime = System.currentTimeMillis();
+        expire(currentTime);
+        long entryExpiryTime = Math.min(expiryTime, currentTime + maxTimeToLive);
+        if (entryExpiryTime <= currentTime || expiryTimes.size() >= maxEntries) {
+            return false;
+        }
+        expiryTimes.put(key, entryExpiryTime);
+        // A key scheduled more than once is removed by the first bucket drained after its expiry.
+        schedule(key, entryExpiryTime);
+        return true;
+    }
+
+    /**
+     * Get the number of remembered logout tokens, including the expired ones that are not removed yet.
+     *
+     * @return Number of entries.
+     */
+    public int size() {
+
+        return expiryTimes.size();
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear() {
+
+        expiryTimes.clear();
+        for (Queue<String> bucket : wheel) {
+            bucket.clear();
+        }
+    }
+
+    private void schedule(String key, long expiryTime) {
+
+        // Rounded up, so that the bucket of a tick only holds the keys expired by the end of the tick.
+        long tick = (expiryTime + tickMillis - 1) / tickMillis;
+        wheel[(int) (tick % wheel.length)].offer(key);
+    }
+
+    private void expire(long currentTime) {
+
+        long currentTick = currentTime / tickMillis;
+        long lastSweptTick = sweptTick.get();
+        if (currentTick <= lastSweptTick || !sweptTick.compareAndSet(lastSweptTick, currentTick)) {
+            // Not due, or being advanced by another thread.
+            return;
+        }
+        long ticks = Math.min(currentTick - lastSweptTick, wheel.length);
+        for (long tick = currentTick - ticks + 1; tick <= currentTick; tick++) {
+            Queue<String> bucket = wheel[(int) (tick % wheel.length)];
+            for (int i = bucket.size(); i > 0; i--) {
+                String key = bucket.poll();
+                if (key == null) {
+                    break;
+                }
+                Long expiryTime = expiryTimes.get(key);
+                if (expiryTime == null) {
+                    continue;
+                }
+                if (expiryTime <= currentTime) {
+                    expiryTimes.remove(key, expiryTime);
+                } else {
+                    // Scheduled a full rotation ahead, or added again with a later expiry.
+                    schedule(key, expiryTime);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.wso2.carbon.identity.application.authenticator.oidc.util.HashUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Federated session index kept in direct buffers outside the Java heap, for nodes with millions of federated
+ * sessions.
+ * The index is an open addressing hash table with linear probing, split into segments that are locked independently
+ * by the writers. Readers do not lock unless a write to the same segment overlaps the read. Keys are stored as a 128
+ * bit hash of the IdP name and the sid, hence the size of a slot is fixed and the memory used by the index is fixed
+ * when it is created. Session ids longer than {@link #MAX_SESSION_ID_LENGTH} bytes are not indexed. The index can not
+ * look up the sids of a session, hence the entries of the sessions terminated through other paths, including the
+ * entries restored from a checkpoint, stay until they expire or until a logout finds that their session no longer
+ * exists and removes them. A hit must therefore be checked against the session store before it is trusted.
+ */
+public class OffHeapFederatedSessionIndex implements FederatedSessionIndex {
+
+    static final int SLOT_SIZE = 96;
+    static final int MAX_SESSION_ID_LENGTH = 71;
+
+    private static final int SEGMENT_COUNT = 64;
+    private static final int KEY_HASH_HIGH_OFFSET = 0;
+    private static final int KEY_HASH_LOW_OFFSET = 8;
+    private static final int EXPIRY_TIME_OFFSET = 16;
+    private static final int SESSION_ID_LENGTH_OFFSET = 24;
+    private static final int SESSION_ID_OFFSET = 25;
+    // The expiry time of a slot also holds its state. Empty slots end a probe, removed slots do not.
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final long KEY_HASH_HIGH_SEED = 0x5bd1e995L;
+    private static final long KEY_HASH_LOW_SEED = 0x27d4eb2fL;
+    private static final char KEY_SEPARATOR = '\n';
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final long timeToLive;
+    private volatile ChangeListener changeListener;
+
+    /**
+     * Create an off-heap federated session index.
+     *
+     * @param timeToLive        Time in milliseconds an entry is kept in the index.
+     * @param memoryBudgetBytes Memory in bytes allocated for the index.
+     */
+    public OffHeapFederatedSessionIndex(long timeToLive, long memoryBudgetBytes) {
+
+        int slotsPerSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE / SLOT_SIZE,
+                memoryBudgetBytes / SLOT_SIZE / SEGMENT_COUNT));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public void put(String idpName, String sid, String sessionId) {
+
+        byte[] sessionIdBytes = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (sessionIdBytes.length > MAX_SESSION_ID_LENGTH) {
+            return;
+        }
+        String key = getKey(idpName, sid);
+        long keyHashHigh = HashUtil.hash(key, KEY_HASH_HIGH_SEED);
+        long keyHashLow = HashUtil.hash(key, KEY_HASH_LOW_SEED);
+        getSegment(keyHashHigh).put(keyHashHigh, keyHashLow, System.currentTimeMillis() + timeToLive,
+                sessionIdBytes, changeListener);
+    }
+
+    @Override
+    public String getSessionId(String idpName, String sid) {
+
+        String key = getKey(idpName, sid);
+        long keyHashHigh = HashUtil.hash(key, KEY_HASH_HIGH_SEED);
+        long keyHashLow = HashUtil.hash(key, KEY_HASH_LOW_SEED);
+        return getSegment(keyHashHigh).get(keyHashHigh, keyHashLow, System.currentTimeMillis());
+    }
+
+    @Override
+    public void remove(String idpName, String sid) {
+
+        String key = getKey(idpName, sid);
+        long keyHashHigh = HashUtil.hash(key, KEY_HASH_HIGH_SEED);
+        long keyHashLow = HashUtil.hash(key, KEY_HASH_LOW_SEED);
+        getSegment(keyHashHigh).remove(keyHashHigh, keyHashLow, changeListener);
+    }
+
+    @Override
+    public void removeSession(String sessionId) {
+
+        // The sids of a session can not be looked up without a full scan. The entries expire, or are removed by the
+        // logout which finds that their session no longer exists.
+    }
+
+    @Override
+    public void clear() {
+
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.liveCount;
+        }
+        return size;
+    }
+
+    /**
+     * Set the listener notified of the changes to the index, which is called with the lock of the changed segment
+     * held so that it observes the changes to a key in the order they are applied.
+     *
+     * @param changeListener Change listener.
+     */
+    void setChangeListener(ChangeListener changeListener) {
+
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Add an entry by its key hash, without notifying the change listener. Expired entries are ignored.
+     */
+    void putHashed(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId) {
+
+        if (expiryTime > System.currentTimeMillis() && sessionId.length <= MAX_SESSION_ID_LENGTH) {
+            getSegment(keyHashHigh).put(keyHashHigh, keyHashLow, expiryTime, sessionId, null);
+        }
+    }
+
+    /**
+     * Remove an entry by its key hash, without notifying the change listener.
+     */
+    void removeHashed(long keyHashHigh, long keyHashLow) {
+
+        getSegment(keyHashHigh).remove(keyHashHigh, keyHashLow, null);
+    }
+
+    /**
+     * Pass each live entry of the index to the consumer. Each segment is read under its read lock.
+     *
+     * @param consumer Entry consumer.
+     * @throws IOException If the consumer failed.
+     */
+    void forEachLiveEntry(EntryConsumer consumer) throws IOException {
+
+        long currentTime = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            segment.forEachLiveEntry(consumer, currentTime);
+        }
+    }
+
+    private Segment getSegment(long keyHashHigh) {
+
+        return segments[(int) (keyHashHigh >>> 58) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static String getKey(String idpName, String sid) {
+
+        return idpName + KEY_SEPARATOR + sid;
+    }
+
+    /**
+     * Segment of the index, holding a fixed number of slots in a direct buffer.
+     */
+    private static class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        private final ByteBuffer slots;
+        private final int capacity;
+        private final int maxUsedSlots;
+        // Number of slots that are not empty, including the removed and expired slots. Guarded by the write lock.
+        private int usedSlots;
+        private volatile int liveCount;
+
+        private Segment(int capacity) {
+
+            this.capacity = capacity;
+            this.maxUsedSlots = Math.max(1, (int) (capacity * MAX_LOAD_FACTOR));
+            this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        }
+
+        private String get(long keyHashHigh, long keyHashLow, long currentTime) {
+
+            long stamp = lock.tryOptimisticRead();
+            String sessionId = find(keyHashHigh, keyHashLow, currentTime);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    sessionId = find(keyHashHigh, keyHashLow, currentTime);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return sessionId;
+        }
+
+        private String find(long keyHashHigh, long keyHashLow, long currentTime) {
+
+            int home = homeSlot(keyHashLow);
+            for (int probe = 0; probe < capacity; probe++) {
+                int offset = ((home + probe) % capacity) * SLOT_SIZE;
+                long expiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+                if (expiryTime == EMPTY) {
+                    return null;
+                }
+                if (expiryTime != REMOVED && slots.getLong(offset + KEY_HASH_HIGH_OFFSET) == keyHashHigh &&
+                        slots.getLong(offset + KEY_HASH_LOW_OFFSET) == keyHashLow) {
+                    return expiryTime > currentTime ? readSessionId(offset) : null;
+                }
+            }
+            return null;
+        }
+
+        private void put(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId,
+                         ChangeListener changeListener) {
+
+            long stamp = lock.writeLock();
+            try {
+                long currentTime = System.currentTimeMillis();
+                int offset = findSlotForPut(keyHashHigh, keyHashLow, currentTime);
+                if (offset < 0 && usedSlots >= maxUsedSlots) {
+                    compact(currentTime);
+                    offset = findSlotForPut(keyHashHigh, keyHashLow, currentTime);
+                }
+                if (offset < 0) {
+                    // The segment is full of live entries. The session store is used for the sid instead.
+                    return;
+                }
+                writeSlot(offset, keyHashHigh, keyHashLow, expiryTime, sessionId);
+                if (changeListener != null) {
+                    changeListener.onPut(keyHashHigh, keyHashLow, expiryTime, sessionId);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Find the slot to write the key to, which is the slot of the key if it exists, or else the first free
+         * slot on its probe sequence. An empty slot is only used while the load factor is not exceeded.
+         *
+         * @return Offset of the slot, or -1 if there is no slot for the key.
+         */
+        private int findSlotForPut(long keyHashHigh, long keyHashLow, long currentTime) {
+
+            int home = homeSlot(keyHashLow);
+            int freeOffset = -1;
+            for (int probe = 0; probe < capacity; probe++) {
+                int offset = ((home + probe) % capacity) * SLOT_SIZE;
+                long expiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+                if (expiryTime == EMPTY) {
+                    if (freeOffset >= 0) {
+                        return freeOffset;
+                    }
+                    return usedSlots < maxUsedSlots ? offset : -1;
+                }
+                if (expiryTime != REMOVED && slots.getLong(offset + KEY_HASH_HIGH_OFFSET) == keyHashHigh &&
+                        slots.getLong(offset + KEY_HASH_LOW_OFFSET) == keyHashLow) {
+                    return offset;
+                }
+                if (freeOffset < 0 && (expiryTime == REMOVED || expiryTime <= currentTime)) {
+                    freeOffset = offset;
+                }
+            }
+            return freeOffset;
+        }
+
+        private void writeSlot(int offset, long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId) {
+
+            long previousExpiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+            if (previousExpiryTime == EMPTY) {
+                usedSlots++;
+            }
+            if (previousExpiryTime == EMPTY || previousExpiryTime == REMOVED) {
+                liveCount++;
+            }
+            slots.putLong(offset + KEY_HASH_HIGH_OFFSET, keyHashHigh);
+            slots.putLong(offset + KEY_HASH_LOW_OFFSET, keyHashLow);
+            slots.put(offset + SESSION_ID_LENGTH_OFFSET, (byte) sessionId.length);
+            for (int i = 0; i < sessionId.length; i++) {
+                slots.put(offset + SESSION_ID_OFFSET + i, sessionId[i]);
+            }
+            slots.putLong(offset + EXPIRY_TIME_OFFSET, expiryTime);
+        }
+
+        private void remove(long keyHashHigh, long keyHashLow, ChangeListener changeListener) {
+
+            long stamp = lock.writeLock();
+            try {
+                int home = homeSlot(keyHashLow);
+                for (int probe = 0; probe < capacity; probe++) {
+                    int offset = ((home + probe) % capacity) * SLOT_SIZE;
+                    long expiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+                    if (expiryTime == EMPTY) {
+                        return;
+                    }
+                    if (expiryTime != REMOVED && slots.getLong(offset + KEY_HASH_HIGH_OFFSET) == keyHashHigh &&
+                            slots.getLong(offset + KEY_HASH_LOW_OFFSET) == keyHashLow) {
+                        slots.putLong(offset + EXPIRY_TIME_OFFSET, REMOVED);
+                        liveCount--;
+                        if (changeListener != null) {
+                            changeListener.onRemove(keyHashHigh, keyHashLow);
+                        }
+                        return;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Drop the removed and expired slots by reinserting the live entries. Called with the write lock held.
+         */
+        private void compact(long currentTime) {
+
+            int liveSlotCount = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (slots.getLong(slot * SLOT_SIZE + EXPIRY_TIME_OFFSET) > currentTime) {
+                    liveSlotCount++;
+                }
+            }
+            // Only the live slots are copied, which the load factor keeps below the size of the segment.
+            ByteBuffer liveSlots = ByteBuffer.allocate(liveSlotCount * SLOT_SIZE);
+            liveSlotCount = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                int offset = slot * SLOT_SIZE;
+                long expiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+                if (expiryTime > currentTime) {
+                    for (int i = 0; i < SLOT_SIZE; i++) {
+                        liveSlots.put(liveSlotCount * SLOT_SIZE + i, slots.get(offset + i));
+                    }
+                    liveSlotCount++;
+                }
+            }
+            clearSlots();
+            for (int liveSlot = 0; liveSlot < liveSlotCount; liveSlot++) {
+                int liveOffset = liveSlot * SLOT_SIZE;
+                long keyHashLow = liveSlots.getLong(liveOffset + KEY_HASH_LOW_OFFSET);
+                int home = homeSlot(keyHashLow);
+                for (int probe = 0; probe < capacity; probe++) {
+                    int offset = ((home + probe) % capacity) * SLOT_SIZE;
+                    if (slots.getLong(offset + EXPIRY_TIME_OFFSET) == EMPTY) {
+                        for (int i = 0; i < SLOT_SIZE; i++) {
+                            slots.put(offset + i, liveSlots.get(liveOffset + i));
+                        }
+                        break;
+                    }
+                }
+            }
+            usedSlots = liveSlotCount;
+            liveCount = liveSlotCount;
+        }
+
+        private void clear() {
+
+            long stamp = lock.writeLock();
+            try {
+                clearSlots();
+                usedSlots = 0;
+                liveCount = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void clearSlots() {
+
+            for (int slot = 0; slot < capacity; slot++) {
+                slots.putLong(slot * SLOT_SIZE + EXPIRY_TIME_OFFSET, EMPTY);
+            }
+        }
+
+        private void forEachLiveEntry(EntryConsumer consumer, long currentTime) throws IOException {
+
+            long stamp = lock.readLock();
+            try {
+                for (int slot = 0; slot < capacity; slot++) {
+                    int offset = slot * SLOT_SIZE;
+                    long expiryTime = slots.getLong(offset + EXPIRY_TIME_OFFSET);
+                    if (expiryTime > currentTime) {
+                        consumer.accept(slots.getLong(offset + KEY_HASH_HIGH_OFFSET),
+                                slots.getLong(offset + KEY_HASH_LOW_OFFSET), expiryTime, readSessionIdBytes(offset));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private String readSessionId(int offset) {
+
+            return new String(readSessionIdBytes(offset), StandardCharsets.UTF_8);
+        }
+
+        private byte[] readSessionIdBytes(int offset) {
+
+            int length = Math.min(slots.get(offset + SESSION_ID_LENGTH_OFFSET) & 0xff, MAX_SESSION_ID_LENGTH);
+            byte[] sessionId = new byte[length];
+            for (int i = 0; i < length; i++) {
+                sessionId[i] = slots.get(offset + SESSION_ID_OFFSET + i);
+            }
+            return sessionId;
+        }
+
+        private int homeSlot(long keyHashLow) {
+
+            return (int) Math.floorMod(keyHashLow, (long) capacity);
+        }
+    }
+
+    /**
+     * Listener of the changes to the index.
+     */
+    interface ChangeListener {
+
+        void onPut(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId);
+
+        void onRemove(long keyHashHigh, long keyHashLow);
+    }
+
+    /**
+     * Consumer of the entries of the index.
+     */
+    interface EntryConsumer {
+
+        void accept(long keyHashHigh, long keyHashLow, long expiryTime, byte[] sessionId) throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception;
+
+/**
+ * Client error of a logout request which is expected, such as an invalid logout token.
+ * The stack trace is not filled in, as it is of no use for an expected error and costs more than the rest of the
+ * rejection. The instances are not shared between requests, as the exception hierarchy does not allow disabling
+ * suppression and a shared instance would collect the exceptions suppressed by every request.
+ */
+public class StacklessLogoutClientException extends LogoutClientException {
+
+    public StacklessLogoutClientException(String errorCode, String message) {
+
+        super(errorCode, message);
+    }
+
+    public StacklessLogoutClientException(String errorCode, String message, Throwable cause) {
+
+        super(errorCode, message, cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+
+        return this;
+    }
+}
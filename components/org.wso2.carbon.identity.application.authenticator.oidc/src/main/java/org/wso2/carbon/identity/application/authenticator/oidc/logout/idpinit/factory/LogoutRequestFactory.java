@@ -21,14 +21,11 @@ package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.f
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.HttpIdentityRequestFactory;
-
-import java.util.regex.Matcher;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.LogoutEndpointMatcher;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN;
-
 /**
  * Checks whether requests from the Identity servlet are OIDC Logout Requests and
  * provides a builder to an instance of OIDC LogoutRequest.
@@ -40,9 +37,7 @@ public class LogoutRequestFactory extends HttpIdentityRequestFactory {
     @Override
     public boolean canHandle(HttpServletRequest request, HttpServletResponse response) {
 
-        Matcher registerMatcher =
-                OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN.matcher(request.getRequestURI());
-        if (registerMatcher.matches()) {
+        if (LogoutEndpointMatcher.isLogoutEndpoint(request.getRequestURI())) {
             if (log.isDebugEnabled()) {
                 log.debug("OIDC Federated IDP Initiated LogoutRequestFactory can handle this request.");
             }
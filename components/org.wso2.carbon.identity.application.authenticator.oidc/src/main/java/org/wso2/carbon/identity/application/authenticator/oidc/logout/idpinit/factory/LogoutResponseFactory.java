@@ -19,6 +19,7 @@
 package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.factory;
 
 import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.exception.FrameworkException;
@@ -26,11 +27,18 @@ import org.wso2.carbon.identity.application.authentication.framework.inbound.Htt
 import org.wso2.carbon.identity.application.authentication.framework.inbound.HttpIdentityResponseFactory;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityResponse;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutClientException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutResponse;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SampledErrorLogger;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -45,6 +53,24 @@ public class LogoutResponseFactory extends HttpIdentityResponseFactory {
 
     private static final Log log = LogFactory.getLog(LogoutResponseFactory.class);
 
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String CLIENT_ERROR_MESSAGE = "Invalid request.";
+    private static final Map<String, ErrorMessages> ERRORS_BY_CODE = new HashMap<>();
+    // Client error bodies up to the trace id, so that a rejection only appends the trace id.
+    private static final Map<ErrorMessages, String> CLIENT_ERROR_BODY_PREFIXES = new EnumMap<>(ErrorMessages.class);
+
+    static {
+        for (ErrorMessages error : ErrorMessages.values()) {
+            ERRORS_BY_CODE.put(error.getCode(), error);
+            JSONObject responseBody = new JSONObject();
+            responseBody.appendField("message", CLIENT_ERROR_MESSAGE);
+            responseBody.appendField("code", HttpServletResponse.SC_BAD_REQUEST);
+            responseBody.appendField("description", error.getMessage());
+            String body = responseBody.toJSONString();
+            CLIENT_ERROR_BODY_PREFIXES.put(error, body.substring(0, body.length() - 1) + ",\"traceId\":");
+        }
+    }
+
     @Override
     public boolean canHandle(IdentityResponse identityResponse) {
 
@@ -70,13 +96,18 @@ public class LogoutResponseFactory extends HttpIdentityResponseFactory {
     @Override
     public void create(HttpIdentityResponse.HttpIdentityResponseBuilder builder, IdentityResponse identityResponse) {
 
-        builder.setStatusCode(((LogoutResponse) identityResponse).getStatusCode());
+        LogoutResponse logoutResponse = (LogoutResponse) identityResponse;
+        builder.setStatusCode(logoutResponse.getStatusCode());
         builder.addHeader(OAuthConstants.HTTP_RESP_HEADER_CACHE_CONTROL,
                 OAuthConstants.HTTP_RESP_HEADER_VAL_CACHE_CONTROL_NO_STORE);
         builder.addHeader(OAuthConstants.HTTP_RESP_HEADER_PRAGMA,
                 OAuthConstants.HTTP_RESP_HEADER_VAL_PRAGMA_NO_CACHE);
-        builder.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN);
-        builder.setBody(((LogoutResponse) identityResponse).getMessage());
+        builder.addHeader(HttpHeaders.CONTENT_TYPE, logoutResponse.getContentType() != null ?
+                logoutResponse.getContentType() : MediaType.TEXT_PLAIN);
+        if (logoutResponse.getRetryAfter() > 0) {
+            builder.addHeader(RETRY_AFTER_HEADER, String.valueOf(logoutResponse.getRetryAfter()));
+        }
+        builder.setBody(logoutResponse.getMessage());
     }
 
     @Override
@@ -88,16 +119,37 @@ public class LogoutResponseFactory extends HttpIdentityResponseFactory {
                 log.debug("Client error when handling the request: " + frameworkException.getMessage(),
                         frameworkException);
             }
-            builder = buildResponse("Invalid request.", HttpServletResponse.SC_BAD_REQUEST,
-                    frameworkException.getMessage());
+            builder = buildClientErrorResponse(frameworkException);
         } else {
-            log.error(LOGOUT_SERVER_EXCEPTION.getMessage(), frameworkException);
+            logError(frameworkException.getErrorCode() != null ? frameworkException.getErrorCode() :
+                    LOGOUT_SERVER_EXCEPTION.getCode(), LOGOUT_SERVER_EXCEPTION.getMessage(), frameworkException);
             builder = buildResponse("Internal server error.",
                     HttpServletResponse.SC_INTERNAL_SERVER_ERROR, LOGOUT_SERVER_EXCEPTION.getMessage());
         }
         return builder;
     }
 
+    /**
+     * Build the response of a client error. The pre-serialized body of the error code is used if the exception
+     * carries the message of the error code.
+     *
+     * @param exception Client error.
+     * @return HttpIdentityResponse.HttpIdentityResponseBuilder.
+     */
+    private HttpIdentityResponse.HttpIdentityResponseBuilder buildClientErrorResponse(FrameworkException exception) {
+
+        ErrorMessages error = exception.getErrorCode() != null ? ERRORS_BY_CODE.get(exception.getErrorCode()) : null;
+        if (error == null || !error.getMessage().equals(exception.getMessage())) {
+            return buildResponse(CLIENT_ERROR_MESSAGE, HttpServletResponse.SC_BAD_REQUEST, exception.getMessage());
+        }
+        HttpIdentityResponse.HttpIdentityResponseBuilder builder =
+                new HttpIdentityResponse.HttpIdentityResponseBuilder();
+        builder.setBody(CLIENT_ERROR_BODY_PREFIXES.get(error) +
+                JSONValue.toJSONString(FrameworkUtils.getCorrelation()) + '}');
+        addErrorResponseHeaders(builder);
+        return builder;
+    }
+
     /**
      * Build Identity response based on the error message and code.
      *
@@ -116,11 +168,27 @@ public class LogoutResponseFactory extends HttpIdentityResponseFactory {
         responseBody.appendField("description", description);
         responseBody.appendField("traceId", FrameworkUtils.getCorrelation());
         builder.setBody(responseBody.toJSONString());
+        addErrorResponseHeaders(builder);
+        return builder;
+    }
+
+    private void addErrorResponseHeaders(HttpIdentityResponse.HttpIdentityResponseBuilder builder) {
+
         builder.addHeader(OAuthConstants.HTTP_RESP_HEADER_CACHE_CONTROL,
                 OAuthConstants.HTTP_RESP_HEADER_VAL_CACHE_CONTROL_NO_STORE);
         builder.addHeader(OAuthConstants.HTTP_RESP_HEADER_PRAGMA,
                 OAuthConstants.HTTP_RESP_HEADER_VAL_PRAGMA_NO_CACHE);
         builder.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-        return builder;
+    }
+
+    private void logError(String errorCode, String message, Throwable e) {
+
+        SampledErrorLogger sampledErrorLogger = OpenIDConnectAuthenticatorDataHolder.getInstance()
+                .getSampledErrorLogger();
+        if (sampledErrorLogger != null) {
+            sampledErrorLogger.error(log, errorCode, message, e);
+        } else {
+            log.error(message, e);
+        }
     }
 }
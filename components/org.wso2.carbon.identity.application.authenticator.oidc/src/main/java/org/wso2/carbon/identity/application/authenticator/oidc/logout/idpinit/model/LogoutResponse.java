@@ -27,12 +27,16 @@ public class LogoutResponse extends IdentityResponse {
 
     protected int statusCode;
     protected String message;
+    protected String contentType;
+    protected long retryAfter;
 
     protected LogoutResponse(LogoutResponseBuilder builder) {
 
         super(builder);
         this.statusCode = builder.statusCode;
         this.message = builder.message;
+        this.contentType = builder.contentType;
+        this.retryAfter = builder.retryAfter;
     }
 
     /**
@@ -55,6 +59,26 @@ public class LogoutResponse extends IdentityResponse {
         return message;
     }
 
+    /**
+     * Retrieve content type of the message.
+     *
+     * @return Content type or null if the message is plain text.
+     */
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    /**
+     * Retrieve the time the client should wait before retrying.
+     *
+     * @return Time in seconds, or 0 if the client need not wait.
+     */
+    public long getRetryAfter() {
+
+        return retryAfter;
+    }
+
     /**
      * OIDC logout response builder.
      */
@@ -62,6 +86,8 @@ public class LogoutResponse extends IdentityResponse {
 
         protected int statusCode;
         protected String message;
+        protected String contentType;
+        protected long retryAfter;
 
         public LogoutResponseBuilder(int statusCode, String message) {
 
@@ -69,6 +95,23 @@ public class LogoutResponse extends IdentityResponse {
             this.message = message;
         }
 
+        public int getStatusCode() {
+
+            return statusCode;
+        }
+
+        public LogoutResponseBuilder setContentType(String contentType) {
+
+            this.contentType = contentType;
+            return this;
+        }
+
+        public LogoutResponseBuilder setRetryAfter(long retryAfter) {
+
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
         @Override
         public LogoutResponse build() {
 
@@ -21,6 +21,7 @@ package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.p
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -40,13 +41,29 @@ import org.wso2.carbon.identity.application.authentication.framework.inbound.Ide
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityRequest;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityResponse;
 import org.wso2.carbon.identity.application.authentication.framework.model.FederatedUserSession;
+import org.wso2.carbon.identity.application.authentication.framework.model.UserSession;
 import org.wso2.carbon.identity.application.authentication.framework.store.UserSessionStore;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants;
 import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSidFilter;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedUserIdCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache.ResolvedIdP;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.LogoutTokenReplayCache;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutClientException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutServerException;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.StacklessLogoutClientException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutResponse;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.Bulkhead;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.LogoutEndpointMatcher;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCAuthenticatorConfigUtil;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ParallelTaskExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SampledErrorLogger;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SingleFlight;
 import org.wso2.carbon.identity.application.common.model.FederatedAuthenticatorConfig;
 import org.wso2.carbon.identity.application.common.model.IdentityProvider;
 import org.wso2.carbon.identity.application.common.model.Property;
@@ -58,17 +75,28 @@ import org.wso2.carbon.identity.oauth2.util.JWTSignatureValidationUtils;
 import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
 import org.wso2.carbon.idp.mgt.IdentityProviderManager;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
 
 import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.AUTHENTICATOR_NAME;
 import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_IAT_VALIDITY_PERIOD;
-import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN;
 import static org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages;
 
 /**
@@ -78,12 +106,41 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
 
     private static final Log log = LogFactory.getLog(FederatedIdpInitLogoutProcessor.class);
 
+    private static final String LOGOUT_TOKEN_HASH_ALGORITHM = "SHA-256";
+
     @Override
     public IdentityResponse.IdentityResponseBuilder process(IdentityRequest identityRequest) throws FrameworkException {
 
         if (log.isDebugEnabled()) {
             log.debug("Started processing OIDC federated IDP initiated logout request.");
         }
+        Bulkhead logoutBulkhead = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutBulkhead();
+        if (logoutBulkhead == null) {
+            return processLogoutRequest(identityRequest);
+        }
+        // Shed the requests beyond the concurrency limit instead of queueing them on the container threads.
+        if (!logoutBulkhead.tryAcquire()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Rejecting the logout request as " + logoutBulkhead.getActiveCount() +
+                        " logout requests are in progress.");
+            }
+            return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ErrorMessages.LOGOUT_CONCURRENCY_LIMIT_EXCEEDED.getMessage())
+                    .setRetryAfter(OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_CONCURRENCY_LIMIT_RETRY_AFTER);
+        }
+        try {
+            return processLogoutRequest(identityRequest);
+        } finally {
+            logoutBulkhead.release();
+        }
+    }
+
+    private IdentityResponse.IdentityResponseBuilder processLogoutRequest(IdentityRequest identityRequest)
+            throws FrameworkException {
+
+        if (LogoutEndpointMatcher.isBatchLogoutEndpoint(identityRequest.getRequestURI())) {
+            return handleOIDCFederatedBatchLogoutRequest(identityRequest);
+        }
         return handleOIDCFederatedLogoutRequest(identityRequest);
     }
 
@@ -104,58 +161,528 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
                 throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_EMPTY_OR_NULL);
             }
 
+            Map<String, String> authenticatorParams = getAuthenticatorConfig().getParameterMap();
+            // Reject oversized tokens before spending any effort on them.
+            if (logoutToken.length() > OIDCAuthenticatorConfigUtil.getIntParameter(authenticatorParams,
+                    OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_TOKEN_MAX_LENGTH,
+                    OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_LOGOUT_TOKEN_MAX_LENGTH)) {
+                throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_SIZE_LIMIT_EXCEEDED);
+            }
+
             if (log.isDebugEnabled()) {
                 log.debug("Handling the OIDC federated IdP Initiated logout request for the obtained logout token: " +
                         logoutToken);
             }
-            // Get the claim set from the logout token.
+            // Parse the logout token and get the claim set only once.
             SignedJWT signedJWT = SignedJWT.parse(logoutToken);
             JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
-            // Check for the iss value in claim set.
-            validateIssuerClaim(claimsSet);
-            // Get the identity provider for the issuer of the logout token.
             String tenantDomain = logoutRequest.getTenantDomain();
-            IdentityProvider identityProvider = getIdentityProvider(claimsSet.getIssuer(), tenantDomain);
+            // Throttle the unverified issuers before any I/O or crypto is spent on the logout token.
+            long retryAfterMillis = acquireUnverifiedRateLimitPermit(tenantDomain, claimsSet.getIssuer());
+            if (retryAfterMillis > 0) {
+                return buildRateLimitedResponse(retryAfterMillis);
+            }
+            // Acknowledge a redelivered logout token without processing it again.
+            LogoutTokenReplayCache logoutTokenReplayCache =
+                    OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutTokenReplayCache();
+            String replayKey = logoutTokenReplayCache != null ? getReplayKey(logoutToken, claimsSet) : null;
+            if (replayKey != null && logoutTokenReplayCache.contains(replayKey)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Logout token from the issuer: " + claimsSet.getIssuer() + " was already processed.");
+                }
+                return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_OK,
+                        OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+            }
+            // Validate the claims which do not need any I/O or crypto first.
+            validateLogoutTokenClaims(claimsSet, authenticatorParams);
+            // Get the identity provider for the issuer of the logout token.
+            ResolvedIdP resolvedIdP = resolveIdentityProvider(claimsSet.getIssuer(), tenantDomain);
+
+            validateLogoutToken(signedJWT, claimsSet, resolvedIdP);
+            // Throttle the issuer once the logout token is known to be issued by it.
+            retryAfterMillis = acquireRateLimitPermit(tenantDomain, claimsSet.getIssuer());
+            if (retryAfterMillis > 0) {
+                return buildRateLimitedResponse(retryAfterMillis);
+            }
+
+            LogoutResponse.LogoutResponseBuilder logoutResponseBuilder = logout(tenantDomain, claimsSet, resolvedIdP);
+            // Only remember a completed logout, so that a logout the federated IdP is asked to retry is processed.
+            if (replayKey != null && logoutResponseBuilder.getStatusCode() == HttpServletResponse.SC_OK) {
+                logoutTokenReplayCache.add(replayKey, getReplayExpiryTime(claimsSet, authenticatorParams));
+            }
+            return logoutResponseBuilder;
+
+        } catch (ParseException e) {
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_PARSING_FAILURE, e);
+        }
+    }
+
+    /**
+     * Terminate the sessions of a validated logout token, using the sid claim if present, or else the sub claim.
+     *
+     * @param tenantDomain Tenant domain of the logout request.
+     * @param claimsSet    Claim set of the logout token.
+     * @param resolvedIdP  Identity provider which issued the logout token.
+     * @return LogoutResponse.LogoutResponseBuilder.
+     * @throws LogoutServerException If the sessions could not be terminated.
+     */
+    private LogoutResponse.LogoutResponseBuilder logout(String tenantDomain, JWTClaimsSet claimsSet,
+                                                        ResolvedIdP resolvedIdP) throws LogoutServerException {
+
+        String idpName = resolvedIdP.getIdentityProvider().getIdentityProviderName();
+        if (isSidClaimExists(claimsSet)) {
+            String sid = (String) claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.SID);
+            String coalescingKey = "sid\n" + idpName + '\n' + sid;
+            // Find the the local session corresponding to sid and terminate it.
+            return coalesce(coalescingKey, () -> logoutUsingSid(tenantDomain, sid, idpName));
+        }
+
+        String subClaim = claimsSet.getSubject();
+        if (log.isDebugEnabled()) {
+            log.debug("No 'sid' claim present in the logout token of the federated idp initiated logout request" +
+                    ". Using sub claim to terminate the sessions for user: " + subClaim +
+                    " tenant domain: " + tenantDomain);
+        }
+
+        String coalescingKey = "sub\n" + tenantDomain + '\n' + idpName + '\n' + subClaim;
+        return coalesce(coalescingKey, () -> logoutUsingSub(tenantDomain, subClaim, resolvedIdP));
+    }
+
+    /**
+     * Execute the session termination, sharing the termination in progress for the same subject or sid when logout
+     * coalescing is enabled. The callers sharing a termination get the same outcome.
+     *
+     * @param key         Key identifying the subject or the sid.
+     * @param termination Session termination.
+     * @return LogoutResponse.LogoutResponseBuilder.
+     * @throws LogoutServerException If the sessions could not be terminated.
+     */
+    private LogoutResponse.LogoutResponseBuilder coalesce(
+            String key, SingleFlight.Operation<LogoutResponse.LogoutResponseBuilder, LogoutServerException> termination)
+            throws LogoutServerException {
+
+        SingleFlight<String, LogoutResponse> logoutSingleFlight =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutSingleFlight();
+        if (logoutSingleFlight == null) {
+            return termination.execute();
+        }
+        // The built response is shared, as a response builder is owned by the request it is returned to.
+        LogoutResponse logoutResponse = logoutSingleFlight.execute(key, () -> termination.execute().build());
+        return new LogoutResponse.LogoutResponseBuilder(logoutResponse.getStatusCode(), logoutResponse.getMessage());
+    }
+
+    /**
+     * Take a permit of the shared bucket of the tenant when the logout rate limit is enabled, unless the issuer is
+     * cached as a registered identity provider. The issuer is not verified at this point, hence the logout tokens of
+     * unknown issuers, and of the issuers not cached yet, are throttled together. They can neither take the permits
+     * of a registered issuer nor evict its bucket. Without the issuer cache, every logout token takes a permit of the
+     * shared bucket.
+     *
+     * @param tenantDomain Tenant domain of the logout request.
+     * @param issuer       Unverified issuer of the logout token.
+     * @return 0 if the logout token can be processed, or else the time in milliseconds until a permit is available.
+     */
+    private long acquireUnverifiedRateLimitPermit(String tenantDomain, String issuer) {
+
+        RateLimiter logoutRateLimiter = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutRateLimiter();
+        if (logoutRateLimiter == null) {
+            return 0;
+        }
+        IssuerIdPCache issuerIdPCache = OpenIDConnectAuthenticatorDataHolder.getInstance().getIssuerIdPCache();
+        if (issuerIdPCache != null && issuer != null) {
+            ResolvedIdP resolvedIdP = issuerIdPCache.getTenantCache(tenantDomain).get(issuer);
+            if (resolvedIdP != null && resolvedIdP.isResolved()) {
+                // Throttled by the bucket of the issuer once the logout token is validated.
+                return 0;
+            }
+        }
+        // The key of the shared bucket has no issuer, hence it is distinct from the key of any issuer.
+        long retryAfterMillis = logoutRateLimiter.tryAcquire(tenantDomain);
+        if (retryAfterMillis > 0 && log.isDebugEnabled()) {
+            log.debug("Logout request rate limit exceeded for the unverified issuers in tenant domain: " +
+                    tenantDomain);
+        }
+        return retryAfterMillis;
+    }
+
+    /**
+     * Take a permit of the issuer of a validated logout token when the logout rate limit is enabled. Only the issuers
+     * of logout tokens with a valid signature get a bucket, hence a client spoofing a registered issuer can not take
+     * its permits, and the number of issuer buckets is bounded by the registered identity providers.
+     *
+     * @param tenantDomain Tenant domain of the logout request.
+     * @param issuer       Verified issuer of the logout token.
+     * @return 0 if the logout token can be processed, or else the time in milliseconds until a permit is available.
+     */
+    private long acquireRateLimitPermit(String tenantDomain, String issuer) {
+
+        RateLimiter logoutRateLimiter = OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutRateLimiter();
+        if (logoutRateLimiter == null) {
+            return 0;
+        }
+        long retryAfterMillis = logoutRateLimiter.tryAcquire(tenantDomain + '\n' + issuer);
+        if (retryAfterMillis > 0 && log.isDebugEnabled()) {
+            log.debug("Logout request rate limit exceeded for the issuer: " + issuer + " in tenant domain: " +
+                    tenantDomain);
+        }
+        return retryAfterMillis;
+    }
+
+    private LogoutResponse.LogoutResponseBuilder buildRateLimitedResponse(long retryAfterMillis) {
+
+        return new LogoutResponse.LogoutResponseBuilder(
+                OIDCAuthenticatorConstants.BackchannelLogout.TOO_MANY_REQUESTS_STATUS_CODE,
+                ErrorMessages.LOGOUT_RATE_LIMIT_EXCEEDED.getMessage())
+                .setRetryAfter(getRetryAfterSeconds(retryAfterMillis));
+    }
 
-            validateLogoutToken(signedJWT, identityProvider);
+    private long getRetryAfterSeconds(long retryAfterMillis) {
 
-            if (isSidClaimExists(claimsSet)) {
-                // Find the the local session corresponding to sid and terminate it.
-                return logoutUsingSid((String) claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.SID));
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + TimeUnit.SECONDS.toMillis(1) - 1));
+    }
+
+    /**
+     * Get the key a logout token is remembered with in the replay cache. The jti claim identifies a logout token of
+     * an issuer. Logout tokens without a jti claim are identified by their hash.
+     *
+     * @param logoutToken Logout token.
+     * @param claimsSet   Claim set of the logout token.
+     * @return Key of the logout token.
+     */
+    private String getReplayKey(String logoutToken, JWTClaimsSet claimsSet) {
+
+        if (StringUtils.isNotBlank(claimsSet.getJWTID()) && StringUtils.isNotBlank(claimsSet.getIssuer())) {
+            return claimsSet.getIssuer() + '\n' + claimsSet.getJWTID();
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance(LOGOUT_TOKEN_HASH_ALGORITHM)
+                    .digest(logoutToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every JVM, hence the logout token is only not remembered if it is missing.
+            log.error("Error while computing the hash of the logout token.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the time until a processed logout token is remembered. A logout token can not be accepted after its iat
+     * validity period when the iat validation is enabled, hence it is not remembered longer.
+     *
+     * @param claimsSet           Claim set of the logout token.
+     * @param authenticatorParams OIDC authenticator parameters.
+     * @return Expiry time in milliseconds.
+     */
+    private long getReplayExpiryTime(JWTClaimsSet claimsSet, Map<String, String> authenticatorParams) {
+
+        long iatValidityPeriodInMillis = getIatValidityPeriod(authenticatorParams) * 1000;
+        long expiryTime = System.currentTimeMillis() + iatValidityPeriodInMillis;
+        if (Boolean.parseBoolean(authenticatorParams.get(
+                OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_IAT_VALIDATION)) &&
+                claimsSet.getIssueTime() != null) {
+            expiryTime = Math.min(expiryTime, claimsSet.getIssueTime().getTime() + iatValidityPeriodInMillis);
+        }
+        return expiryTime;
+    }
+
+    /**
+     * Handles a batch of logout tokens. The logout tokens are grouped by issuer, so that the identity provider of an
+     * issuer is resolved once, and validated in parallel. The sessions of the valid logout tokens are terminated once
+     * per session and once per user. The status of each logout token is returned in the order of the logout tokens.
+     *
+     * @param logoutRequest Logout request with a logout_token parameter per logout token.
+     * @return IdentityResponse.IdentityResponseBuilder.
+     * @throws LogoutClientException If batch logout is not enabled or the batch is not acceptable.
+     */
+    protected IdentityResponse.IdentityResponseBuilder handleOIDCFederatedBatchLogoutRequest(
+            IdentityRequest logoutRequest) throws LogoutException {
+
+        Map<String, String> authenticatorParams = getAuthenticatorConfig().getParameterMap();
+        if (!OIDCAuthenticatorConfigUtil.getBooleanParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_BATCH_LOGOUT, false)) {
+            throw handleLogoutClientException(ErrorMessages.BATCH_LOGOUT_NOT_ENABLED);
+        }
+        String[] logoutTokens = logoutRequest.getParameterMap().get(OIDCAuthenticatorConstants.LOGOUT_TOKEN);
+        if (logoutTokens == null || logoutTokens.length == 0) {
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_EMPTY_OR_NULL);
+        }
+        if (logoutTokens.length > OIDCAuthenticatorConfigUtil.getIntParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.BackchannelLogout.BATCH_LOGOUT_MAX_TOKENS,
+                OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_BATCH_LOGOUT_MAX_TOKENS)) {
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_COUNT_LIMIT_EXCEEDED);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Handling the OIDC federated IdP Initiated batch logout request with " + logoutTokens.length +
+                    " logout tokens.");
+        }
+        int maxTokenLength = OIDCAuthenticatorConfigUtil.getIntParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_TOKEN_MAX_LENGTH,
+                OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_LOGOUT_TOKEN_MAX_LENGTH);
+        String tenantDomain = logoutRequest.getTenantDomain();
+        LogoutTokenReplayCache logoutTokenReplayCache =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getLogoutTokenReplayCache();
+        List<BatchLogoutEntry> entries = new ArrayList<>(logoutTokens.length);
+        Map<String, List<BatchLogoutEntry>> entriesByIssuer = new LinkedHashMap<>();
+        // Validate the claims which do not need any I/O or crypto and group the logout tokens by issuer.
+        for (String logoutToken : logoutTokens) {
+            BatchLogoutEntry entry = new BatchLogoutEntry();
+            entries.add(entry);
+            try {
+                if (StringUtils.isBlank(logoutToken)) {
+                    throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_EMPTY_OR_NULL);
+                }
+                if (logoutToken.length() > maxTokenLength) {
+                    throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_SIZE_LIMIT_EXCEEDED);
+                }
+                entry.signedJWT = SignedJWT.parse(logoutToken);
+                entry.claimsSet = entry.signedJWT.getJWTClaimsSet();
+                entry.replayKey = logoutTokenReplayCache != null ? getReplayKey(logoutToken, entry.claimsSet) : null;
+                if (entry.replayKey != null && logoutTokenReplayCache.contains(entry.replayKey)) {
+                    // Acknowledge a redelivered logout token without processing it again.
+                    continue;
+                }
+                validateLogoutTokenClaims(entry.claimsSet, authenticatorParams);
+                entriesByIssuer.computeIfAbsent(entry.claimsSet.getIssuer(), issuer -> new ArrayList<>()).add(entry);
+            } catch (ParseException e) {
+                entry.error = handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_PARSING_FAILURE, e);
+            } catch (LogoutException e) {
+                entry.error = e;
             }
+        }
+
+        List<BatchLogoutEntry> resolvedEntries = new ArrayList<>(entries.size());
+        for (Map.Entry<String, List<BatchLogoutEntry>> issuerEntries : entriesByIssuer.entrySet()) {
+            // The identity provider of an issuer is resolved once, hence an unverified issuer takes a single permit.
+            long retryAfterMillis = acquireUnverifiedRateLimitPermit(tenantDomain, issuerEntries.getKey());
+            if (retryAfterMillis > 0) {
+                for (BatchLogoutEntry entry : issuerEntries.getValue()) {
+                    entry.retryAfterMillis = retryAfterMillis;
+                }
+                continue;
+            }
+            try {
+                ResolvedIdP resolvedIdP = resolveIdentityProvider(issuerEntries.getKey(), tenantDomain);
+                for (BatchLogoutEntry entry : issuerEntries.getValue()) {
+                    entry.resolvedIdP = resolvedIdP;
+                    resolvedEntries.add(entry);
+                }
+            } catch (LogoutServerException e) {
+                for (BatchLogoutEntry entry : issuerEntries.getValue()) {
+                    entry.error = e;
+                }
+            }
+        }
+        validateLogoutTokens(resolvedEntries, authenticatorParams);
+        List<BatchLogoutEntry> permittedEntries = new ArrayList<>(resolvedEntries.size());
+        for (BatchLogoutEntry entry : resolvedEntries) {
+            if (entry.error == null) {
+                // Throttle the issuer once the logout token is known to be issued by it.
+                entry.retryAfterMillis = acquireRateLimitPermit(tenantDomain, entry.claimsSet.getIssuer());
+                if (entry.retryAfterMillis > 0) {
+                    continue;
+                }
+            }
+            permittedEntries.add(entry);
+        }
+        terminateSessions(permittedEntries, tenantDomain);
+        // The sessions of a batch are terminated by the caller, hence a logout token without an error is completed.
+        if (logoutTokenReplayCache != null) {
+            for (BatchLogoutEntry entry : permittedEntries) {
+                if (entry.error == null && entry.replayKey != null) {
+                    logoutTokenReplayCache.add(entry.replayKey,
+                            getReplayExpiryTime(entry.claimsSet, authenticatorParams));
+                }
+            }
+        }
+
+        return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_OK,
+                buildBatchLogoutResponseBody(entries)).setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Validate the audience and the signature of the logout tokens of a batch, in parallel when batch logout is
+     * enabled. Logout tokens whose validation did not complete within the timeout are marked as failed.
+     *
+     * @param entries             Logout tokens with a resolved identity provider.
+     * @param authenticatorParams OIDC authenticator parameters.
+     */
+    private void validateLogoutTokens(List<BatchLogoutEntry> entries, Map<String, String> authenticatorParams) {
+
+        ParallelTaskExecutor batchLogoutExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getBatchLogoutExecutor();
+        if (batchLogoutExecutor == null || entries.size() < 2) {
+            for (BatchLogoutEntry entry : entries) {
+                entry.error = validateLogoutToken(entry);
+            }
+            return;
+        }
+        List<Callable<LogoutException>> tasks = new ArrayList<>(entries.size());
+        for (BatchLogoutEntry entry : entries) {
+            tasks.add(() -> validateLogoutToken(entry));
+        }
+        long timeout = OIDCAuthenticatorConfigUtil.getLongParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.BackchannelLogout.BATCH_LOGOUT_VALIDATION_TIMEOUT,
+                OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_BATCH_LOGOUT_VALIDATION_TIMEOUT);
+        try {
+            List<Future<LogoutException>> futures = batchLogoutExecutor.invokeAll(tasks, timeout);
+            for (int i = 0; i < entries.size(); i++) {
+                try {
+                    entries.get(i).error = futures.get(i).get();
+                } catch (CancellationException | ExecutionException e) {
+                    entries.get(i).error =
+                            handleLogoutServerException(ErrorMessages.LOGOUT_TOKEN_VALIDATION_INCOMPLETE, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (BatchLogoutEntry entry : entries) {
+                entry.error = handleLogoutServerException(ErrorMessages.LOGOUT_TOKEN_VALIDATION_INCOMPLETE, e);
+            }
+        }
+    }
+
+    private LogoutException validateLogoutToken(BatchLogoutEntry entry) {
+
+        try {
+            validateLogoutToken(entry.signedJWT, entry.claimsSet, entry.resolvedIdP);
+            return null;
+        } catch (LogoutException e) {
+            return e;
+        }
+    }
 
-            String subClaim = claimsSet.getSubject();
-            if (StringUtils.isBlank(subClaim)) {
-                throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_SUB_CLAIM_NOT_FOUND);
+    /**
+     * Terminate the sessions of the valid logout tokens of a batch. A session or a user referred by many logout
+     * tokens is terminated once. A session or a user whose termination failed only fails the logout tokens referring
+     * to it. The terminations are not shared with the concurrent logout requests, as the batch already terminates
+     * each session and user once, and terminating a session again only finds it removed.
+     *
+     * @param entries      Logout tokens of the batch.
+     * @param tenantDomain Tenant domain of the logout request.
+     */
+    private void terminateSessions(List<BatchLogoutEntry> entries, String tenantDomain) {
+
+        Map<String, List<BatchLogoutEntry>> entriesBySessionId = new LinkedHashMap<>();
+        Map<String, List<BatchLogoutEntry>> entriesByUserId = new LinkedHashMap<>();
+        for (BatchLogoutEntry entry : entries) {
+            if (entry.error != null) {
+                continue;
+            }
+            try {
+                if (isSidClaimExists(entry.claimsSet)) {
+                    String sessionId = getSessionIdFromSid(tenantDomain, entry.getSid(), entry.getIdPName());
+                    if (StringUtils.isNotBlank(sessionId)) {
+                        entriesBySessionId.computeIfAbsent(sessionId, key -> new ArrayList<>()).add(entry);
+                    }
+                } else {
+                    String userId = getUserId(tenantDomain, entry.claimsSet.getSubject(), entry.resolvedIdP);
+                    entriesByUserId.computeIfAbsent(userId, key -> new ArrayList<>()).add(entry);
+                }
+            } catch (LogoutServerException e) {
+                entry.error = e;
             }
+        }
 
+        ServerSessionManagementService serverSessionManagementService =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getServerSessionManagementService();
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        for (Map.Entry<String, List<BatchLogoutEntry>> sessionEntries : entriesBySessionId.entrySet()) {
+            try {
+                serverSessionManagementService.removeSession(sessionEntries.getKey());
+            } catch (RuntimeException e) {
+                // A session which could not be removed only fails the logout tokens referring to it.
+                LogoutServerException error = handleLogoutServerException(
+                        ErrorMessages.FEDERATED_SESSION_TERMINATION_FAILED, e, sessionEntries.getKey());
+                for (BatchLogoutEntry entry : sessionEntries.getValue()) {
+                    entry.error = error;
+                }
+                continue;
+            }
+            if (federatedSessionIndex != null) {
+                for (BatchLogoutEntry entry : sessionEntries.getValue()) {
+                    federatedSessionIndex.remove(entry.getIdPName(), entry.getSid());
+                }
+                federatedSessionIndex.removeSession(sessionEntries.getKey());
+            }
             if (log.isDebugEnabled()) {
-                log.debug("No 'sid' claim present in the logout token of the federated idp initiated logout request" +
-                        ". Using sub claim to terminate the sessions for user: " + subClaim +
-                        " tenant domain: " + tenantDomain);
+                log.debug("Session terminated for session Id: " + sessionEntries.getKey());
             }
+        }
 
-            return logoutUsingSub(tenantDomain, subClaim, identityProvider);
+        for (Map.Entry<String, List<BatchLogoutEntry>> userEntries : entriesByUserId.entrySet()) {
+            try {
+                terminateUserSessions(userEntries.getKey(), userEntries.getValue().get(0).claimsSet.getSubject());
+                if (log.isDebugEnabled()) {
+                    log.debug("Sessions terminated for user Id: " + userEntries.getKey());
+                }
+            } catch (LogoutServerException e) {
+                for (BatchLogoutEntry entry : userEntries.getValue()) {
+                    entry.error = e;
+                }
+            }
+        }
+    }
 
-        } catch (ParseException e) {
-            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_PARSING_FAILURE, e);
+    /**
+     * Build the body of the batch logout response with the status of each logout token, in the order of the logout
+     * tokens. Details of server errors are logged and not returned.
+     *
+     * @param entries Logout tokens of the batch.
+     * @return JSON body of the response.
+     */
+    private String buildBatchLogoutResponseBody(List<BatchLogoutEntry> entries) {
+
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < entries.size(); i++) {
+            BatchLogoutEntry entry = entries.get(i);
+            LogoutException error = entry.error;
+            JSONObject result = new JSONObject();
+            result.appendField("index", i);
+            if (entry.retryAfterMillis > 0) {
+                result.appendField("status",
+                        OIDCAuthenticatorConstants.BackchannelLogout.TOO_MANY_REQUESTS_STATUS_CODE);
+                result.appendField("code", ErrorMessages.LOGOUT_RATE_LIMIT_EXCEEDED.getCode());
+                result.appendField("description", ErrorMessages.LOGOUT_RATE_LIMIT_EXCEEDED.getMessage());
+                result.appendField("retryAfter", getRetryAfterSeconds(entry.retryAfterMillis));
+            } else if (error == null) {
+                result.appendField("status", HttpServletResponse.SC_OK);
+            } else if (error instanceof LogoutClientException) {
+                result.appendField("status", HttpServletResponse.SC_BAD_REQUEST);
+                result.appendField("code", error.getErrorCode());
+                result.appendField("description", error.getMessage());
+            } else {
+                logError(error.getErrorCode() != null ? error.getErrorCode() :
+                        ErrorMessages.LOGOUT_SERVER_EXCEPTION.getCode(),
+                        ErrorMessages.LOGOUT_SERVER_EXCEPTION.getMessage(), error);
+                result.appendField("status", HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                result.appendField("code", error.getErrorCode());
+                result.appendField("description", ErrorMessages.LOGOUT_SERVER_EXCEPTION.getMessage());
+            }
+            results.add(result);
         }
+        JSONObject responseBody = new JSONObject();
+        responseBody.appendField("results", results);
+        responseBody.appendField("traceId", FrameworkUtils.getCorrelation());
+        return responseBody.toJSONString();
     }
 
     /**
      * Terminate the session related to the sid value of the logout token.
      *
-     * @param sid - sid claim included in the logout token.
+     * @param tenantDomain - tenant domain of the logout request.
+     * @param sid          - sid claim included in the logout token.
+     * @param idpName      - name of the identity provider which issued the logout token.
      * @return
      * @throws LogoutServerException
      */
-    private LogoutResponse.LogoutResponseBuilder logoutUsingSid(String sid)
+    private LogoutResponse.LogoutResponseBuilder logoutUsingSid(String tenantDomain, String sid, String idpName)
             throws LogoutServerException {
 
         if (log.isDebugEnabled()) {
             log.debug(String.format("Trying federated IdP initiated logout using sid: %s.", sid));
         }
-        String sessionId = getSessionIdFromSid(sid);
+        String sessionId = getSessionIdFromSid(tenantDomain, sid, idpName);
         if (StringUtils.isBlank(sessionId)) {
             return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_OK, StringUtils.EMPTY);
         }
@@ -163,6 +690,12 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
         ServerSessionManagementService serverSessionManagementService =
                 OpenIDConnectAuthenticatorDataHolder.getInstance().getServerSessionManagementService();
         serverSessionManagementService.removeSession(sessionId);
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        if (federatedSessionIndex != null) {
+            federatedSessionIndex.remove(idpName, sid);
+            federatedSessionIndex.removeSession(sessionId);
+        }
         if (log.isDebugEnabled()) {
             log.debug("Session terminated for session Id: " + sessionId);
         }
@@ -171,11 +704,55 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
                 OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
     }
 
-    private String getSessionIdFromSid(String sid) throws LogoutServerException {
+    /**
+     * Get the local session of the sid, from the federated session index or else from the session store.
+     * A session found in the index may have ended without the index observing it, for instance on another node of a
+     * cluster, while a later login through the same IdP session mapped the sid to a new session in the session store.
+     * Hence an indexed session which no longer exists is dropped from the index and the session store is consulted.
+     *
+     * @param tenantDomain Tenant domain of the logout request.
+     * @param sid          Sid claim included in the logout token.
+     * @param idpName      Name of the identity provider which issued the logout token.
+     * @return Id of the local session, or null if there is no session of the sid.
+     * @throws LogoutServerException If the session of the sid could not be retrieved.
+     */
+    private String getSessionIdFromSid(String tenantDomain, String sid, String idpName)
+            throws LogoutServerException {
 
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        if (federatedSessionIndex != null) {
+            String sessionId = federatedSessionIndex.getSessionId(idpName, sid);
+            if (sessionId != null) {
+                if (FrameworkUtils.getSessionContextFromCache(sessionId, tenantDomain) != null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Session information found in the federated session index for " +
+                                "the sid: %s.", sid));
+                    }
+                    return sessionId;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("The session of the sid: %s in the federated session index no longer " +
+                            "exists. Looking up the session store.", sid));
+                }
+                federatedSessionIndex.remove(idpName, sid);
+            }
+        }
+        FederatedSidFilter federatedSidFilter =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSidFilter();
+        if (federatedSidFilter != null && !federatedSidFilter.mightContain(sid)) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("The sid: %s is not known to the federated sid filter. Skipping the session " +
+                        "lookup.", sid));
+            }
+            return null;
+        }
         try {
             UserSessionDAO userSessionDAO = new UserSessionDAOImpl();
             FederatedUserSession federatedUserSession = userSessionDAO.getFederatedAuthSessionDetails(sid);
+            if (federatedSidFilter != null) {
+                federatedSidFilter.recordLookup(federatedUserSession != null);
+            }
             if (federatedUserSession == null) {
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("No session information found for the sid: %s. ", sid) + "Probably the " +
@@ -196,59 +773,128 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
      * @throws SessionManagementException
      */
     private LogoutResponse.LogoutResponseBuilder logoutUsingSub(String tenantDomain, String sub,
-                                                                IdentityProvider identityProvider)
+                                                                ResolvedIdP resolvedIdP)
             throws LogoutServerException {
 
+        // Retrieve the federated user id from the IDN_AUTH_USER table.
+        String userId = getUserId(tenantDomain, sub, resolvedIdP);
+        if (log.isDebugEnabled()) {
+            log.debug("Trying OIDC federated identity provider initiated logout for the user: " + sub);
+        }
+
+        if (StringUtils.isBlank(userId)) {
+            return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    ErrorMessages.LOGOUT_SERVER_EXCEPTION.getMessage());
+        }
+        terminateUserSessions(userId, sub);
+        if (log.isDebugEnabled()) {
+            log.debug("Sessions terminated for user Id: " + userId);
+        }
+        return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_OK,
+                OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+    }
+
+    /**
+     * Terminate all the sessions of the user. When parallel session termination is enabled, the sessions are listed
+     * and terminated in parallel on a bounded executor, so that a user with many sessions is logged out within the
+     * timeout. Sessions not terminated within the timeout are reported as a failure, while the terminated sessions
+     * stay terminated.
+     *
+     * @param userId Id of the federated user.
+     * @param sub    sub claim in the logout token.
+     * @throws LogoutServerException If any of the sessions could not be terminated.
+     */
+    private void terminateUserSessions(String userId, String sub) throws LogoutServerException {
+
+        UserSessionManagementService userSessionManagementService =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getUserSessionManagementService();
+        ParallelTaskExecutor sessionTerminationExecutor =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getSessionTerminationExecutor();
         try {
-            // Retrieve the federated user id from the IDN_AUTH_USER table.
-            String userId = getUserId(tenantDomain, sub, identityProvider);
-            if (log.isDebugEnabled()) {
-                log.debug("Trying OIDC federated identity provider initiated logout for the user: " + sub);
+            if (sessionTerminationExecutor == null) {
+                userSessionManagementService.terminateSessionsByUserId(userId);
+                return;
             }
-
-            if (StringUtils.isBlank(userId)) {
-                return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                        ErrorMessages.LOGOUT_SERVER_EXCEPTION.getMessage());
+            List<UserSession> userSessions = userSessionManagementService.getSessionsByUserId(userId);
+            if (userSessions == null || userSessions.isEmpty()) {
+                return;
             }
-            UserSessionManagementService userSessionManagementService =
-                    OpenIDConnectAuthenticatorDataHolder.getInstance()
-                            .getUserSessionManagementService();
-            userSessionManagementService.terminateSessionsByUserId(userId);
-            if (log.isDebugEnabled()) {
-                log.debug("Sessions terminated for user Id: " + userId);
+            if (userSessions.size() == 1) {
+                userSessionManagementService.terminateSessionBySessionId(userId, userSessions.get(0).getSessionId());
+                return;
+            }
+            List<Callable<Boolean>> tasks = new ArrayList<>(userSessions.size());
+            for (UserSession userSession : userSessions) {
+                tasks.add(() -> userSessionManagementService.terminateSessionBySessionId(userId,
+                        userSession.getSessionId()));
+            }
+            long timeout = OIDCAuthenticatorConfigUtil.getLongParameter(getAuthenticatorConfig().getParameterMap(),
+                    OIDCAuthenticatorConstants.BackchannelLogout.PARALLEL_SESSION_TERMINATION_TIMEOUT,
+                    OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_PARALLEL_SESSION_TERMINATION_TIMEOUT);
+            List<Future<Boolean>> futures = sessionTerminationExecutor.invokeAll(tasks, timeout);
+            int failedCount = 0;
+            Throwable failure = null;
+            for (Future<Boolean> future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException | ExecutionException e) {
+                    failedCount++;
+                    if (failure == null) {
+                        failure = e instanceof ExecutionException ? e.getCause() : e;
+                    }
+                }
+            }
+            if (failedCount > 0) {
+                log.warn(failedCount + " of " + futures.size() + " sessions of the user Id: " + userId +
+                        " could not be terminated.");
+                throw handleLogoutServerException(ErrorMessages.USER_SESSION_TERMINATION_INCOMPLETE, failure, sub);
             }
-            return new LogoutResponse.LogoutResponseBuilder(HttpServletResponse.SC_OK,
-                    OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
         } catch (SessionManagementException e) {
             throw handleLogoutServerException(ErrorMessages.USER_SESSION_TERMINATION_FAILURE, e, sub);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw handleLogoutServerException(ErrorMessages.USER_SESSION_TERMINATION_INCOMPLETE, e, sub);
         }
     }
 
     /**
-     * Validate the JWT token signature and the mandatory claim according to the OIDC specification.
+     * Validate the claims of the logout token that can be validated without the identity provider, according to the
+     * OIDC back-channel logout specification. These checks are cheap, hence done before any I/O or crypto.
      *
-     * @param signedJWT
-     * @param identityProvider
-     * @return boolean value
-     * @throws LogoutClientException
-     * @throws LogoutServerException
+     * @param claimsSet           Claim set of the logout token.
+     * @param authenticatorParams OIDC authenticator parameters.
+     * @throws LogoutClientException If a claim is invalid.
+     */
+    private void validateLogoutTokenClaims(JWTClaimsSet claimsSet, Map<String, String> authenticatorParams)
+            throws LogoutClientException {
+
+        validateIssuerClaim(claimsSet);
+        if (!isSidClaimExists(claimsSet) && !isSubClaimExists(claimsSet)) {
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_SUB_CLAIM_NOT_FOUND);
+        }
+        validateIat(claimsSet.getIssueTime(), authenticatorParams);
+        Object events = claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.EVENTS);
+        validateEventClaim(events instanceof JSONObject ? (JSONObject) events : null);
+        validateNonce(claimsSet);
+    }
+
+    /**
+     * Validate the audience and the signature of the logout token against the identity provider.
+     *
+     * @param signedJWT   Logout token.
+     * @param claimsSet   Claim set of the logout token.
+     * @param resolvedIdP Identity provider which issued the logout token.
+     * @throws LogoutClientException If the logout token is not valid.
+     * @throws LogoutServerException If an error occurred while validating the signature.
      */
-    private void validateLogoutToken(SignedJWT signedJWT, IdentityProvider identityProvider)
+    private void validateLogoutToken(SignedJWT signedJWT, JWTClaimsSet claimsSet, ResolvedIdP resolvedIdP)
             throws LogoutClientException, LogoutServerException {
 
+        validateAudience(claimsSet.getAudience(), resolvedIdP.getClientId());
         try {
-            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
-
-            if (!JWTSignatureValidationUtils.validateSignature(signedJWT, identityProvider)) {
-                throw new LogoutClientException(ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getCode(),
-                        ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getMessage());
+            if (!JWTSignatureValidationUtils.validateSignature(signedJWT, resolvedIdP.getIdentityProvider())) {
+                throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED);
             }
-            validateAudience(claimsSet.getAudience(), identityProvider);
-            validateIat(claimsSet.getIssueTime());
-            validateEventClaim((JSONObject) claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.EVENTS));
-            validateNonce(claimsSet);
-        } catch (ParseException e) {
-            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_PARSING_FAILURE, e);
         } catch (JOSEException | IdentityOAuth2Exception e) {
             throw handleLogoutServerException(ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED, e);
         }
@@ -257,22 +903,34 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
     /**
      * Retrieve userId of the federated user.
      *
-     * @param tenantDomain     - tenant domain of the logout request.
-     * @param sub              - sub claim in the logout token.
-     * @param identityProvider - identity provider.
+     * @param tenantDomain - tenant domain of the logout request.
+     * @param sub          - sub claim in the logout token.
+     * @param resolvedIdP  - identity provider.
      * @return
      * @throws LogoutServerException
      */
-    private String getUserId(String tenantDomain, String sub, IdentityProvider identityProvider)
+    private String getUserId(String tenantDomain, String sub, ResolvedIdP resolvedIdP)
             throws LogoutServerException {
 
+        int idpId = resolvedIdP.getIdentityProviderId();
+        if (idpId < 0) {
+            throw handleLogoutServerException(ErrorMessages.RETRIEVING_USER_ID_FAILED, sub);
+        }
         try {
             int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
-            String userId = UserSessionStore.getInstance()
-                    .getFederatedUserId(sub, tenantId, Integer.parseInt(identityProvider.getId()));
+            FederatedUserIdCache federatedUserIdCache =
+                    OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedUserIdCache();
+            String userId = federatedUserIdCache != null ? federatedUserIdCache.getUserId(tenantId, idpId, sub) : null;
+            if (userId != null) {
+                return userId;
+            }
+            userId = UserSessionStore.getInstance().getFederatedUserId(sub, tenantId, idpId);
             if (StringUtils.isBlank(userId)) {
                 throw handleLogoutServerException(ErrorMessages.RETRIEVING_USER_ID_FAILED, sub);
             }
+            if (federatedUserIdCache != null) {
+                federatedUserIdCache.put(tenantId, idpId, sub, userId);
+            }
             return userId;
         } catch (UserSessionException e) {
             throw handleLogoutServerException(ErrorMessages.RETRIEVING_USER_ID_FAILED, e, sub);
@@ -288,57 +946,65 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
     private void validateIssuerClaim(JWTClaimsSet claimsSet) throws LogoutClientException {
 
         if (StringUtils.isBlank(claimsSet.getIssuer())) {
-            throw new LogoutClientException(ErrorMessages.LOGOUT_TOKEN_ISS_CLAIM_VALIDATION_FAILED.getCode(),
-                    ErrorMessages.LOGOUT_TOKEN_ISS_CLAIM_VALIDATION_FAILED.getMessage());
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_ISS_CLAIM_VALIDATION_FAILED);
         }
     }
 
     /**
      * Do the aud claim validation according to OIDC back-channel logout specification.
      *
-     * @param aud - list containing audience values.
-     * @param idp - identity provider.
-     * @return boolean if validation is successful.
+     * @param aud      - list containing audience values.
+     * @param clientId - client id of the identity provider.
+     * @throws LogoutClientException If the client id is not an audience of the logout token.
      */
-    private void validateAudience(List<String> aud, IdentityProvider idp) throws LogoutClientException {
+    private void validateAudience(List<String> aud, String clientId) throws LogoutClientException {
 
-        String clientId = null;
-        // Get the client id from the authenticator config.
-        for (Property property : idp.getDefaultAuthenticatorConfig().getProperties()) {
-            String propertyName = property.getName();
-            if (propertyName.equals(OIDCAuthenticatorConstants.IdPConfParams.CLIENT_ID)) {
-                clientId = property.getValue();
-                break;
-            }
-        }
         // Check whether the client id exist in the aud claim.
         if (StringUtils.isNotBlank(clientId)) {
-            if (!aud.contains(clientId)) {
-                throw new LogoutClientException(
-                        String.format(ErrorMessages.LOGOUT_TOKEN_AUD_CLAIM_VALIDATION_FAILED.getCode(), clientId),
-                        ErrorMessages.LOGOUT_TOKEN_AUD_CLAIM_VALIDATION_FAILED.getMessage());
+            if (aud == null || !aud.contains(clientId)) {
+                throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_AUD_CLAIM_VALIDATION_FAILED);
             }
         }
     }
 
+    /**
+     * Get the client id from the default authenticator config of the identity provider.
+     *
+     * @param idp - identity provider.
+     * @return Client id or null if not configured.
+     */
+    private String getClientId(IdentityProvider idp) {
+
+        FederatedAuthenticatorConfig authenticatorConfig = idp.getDefaultAuthenticatorConfig();
+        if (authenticatorConfig == null || authenticatorConfig.getProperties() == null) {
+            return null;
+        }
+        for (Property property : authenticatorConfig.getProperties()) {
+            if (OIDCAuthenticatorConstants.IdPConfParams.CLIENT_ID.equals(property.getName())) {
+                return property.getValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Do the iat claim validation according to OIDC back-channel logout specification
      * Read the authenticator configs to check whether the iat validation is enabled and if enabled the get the
      * validity period.
      *
-     * @param iat
-     * @return boolean if validation is successful.
-     * @throws LogoutClientException
+     * @param iat                 - issued at time of the logout token.
+     * @param authenticatorParams - parameters of the authenticator config.
+     * @throws LogoutClientException If the logout token is issued before the iat validity period.
      */
-    private void validateIat(Date iat) throws LogoutClientException {
+    private void validateIat(Date iat, Map<String, String> authenticatorParams) throws LogoutClientException {
 
         if (iat == null) {
             throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_IAT_VALIDATION_FAILED);
         }
-        if (Boolean.parseBoolean(getAuthenticatorConfig().getParameterMap()
-                .get(OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_IAT_VALIDATION))) {
+        if (Boolean.parseBoolean(authenticatorParams.get(
+                OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_IAT_VALIDATION))) {
             // iatValidityPeriod will be in seconds.
-            long iatValidityPeriod = getIatValidityPeriod();
+            long iatValidityPeriod = getIatValidityPeriod(authenticatorParams);
             long issuedAtTimeMillis = iat.getTime();
             long currentTimeInMillis = System.currentTimeMillis();
             long iatValidityPeriodInMillis = iatValidityPeriod * 1000;
@@ -362,26 +1028,13 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
      * Get iatValidityPeriod from configuration file.
      * Use default value if error occurs.
      *
+     * @param authenticatorParams OIDC authenticator parameters.
      * @return - iatValidityPeriod.
      */
-    private long getIatValidityPeriod() {
+    private long getIatValidityPeriod(Map<String, String> authenticatorParams) {
 
-        long iatValidityPeriod = 0;
-        if (StringUtils.isBlank(getAuthenticatorConfig().getParameterMap()
-                .get(OIDCAuthenticatorConstants.BackchannelLogout.IAT_VALIDITY_PERIOD))) {
-            iatValidityPeriod = DEFAULT_IAT_VALIDITY_PERIOD;
-        } else {
-            try {
-                iatValidityPeriod =
-                        Integer.parseInt(getAuthenticatorConfig().getParameterMap()
-                                .get(OIDCAuthenticatorConstants.BackchannelLogout.IAT_VALIDITY_PERIOD));
-            } catch (NumberFormatException e) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Invalid iatValidityPeriod is configured. Hence using default iatValidityPeriod value");
-                }
-            }
-        }
-        return iatValidityPeriod;
+        return OIDCAuthenticatorConfigUtil.getLongParameter(authenticatorParams,
+                OIDCAuthenticatorConstants.BackchannelLogout.IAT_VALIDITY_PERIOD, DEFAULT_IAT_VALIDITY_PERIOD);
     }
 
     /**
@@ -415,11 +1068,10 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
      */
     private void validateEventClaim(JSONObject event) throws LogoutClientException {
 
-        String eventClaimValue = event.getAsString(OIDCAuthenticatorConstants.Claim.BACKCHANNEL_LOGOUT_EVENT);
-        if (event == null ||
-                !StringUtils.equals(eventClaimValue, OIDCAuthenticatorConstants.Claim.BACKCHANNEL_LOGOUT_EVENT_CLAIM)) {
-            throw new LogoutClientException(ErrorMessages.LOGOUT_TOKEN_EVENT_CLAIM_VALIDATION_FAILED.getCode(),
-                    ErrorMessages.LOGOUT_TOKEN_EVENT_CLAIM_VALIDATION_FAILED.getMessage());
+        if (event == null || !StringUtils.equals(
+                event.getAsString(OIDCAuthenticatorConstants.Claim.BACKCHANNEL_LOGOUT_EVENT),
+                OIDCAuthenticatorConstants.Claim.BACKCHANNEL_LOGOUT_EVENT_CLAIM)) {
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_EVENT_CLAIM_VALIDATION_FAILED);
         }
     }
 
@@ -433,8 +1085,7 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
     private void validateNonce(JWTClaimsSet claimsSet) throws LogoutClientException {
 
         if (StringUtils.isNotBlank((String) claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.NONCE))) {
-            throw new LogoutClientException(ErrorMessages.LOGOUT_TOKEN_NONCE_CLAIM_VALIDATION_FAILED.getCode(),
-                    ErrorMessages.LOGOUT_TOKEN_NONCE_CLAIM_VALIDATION_FAILED.getMessage());
+            throw handleLogoutClientException(ErrorMessages.LOGOUT_TOKEN_NONCE_CLAIM_VALIDATION_FAILED);
         }
     }
 
@@ -475,14 +1126,8 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
     @Override
     public boolean canHandle(IdentityRequest identityRequest) {
 
-        boolean canHandle = false;
-        if (identityRequest != null) {
-            Matcher registerMatcher =
-                    OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN.matcher(identityRequest.getRequestURI());
-            if (registerMatcher.matches()) {
-                canHandle = true;
-            }
-        }
+        boolean canHandle = identityRequest != null &&
+                LogoutEndpointMatcher.isLogoutEndpoint(identityRequest.getRequestURI());
         if (log.isDebugEnabled()) {
             log.debug("Can handle: " + canHandle + " by OIDC FederatedIdpInitLogoutProcessor.");
         }
@@ -546,7 +1191,7 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
         if (log.isDebugEnabled()) {
             log.debug(error.getMessage() + " Error code: " + error.getCode());
         }
-        return new LogoutClientException(error.getCode(), error.getMessage());
+        return new StacklessLogoutClientException(error.getCode(), error.getMessage());
     }
 
     /**
@@ -561,7 +1206,40 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
         if (log.isDebugEnabled()) {
             log.debug(error.getMessage() + " Error code: " + error.getCode());
         }
-        return new LogoutClientException(error.getCode(), error.getMessage(), e);
+        return new StacklessLogoutClientException(error.getCode(), error.getMessage(), e);
+    }
+
+    /**
+     * Resolve the identity provider of the issuer, using the issuer to identity provider cache when enabled.
+     *
+     * @param jwtIssuer    Issuer of the logout token.
+     * @param tenantDomain Tenant domain of the logout request.
+     * @return Resolved identity provider along with its client id.
+     * @throws LogoutServerException If no identity provider is registered for the issuer or the lookup failed.
+     */
+    private ResolvedIdP resolveIdentityProvider(String jwtIssuer, String tenantDomain) throws LogoutServerException {
+
+        IssuerIdPCache issuerIdPCache = OpenIDConnectAuthenticatorDataHolder.getInstance().getIssuerIdPCache();
+        IssuerIdPCache.TenantCache tenantCache = null;
+        ResolvedIdP resolvedIdP = null;
+        if (issuerIdPCache != null) {
+            tenantCache = issuerIdPCache.getTenantCache(tenantDomain);
+            resolvedIdP = tenantCache.get(jwtIssuer);
+        }
+        if (resolvedIdP == null) {
+            IdentityProvider identityProvider = getIdentityProvider(jwtIssuer, tenantDomain);
+            resolvedIdP = identityProvider == null ? ResolvedIdP.unresolved() :
+                    new ResolvedIdP(identityProvider, getClientId(identityProvider));
+            if (tenantCache != null) {
+                issuerIdPCache.put(tenantCache, jwtIssuer, resolvedIdP);
+            }
+        } else if (log.isDebugEnabled()) {
+            log.debug("Resolved the identity provider of the issuer: " + jwtIssuer + " from the cache.");
+        }
+        if (!resolvedIdP.isResolved()) {
+            throw handleLogoutServerException(ErrorMessages.NO_REGISTERED_IDP_FOR_ISSUER, jwtIssuer);
+        }
+        return resolvedIdP;
     }
 
     /**
@@ -569,7 +1247,7 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
      *
      * @param jwtIssuer
      * @param tenantDomain
-     * @return IdentityProvider.
+     * @return IdentityProvider or null if no identity provider is registered for the issuer.
      * @throws LogoutServerException
      */
     private IdentityProvider getIdentityProvider(String jwtIssuer, String tenantDomain)
@@ -592,9 +1270,6 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
                     OIDCAuthenticatorConstants.BackchannelLogout.DEFAULT_IDP_NAME))) {
                 // Check whether this jwt was issued by the resident identity provider.
                 identityProvider = getResidentIDPForIssuer(tenantDomain, jwtIssuer);
-                if (identityProvider == null) {
-                    throw handleLogoutServerException(ErrorMessages.NO_REGISTERED_IDP_FOR_ISSUER, jwtIssuer);
-                }
             }
         } catch (IdentityProviderManagementException e) {
             throw handleLogoutServerException(ErrorMessages.RETRIEVING_IDENTITY_PROVIDER_FAILED, e);
@@ -633,4 +1308,38 @@ public class FederatedIdpInitLogoutProcessor extends IdentityProcessor {
         }
         return jwtIssuer.equals(issuer) ? residentIdentityProvider : null;
     }
+
+    /**
+     * Logout token of a batch logout request along with the outcome of its processing.
+     */
+    private static class BatchLogoutEntry {
+
+        private SignedJWT signedJWT;
+        private JWTClaimsSet claimsSet;
+        private ResolvedIdP resolvedIdP;
+        private String replayKey;
+        private long retryAfterMillis;
+        private LogoutException error;
+
+        private String getSid() {
+
+            return (String) claimsSet.getClaim(OIDCAuthenticatorConstants.Claim.SID);
+        }
+
+        private String getIdPName() {
+
+            return resolvedIdP.getIdentityProvider().getIdentityProviderName();
+        }
+    }
+
+    private void logError(String errorCode, String message, Throwable e) {
+
+        SampledErrorLogger sampledErrorLogger = OpenIDConnectAuthenticatorDataHolder.getInstance()
+                .getSampledErrorLogger();
+        if (sampledErrorLogger != null) {
+            sampledErrorLogger.error(log, errorCode, message, e);
+        } else {
+            log.error(message, e);
+        }
+    }
 }
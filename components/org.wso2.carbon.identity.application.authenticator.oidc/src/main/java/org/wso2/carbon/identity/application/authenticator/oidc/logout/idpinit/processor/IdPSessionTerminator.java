@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.processor;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authentication.framework.exception.session.mgt.SessionManagementException;
+import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutClientException;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutException;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutServerException;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ParallelTaskExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
+import org.wso2.carbon.idp.mgt.IdentityProviderManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages;
+
+/**
+ * Terminates all the sessions federated through an identity provider of a tenant, for instance when the identity
+ * provider is compromised or offboarded.
+ * The sessions are read from the session store in pages ordered by session id, and the sessions of a page are
+ * terminated in parallel at a throttled rate. The last session id of each completed page is checkpointed to the disk,
+ * so that a job interrupted by a shutdown or a failure resumes after the last completed page. Sessions which could
+ * not be terminated are counted and skipped, and are retried when the job is started again after it completed.
+ */
+public class IdPSessionTerminator {
+
+    private static final Log log = LogFactory.getLog(IdPSessionTerminator.class);
+
+    private static final String GET_FEDERATED_SESSIONS = "SELECT M.SESSION_ID, M.USER_ID FROM " +
+            "IDN_AUTH_USER_SESSION_MAPPING M INNER JOIN IDN_AUTH_USER U ON M.USER_ID = U.USER_ID " +
+            "WHERE U.TENANT_ID = ? AND U.IDP_ID = ? ORDER BY M.SESSION_ID";
+    private static final String GET_FEDERATED_SESSIONS_AFTER = "SELECT M.SESSION_ID, M.USER_ID FROM " +
+            "IDN_AUTH_USER_SESSION_MAPPING M INNER JOIN IDN_AUTH_USER U ON M.USER_ID = U.USER_ID " +
+            "WHERE U.TENANT_ID = ? AND U.IDP_ID = ? AND M.SESSION_ID > ? ORDER BY M.SESSION_ID";
+    private static final String CHECKPOINT_FILE_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_FILE_SUFFIX = ".properties";
+    private static final String CHECKPOINT_TEMP_FILE_SUFFIX = ".tmp";
+    private static final String TENANT_DOMAIN = "tenantDomain";
+    private static final String TENANT_ID = "tenantId";
+    private static final String IDP_NAME = "idpName";
+    private static final String IDP_ID = "idpId";
+    private static final String LAST_SESSION_ID = "lastSessionId";
+    private static final String TERMINATED_COUNT = "terminatedCount";
+    private static final String FAILED_COUNT = "failedCount";
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor;
+    private final ParallelTaskExecutor terminationExecutor;
+    private final Path checkpointDirectory;
+    private final int pageSize;
+    private final double sessionsPerSecond;
+    private final long pageTimeoutMillis;
+
+    /**
+     * Create an identity provider session terminator.
+     *
+     * @param parallelism         Number of sessions terminated in parallel.
+     * @param pageSize            Number of sessions read from the session store at a time.
+     * @param sessionsPerSecond   Maximum number of sessions terminated per second by a job.
+     * @param pageTimeoutMillis   Maximum time in milliseconds to terminate the sessions of a page, excluding the
+     *                            time waited for the rate limit.
+     * @param checkpointDirectory Directory of the checkpoints of the jobs.
+     */
+    public IdPSessionTerminator(int parallelism, int pageSize, double sessionsPerSecond, long pageTimeoutMillis,
+                                Path checkpointDirectory) {
+
+        this.terminationExecutor = new ParallelTaskExecutor(parallelism, "oidc-idp-session-termination-");
+        this.pageSize = Math.max(1, pageSize);
+        this.sessionsPerSecond = sessionsPerSecond;
+        this.pageTimeoutMillis = pageTimeoutMillis;
+        this.checkpointDirectory = checkpointDirectory;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.jobExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-idp-session-termination-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start terminating all the sessions federated through the identity provider. If a job of the identity provider
+     * is already running, that job is returned. A job interrupted earlier resumes from its checkpoint.
+     *
+     * @param tenantDomain Tenant domain of the identity provider.
+     * @param idpName      Name of the identity provider.
+     * @return Job terminating the sessions.
+     * @throws LogoutClientException If the identity provider does not exist.
+     * @throws LogoutServerException If the identity provider could not be retrieved.
+     */
+    public Job terminateSessions(String tenantDomain, String idpName) throws LogoutException {
+
+        IdentityProvider identityProvider;
+        try {
+            identityProvider = IdentityProviderManager.getInstance().getIdPByName(idpName, tenantDomain);
+        } catch (IdentityProviderManagementException e) {
+            throw new LogoutServerException(ErrorMessages.RETRIEVING_IDENTITY_PROVIDER_FAILED.getCode(),
+                    ErrorMessages.RETRIEVING_IDENTITY_PROVIDER_FAILED.getMessage(), e);
+        }
+        if (identityProvider == null || !StringUtils.isNumeric(identityProvider.getId())) {
+            throw new LogoutClientException(ErrorMessages.IDENTITY_PROVIDER_NOT_FOUND.getCode(),
+                    String.format(ErrorMessages.IDENTITY_PROVIDER_NOT_FOUND.getMessage(), idpName));
+        }
+        return start(tenantDomain, IdentityTenantUtil.getTenantId(tenantDomain), idpName,
+                Integer.parseInt(identityProvider.getId()));
+    }
+
+    /**
+     * Resume the jobs which have a checkpoint, for instance the jobs interrupted by a shutdown.
+     */
+    public void resume() {
+
+        if (!Files.isDirectory(checkpointDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> checkpoints = Files.newDirectoryStream(checkpointDirectory,
+                CHECKPOINT_FILE_PREFIX + "*" + CHECKPOINT_FILE_SUFFIX)) {
+            for (Path checkpoint : checkpoints) {
+                Properties properties = readCheckpoint(checkpoint);
+                if (properties == null) {
+                    continue;
+                }
+                try {
+                    start(properties.getProperty(TENANT_DOMAIN), Integer.parseInt(properties.getProperty(TENANT_ID)),
+                            properties.getProperty(IDP_NAME), Integer.parseInt(properties.getProperty(IDP_ID)));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring the invalid identity provider session termination checkpoint: " + checkpoint);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error while listing the identity provider session termination checkpoints in: " +
+                    checkpointDirectory, e);
+        }
+    }
+
+    /**
+     * Get the jobs started since the terminator was created.
+     *
+     * @return Running and ended jobs.
+     */
+    public List<Job> getJobs() {
+
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Stop the running jobs. Their checkpoints are kept, so that they are resumed on the next start.
+     */
+    public void shutdown() {
+
+        jobExecutor.shutdownNow();
+        terminationExecutor.shutdown();
+    }
+
+    Job start(String tenantDomain, int tenantId, String idpName, int idpId) {
+
+        String jobId = tenantId + "-" + idpId;
+        synchronized (jobs) {
+            Job job = jobs.get(jobId);
+            if (job != null && job.getState() == State.RUNNING) {
+                return job;
+            }
+            Job newJob = new Job(jobId, tenantDomain, tenantId, idpName, idpId);
+            jobs.put(jobId, newJob);
+            jobExecutor.execute(() -> run(newJob));
+            return newJob;
+        }
+    }
+
+    /**
+     * Read a page of the sessions federated through the identity provider.
+     *
+     * @param tenantId       Tenant id of the identity provider.
+     * @param idpId          Id of the identity provider.
+     * @param afterSessionId Last session id of the previous page, or null for the first page.
+     * @param limit          Maximum number of sessions to read.
+     * @return User id of each session keyed by session id, in the order of the session ids.
+     * @throws SQLException If the sessions could not be read.
+     */
+    protected Map<String, String> readSessions(int tenantId, int idpId, String afterSessionId, int limit)
+            throws SQLException {
+
+        Map<String, String> sessions = new LinkedHashMap<>();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement preparedStatement = connection.prepareStatement(afterSessionId == null ?
+                     GET_FEDERATED_SESSIONS : GET_FEDERATED_SESSIONS_AFTER)) {
+            preparedStatement.setInt(1, tenantId);
+            preparedStatement.setInt(2, idpId);
+            if (afterSessionId != null) {
+                preparedStatement.setString(3, afterSessionId);
+            }
+            preparedStatement.setMaxRows(limit);
+            preparedStatement.setFetchSize(limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    sessions.putIfAbsent(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Terminate a session of a user.
+     *
+     * @param userId    Id of the user.
+     * @param sessionId Id of the session.
+     * @throws SessionManagementException If the session could not be terminated.
+     */
+    protected void terminateSession(String userId, String sessionId) throws SessionManagementException {
+
+        OpenIDConnectAuthenticatorDataHolder.getInstance().getUserSessionManagementService()
+                .terminateSessionBySessionId(userId, sessionId);
+        FederatedSessionIndex federatedSessionIndex =
+                OpenIDConnectAuthenticatorDataHolder.getInstance().getFederatedSessionIndex();
+        if (federatedSessionIndex != null) {
+            federatedSessionIndex.removeSession(sessionId);
+        }
+    }
+
+    private void run(Job job) {
+
+        State endState = State.FAILED;
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(job.tenantDomain, true);
+            loadCheckpoint(job);
+            log.info("Terminating the sessions of the identity provider: " + job.idpName + " of the tenant: " +
+                    job.tenantDomain + (job.lastSessionId != null ? ", resuming from the checkpoint." : "."));
+            RateLimiter rateLimiter = new RateLimiter(sessionsPerSecond, pageSize, 1);
+            while (!Thread.currentThread().isInterrupted() && !job.cancelled) {
+                Map<String, String> sessions = readSessions(job.tenantId, job.idpId, job.lastSessionId, pageSize);
+                if (sessions.isEmpty()) {
+                    break;
+                }
+                terminateSessions(job, sessions, rateLimiter);
+                for (String sessionId : sessions.keySet()) {
+                    job.lastSessionId = sessionId;
+                }
+                job.pageCount.incrementAndGet();
+                saveCheckpoint(job);
+                if (log.isDebugEnabled()) {
+                    log.debug("Identity provider session termination job: " + job.jobId + " terminated " +
+                            job.getTerminatedCount() + " sessions with " + job.getFailedCount() + " failures.");
+                }
+            }
+            // A job interrupted by a shutdown keeps its checkpoint, so that it is resumed on the next start.
+            if (job.cancelled || !Thread.currentThread().isInterrupted()) {
+                deleteCheckpoint(job);
+            }
+            endState = job.cancelled || Thread.currentThread().isInterrupted() ? State.CANCELLED : State.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            endState = State.CANCELLED;
+        } catch (SQLException | RuntimeException e) {
+            log.error("Error while terminating the sessions of the identity provider: " + job.idpName +
+                    " of the tenant: " + job.tenantDomain + ". The job can be started again to resume it.", e);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+            job.endTime = System.currentTimeMillis();
+            job.state = endState;
+        }
+        log.info("Identity provider session termination job: " + job.jobId + " ended in the state: " + endState +
+                ". Terminated " + job.getTerminatedCount() + " sessions with " + job.getFailedCount() + " failures.");
+    }
+
+    private void terminateSessions(Job job, Map<String, String> sessions, RateLimiter rateLimiter)
+            throws InterruptedException {
+
+        // The permits are acquired before the tasks are submitted, so that the time spent waiting for the rate limit
+        // does not count towards the page timeout. Otherwise a page larger than the sessions permitted within the
+        // page timeout would have its remaining sessions cancelled and counted as failures.
+        List<Callable<Boolean>> tasks = new ArrayList<>(sessions.size());
+        for (Map.Entry<String, String> session : sessions.entrySet()) {
+            long waitMillis;
+            while ((waitMillis = rateLimiter.tryAcquire(job.jobId)) > 0) {
+                Thread.sleep(waitMillis);
+            }
+            tasks.add(() -> {
+                terminateSession(session.getValue(), session.getKey());
+                return Boolean.TRUE;
+            });
+        }
+        for (Future<Boolean> future : terminationExecutor.invokeAll(tasks, pageTimeoutMillis)) {
+            try {
+                future.get();
+                job.terminatedCount.incrementAndGet();
+            } catch (CancellationException | ExecutionException e) {
+                job.failedCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Error while terminating a session of the identity provider session termination " +
+                            "job: " + job.jobId, e);
+                }
+            }
+        }
+    }
+
+    private Path getCheckpointPath(Job job) {
+
+        return checkpointDirectory.resolve(CHECKPOINT_FILE_PREFIX + job.jobId + CHECKPOINT_FILE_SUFFIX);
+    }
+
+    private void loadCheckpoint(Job job) {
+
+        Path checkpoint = getCheckpointPath(job);
+        if (!Files.exists(checkpoint)) {
+            return;
+        }
+        Properties properties = readCheckpoint(checkpoint);
+        if (properties != null) {
+            job.lastSessionId = properties.getProperty(LAST_SESSION_ID);
+            job.terminatedCount.set(Long.parseLong(properties.getProperty(TERMINATED_COUNT, "0")));
+            job.failedCount.set(Long.parseLong(properties.getProperty(FAILED_COUNT, "0")));
+        }
+    }
+
+    private Properties readCheckpoint(Path checkpoint) {
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return properties;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Error while reading the identity provider session termination checkpoint: " + checkpoint, e);
+            return null;
+        }
+    }
+
+    /**
+     * Checkpoint the progress of the job. A lost checkpoint only makes a resumed job read the already terminated
+     * sessions again, hence the job continues if the checkpoint could not be written.
+     *
+     * @param job Job.
+     */
+    private void saveCheckpoint(Job job) {
+
+        Properties properties = new Properties();
+        properties.setProperty(TENANT_DOMAIN, job.tenantDomain);
+        properties.setProperty(TENANT_ID, String.valueOf(job.tenantId));
+        properties.setProperty(IDP_NAME, job.idpName);
+        properties.setProperty(IDP_ID, String.valueOf(job.idpId));
+        properties.setProperty(LAST_SESSION_ID, job.lastSessionId);
+        properties.setProperty(TERMINATED_COUNT, String.valueOf(job.getTerminatedCount()));
+        properties.setProperty(FAILED_COUNT, String.valueOf(job.getFailedCount()));
+        Path checkpoint = getCheckpointPath(job);
+        Path tempCheckpoint = checkpoint.resolveSibling(checkpoint.getFileName() + CHECKPOINT_TEMP_FILE_SUFFIX);
+        try {
+            Files.createDirectories(checkpointDirectory);
+            try (Writer writer = Files.newBufferedWriter(tempCheckpoint, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(tempCheckpoint, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Error while writing the identity provider session termination checkpoint: " + checkpoint, e);
+        }
+    }
+
+    private void deleteCheckpoint(Job job) {
+
+        try {
+            Files.deleteIfExists(getCheckpointPath(job));
+        } catch (IOException e) {
+            log.warn("Error while deleting the identity provider session termination checkpoint of the job: " +
+                    job.jobId, e);
+        }
+    }
+
+    /**
+     * State of a job.
+     */
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /**
+     * Progress of the termination of the sessions of an identity provider.
+     */
+    public static class Job {
+
+        private final String jobId;
+        private final String tenantDomain;
+        private final int tenantId;
+        private final String idpName;
+        private final int idpId;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong terminatedCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong pageCount = new AtomicLong();
+        private volatile State state = State.RUNNING;
+        private volatile String lastSessionId;
+        private volatile long endTime;
+        private volatile boolean cancelled;
+
+        private Job(String jobId, String tenantDomain, int tenantId, String idpName, int idpId) {
+
+            this.jobId = jobId;
+            this.tenantDomain = tenantDomain;
+            this.tenantId = tenantId;
+            this.idpName = idpName;
+            this.idpId = idpId;
+        }
+
+        public String getTenantDomain() {
+
+            return tenantDomain;
+        }
+
+        public String getIdPName() {
+
+            return idpName;
+        }
+
+        public State getState() {
+
+            return state;
+        }
+
+        public long getTerminatedCount() {
+
+            return terminatedCount.get();
+        }
+
+        public long getFailedCount() {
+
+            return failedCount.get();
+        }
+
+        public long getPageCount() {
+
+            return pageCount.get();
+        }
+
+        public long getStartTime() {
+
+            return startTime;
+        }
+
+        /**
+         * Get the time the job ended.
+         *
+         * @return End time in milliseconds, or 0 if the job is running.
+         */
+        public long getEndTime() {
+
+            return endTime;
+        }
+
+        /**
+         * Stop the job after the page in progress. The checkpoint is removed, so that the job is not resumed.
+         */
+        public void cancel() {
+
+            cancelled = true;
+        }
+    }
+}
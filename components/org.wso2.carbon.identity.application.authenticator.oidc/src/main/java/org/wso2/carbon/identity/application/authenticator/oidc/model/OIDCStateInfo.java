@@ -18,12 +18,42 @@ package org.wso2.carbon.identity.application.authenticator.oidc.model;
 
 import org.wso2.carbon.identity.application.authentication.framework.AuthenticatorStateInfo;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
 /**
- * This class holds state info of the OIDC authenticator
+ * This class holds state info of the OIDC authenticator.
+ * The state keeps the serialized form of the previous releases, so that the state written by an older node can be
+ * read during a rolling upgrade. When the compact session storage is enabled, id tokens larger than the compression
+ * threshold are written deflated in an additional field, which older nodes can not read. Hence the compact session
+ * storage should only be enabled once all the nodes are upgraded.
  */
 public class OIDCStateInfo extends AuthenticatorStateInfo {
 
+    // Serial version UID of the previous releases, which did not declare one.
+    private static final long serialVersionUID = 520990472713208786L;
+
+    private static final String ID_TOKEN_HINT = "idTokenHint";
+    private static final String COMPRESSED_ID_TOKEN_HINT = "compressedIdTokenHint";
+    private static final String ID_TOKEN_HINT_LENGTH = "idTokenHintLength";
+    private static final int MAX_INFLATED_TOKEN_LENGTH = 1024 * 1024;
+
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField(ID_TOKEN_HINT, String.class),
+            new ObjectStreamField(COMPRESSED_ID_TOKEN_HINT, byte[].class),
+            new ObjectStreamField(ID_TOKEN_HINT_LENGTH, int.class)
+    };
+
     private String idTokenHint;
+    private transient int compressionThreshold = -1;
 
     public void setIdTokenHint(String idTokenHint) {
 
@@ -34,4 +64,96 @@ public class OIDCStateInfo extends AuthenticatorStateInfo {
 
         return idTokenHint;
     }
+
+    /**
+     * Set the token size in bytes above which the id token is deflated when this state is serialized. This is only
+     * set when the compact session storage is enabled.
+     *
+     * @param compressionThreshold Threshold in bytes. A negative value disables the compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+
+        ObjectOutputStream.PutField fields = out.putFields();
+        byte[] deflated = null;
+        byte[] token = null;
+        if (idTokenHint != null && compressionThreshold >= 0) {
+            token = idTokenHint.getBytes(StandardCharsets.UTF_8);
+            if (token.length > compressionThreshold) {
+                deflated = deflate(token);
+            }
+        }
+        if (deflated != null && deflated.length < token.length) {
+            fields.put(COMPRESSED_ID_TOKEN_HINT, deflated);
+            fields.put(ID_TOKEN_HINT_LENGTH, token.length);
+        } else {
+            fields.put(ID_TOKEN_HINT, idTokenHint);
+        }
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        ObjectInputStream.GetField fields = in.readFields();
+        idTokenHint = (String) fields.get(ID_TOKEN_HINT, null);
+        compressionThreshold = -1;
+        byte[] deflated = (byte[]) fields.get(COMPRESSED_ID_TOKEN_HINT, null);
+        if (deflated == null) {
+            return;
+        }
+        int tokenLength = fields.get(ID_TOKEN_HINT_LENGTH, -1);
+        if (tokenLength < 0 || tokenLength > MAX_INFLATED_TOKEN_LENGTH || deflated.length > tokenLength) {
+            throw new InvalidObjectException("Invalid length found for the compressed id token.");
+        }
+        idTokenHint = new String(inflate(deflated, tokenLength), StandardCharsets.UTF_8);
+        // Keep the token compressed when this state is serialized again.
+        compressionThreshold = 0;
+    }
+
+    private static byte[] deflate(byte[] input) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int length) throws IOException {
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            byte[] output = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int count = inflater.inflate(output, offset, length - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != length) {
+                throw new InvalidObjectException("Compressed id token is truncated.");
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Error while decompressing the id token.", e);
+        } finally {
+            inflater.end();
+        }
+    }
 }
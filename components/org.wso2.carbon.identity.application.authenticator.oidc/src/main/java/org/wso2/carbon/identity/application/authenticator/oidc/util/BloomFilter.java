@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter of strings with a fixed memory budget.
+ * A negative answer is definite, a positive answer may be a false positive. The number of hash functions is derived
+ * from the memory budget and the expected number of insertions, and the false positive rate is estimated from the
+ * fraction of bits set.
+ */
+public class BloomFilter {
+
+    private static final int MAX_HASH_FUNCTIONS = 16;
+    private static final long FIRST_HASH_SEED = 0;
+    private static final long SECOND_HASH_SEED = 1;
+
+    private final AtomicLongArray words;
+    private final long numberOfBits;
+    private final int numberOfHashFunctions;
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Create a Bloom filter.
+     *
+     * @param memoryBudgetBytes  Size of the bit array in bytes.
+     * @param expectedInsertions Expected number of insertions.
+     */
+    public BloomFilter(int memoryBudgetBytes, long expectedInsertions) {
+
+        int numberOfWords = Math.max(1, memoryBudgetBytes / Long.BYTES);
+        this.words = new AtomicLongArray(numberOfWords);
+        this.numberOfBits = (long) numberOfWords * Long.SIZE;
+        long hashFunctions = Math.round((double) numberOfBits / Math.max(1, expectedInsertions) * Math.log(2));
+        this.numberOfHashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS, hashFunctions));
+    }
+
+    /**
+     * Add the value to the filter.
+     *
+     * @param value Value.
+     */
+    public void add(String value) {
+
+        long hash1 = HashUtil.hash(value, FIRST_HASH_SEED);
+        long hash2 = HashUtil.hash(value, SECOND_HASH_SEED);
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, numberOfBits);
+            int wordIndex = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+            long word = words.get(wordIndex);
+            while ((word & mask) == 0) {
+                if (words.compareAndSet(wordIndex, word, word | mask)) {
+                    bitsSet.incrementAndGet();
+                    break;
+                }
+                word = words.get(wordIndex);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Check whether the value might have been added to the filter.
+     *
+     * @param value Value.
+     * @return False if the value was definitely not added.
+     */
+    public boolean mightContain(String value) {
+
+        long hash1 = HashUtil.hash(value, FIRST_HASH_SEED);
+        long hash2 = HashUtil.hash(value, SECOND_HASH_SEED);
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, numberOfBits);
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the false positive rate from the fraction of bits set.
+     *
+     * @return Estimated false positive rate.
+     */
+    public double getEstimatedFalsePositiveRate() {
+
+        return Math.pow((double) bitsSet.get() / numberOfBits, numberOfHashFunctions);
+    }
+
+    /**
+     * Get the number of insertions, including the duplicates.
+     *
+     * @return Number of insertions.
+     */
+    public long getInsertions() {
+
+        return insertions.get();
+    }
+
+    public int getNumberOfHashFunctions() {
+
+        return numberOfHashFunctions;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of requests processed at a time.
+ * A request which can not get a permit within the maximum wait time is rejected, so that a burst of requests is shed
+ * instead of holding the container threads while waiting on the same downstream resources.
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long maxWaitMillis;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Create a bulkhead.
+     *
+     * @param maxConcurrency Maximum number of requests processed at a time.
+     * @param maxWaitMillis  Maximum time in milliseconds a request waits for a permit.
+     */
+    public Bulkhead(int maxConcurrency, long maxWaitMillis) {
+
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+    }
+
+    /**
+     * Take a permit. A permit taken must be returned with {@link #release()}.
+     *
+     * @return True if a permit was taken, false if the request should be rejected.
+     */
+    public boolean tryAcquire() {
+
+        boolean acquired;
+        try {
+            acquired = maxWaitMillis > 0 ? permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS) :
+                    permits.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCount.incrementAndGet();
+        }
+        return acquired;
+    }
+
+    /**
+     * Return a permit taken with {@link #tryAcquire()}.
+     */
+    public void release() {
+
+        permits.release();
+    }
+
+    /**
+     * Get the number of requests being processed.
+     *
+     * @return Number of permits taken.
+     */
+    public int getActiveCount() {
+
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of requests rejected since the bulkhead was created.
+     *
+     * @return Number of rejected requests.
+     */
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+}
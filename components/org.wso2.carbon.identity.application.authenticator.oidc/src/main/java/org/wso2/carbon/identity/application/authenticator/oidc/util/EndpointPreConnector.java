@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens connections to IdP endpoints ahead of the requests that need them.
+ * A pre-connect performs a lightweight HEAD request and fully consumes the response, so that the established
+ * (TLS) connection is returned to the JDK keep-alive cache shared with the URL connection based OAuth client used
+ * for the token request. Pre-connects are rate limited per endpoint origin and run on a small bounded executor
+ * which silently drops work when it is saturated, hence they can never amplify the load on an IdP.
+ * The JDK closes a cached connection once it is idle for the keep-alive timeout advertised by the server, or 5
+ * seconds if none is advertised. A pre-connect is only useful if the connection outlives the time until it is
+ * needed, hence the keep-alive timeout of each origin is learnt from its responses and an origin whose connections
+ * do not outlive the expected round trip is not pre-connected again.
+ */
+public class EndpointPreConnector {
+
+    private static final Log log = LogFactory.getLog(EndpointPreConnector.class);
+
+    private static final String HTTP_METHOD_HEAD = "HEAD";
+    private static final int MAX_TRACKED_ORIGINS = 1000;
+    private static final byte[] DRAIN_BUFFER = new byte[1024];
+    private static final String KEEP_ALIVE_HEADER = "Keep-Alive";
+    private static final String CONNECTION_HEADER = "Connection";
+    private static final String KEEP_ALIVE_TIMEOUT = "timeout=";
+    // Idle time of a cached connection in the JDK when the server does not advertise a keep-alive timeout.
+    private static final long DEFAULT_KEEP_ALIVE_TIME = 5000;
+
+    private final Map<String, Long> lastAttemptTimes = new ConcurrentHashMap<>();
+    private final Map<String, Long> keepAliveTimes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final long minIntervalMillis;
+    private final int timeoutMillis;
+    private final long expectedRoundTripMillis;
+
+    /**
+     * Create an endpoint pre-connector.
+     *
+     * @param minIntervalMillis Minimum time in milliseconds between two pre-connects to the same endpoint origin.
+     * @param timeoutMillis     Connect and read timeout in milliseconds of a pre-connect.
+     * @param maxConcurrency    Maximum number of pre-connects running or waiting at a time.
+     */
+    public EndpointPreConnector(long minIntervalMillis, int timeoutMillis, int maxConcurrency) {
+
+        this(minIntervalMillis, timeoutMillis, maxConcurrency, 0);
+    }
+
+    /**
+     * Create an endpoint pre-connector which does not pre-connect origins whose connections are closed by the JDK
+     * before the expected round trip completes.
+     *
+     * @param minIntervalMillis       Minimum time in milliseconds between two pre-connects to the same endpoint
+     *                                origin.
+     * @param timeoutMillis           Connect and read timeout in milliseconds of a pre-connect.
+     * @param maxConcurrency          Maximum number of pre-connects running or waiting at a time.
+     * @param expectedRoundTripMillis Expected time in milliseconds from a pre-connect until the connection is used.
+     */
+    public EndpointPreConnector(long minIntervalMillis, int timeoutMillis, int maxConcurrency,
+                                long expectedRoundTripMillis) {
+
+        this.minIntervalMillis = minIntervalMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.expectedRoundTripMillis = expectedRoundTripMillis;
+        int poolSize = Math.max(1, maxConcurrency);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(poolSize), runnable -> {
+                    Thread thread = new Thread(runnable, "oidc-endpoint-preconnect-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Asynchronously pre-connect to the endpoint, unless the same origin was pre-connected recently or its
+     * connections are known not to be kept alive for the expected round trip.
+     *
+     * @param endpoint Endpoint URL.
+     */
+    public void preConnect(String endpoint) {
+
+        URL url = toHttpUrl(endpoint);
+        if (url == null) {
+            return;
+        }
+        String origin = getOrigin(url);
+        Long keepAliveTime = keepAliveTimes.get(origin);
+        if (keepAliveTime != null && keepAliveTime < expectedRoundTripMillis) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipped pre-connecting to the endpoint: " + origin + " as its connections are kept " +
+                        "alive for " + keepAliveTime + " ms.");
+            }
+            return;
+        }
+        if (!tryAcquire(origin)) {
+            return;
+        }
+        try {
+            executor.execute(() -> connect(url));
+        } catch (RejectedExecutionException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipped pre-connecting to the endpoint: " + endpoint, e);
+            }
+        }
+    }
+
+    /**
+     * Synchronously connect to the endpoint, regardless of the rate limit.
+     *
+     * @param endpoint Endpoint URL.
+     * @return True if the endpoint responded.
+     */
+    public boolean connect(String endpoint) {
+
+        URL url = toHttpUrl(endpoint);
+        return url != null && connect(url);
+    }
+
+    /**
+     * Get the time an idle connection to the origin of the endpoint is kept alive, as learnt from the last response
+     * of the origin.
+     *
+     * @param endpoint Endpoint URL.
+     * @return Keep-alive time in milliseconds, or -1 if the origin was not connected yet.
+     */
+    public long getKeepAliveTime(String endpoint) {
+
+        URL url = toHttpUrl(endpoint);
+        Long keepAliveTime = url != null ? keepAliveTimes.get(getOrigin(url)) : null;
+        return keepAliveTime != null ? keepAliveTime : -1;
+    }
+
+    /**
+     * Stop the pre-connector. Pre-connects in progress are interrupted.
+     */
+    public void shutdown() {
+
+        executor.shutdownNow();
+    }
+
+    private boolean connect(URL url) {
+
+        HttpURLConnection connection = null;
+        try {
+            URLConnection urlConnection = url.openConnection();
+            if (!(urlConnection instanceof HttpURLConnection)) {
+                return false;
+            }
+            connection = (HttpURLConnection) urlConnection;
+            connection.setRequestMethod(HTTP_METHOD_HEAD);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setInstanceFollowRedirects(false);
+            int responseCode = connection.getResponseCode();
+            recordKeepAliveTime(getOrigin(url), connection);
+            // Consume the response without disconnecting, so the connection can be reused.
+            drain(responseCode < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() :
+                    connection.getErrorStream());
+            if (log.isDebugEnabled()) {
+                log.debug("Pre-connected to the endpoint: " + getOrigin(url) + " with the response code: " +
+                        responseCode);
+            }
+            return true;
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while pre-connecting to the endpoint: " + getOrigin(url), e);
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private void recordKeepAliveTime(String origin, HttpURLConnection connection) {
+
+        long keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
+        if ("close".equalsIgnoreCase(connection.getHeaderField(CONNECTION_HEADER))) {
+            keepAliveTime = 0;
+        } else {
+            String keepAlive = connection.getHeaderField(KEEP_ALIVE_HEADER);
+            if (StringUtils.isNotBlank(keepAlive)) {
+                for (String keepAliveParam : keepAlive.split(",")) {
+                    String param = keepAliveParam.trim();
+                    if (StringUtils.startsWithIgnoreCase(param, KEEP_ALIVE_TIMEOUT)) {
+                        try {
+                            long timeout = Long.parseLong(param.substring(KEEP_ALIVE_TIMEOUT.length()).trim());
+                            if (timeout > 0) {
+                                keepAliveTime = TimeUnit.SECONDS.toMillis(timeout);
+                            }
+                        } catch (NumberFormatException e) {
+                            // The JDK falls back to the default keep-alive time as well.
+                        }
+                    }
+                }
+            }
+        }
+        if (keepAliveTimes.size() >= MAX_TRACKED_ORIGINS && !keepAliveTimes.containsKey(origin)) {
+            keepAliveTimes.clear();
+        }
+        keepAliveTimes.put(origin, keepAliveTime);
+    }
+
+    private boolean tryAcquire(String origin) {
+
+        long currentTime = System.currentTimeMillis();
+        if (lastAttemptTimes.size() >= MAX_TRACKED_ORIGINS) {
+            purgeExpiredAttempts(currentTime);
+        }
+        boolean[] acquired = new boolean[1];
+        lastAttemptTimes.compute(origin, (key, lastAttemptTime) -> {
+            if (lastAttemptTime != null && currentTime - lastAttemptTime < minIntervalMillis) {
+                return lastAttemptTime;
+            }
+            acquired[0] = true;
+            return currentTime;
+        });
+        return acquired[0];
+    }
+
+    private void purgeExpiredAttempts(long currentTime) {
+
+        Iterator<Long> iterator = lastAttemptTimes.values().iterator();
+        while (iterator.hasNext()) {
+            if (currentTime - iterator.next() >= minIntervalMillis) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+
+        if (inputStream == null) {
+            return;
+        }
+        try (InputStream stream = inputStream) {
+            // The buffer content is discarded, hence sharing it between threads is harmless.
+            while (stream.read(DRAIN_BUFFER) != -1) {
+                // Discard the response body.
+            }
+        }
+    }
+
+    private static URL toHttpUrl(String endpoint) {
+
+        if (StringUtils.isBlank(endpoint)) {
+            return null;
+        }
+        try {
+            URL url = new URL(endpoint.trim());
+            String protocol = url.getProtocol();
+            if ("https".equalsIgnoreCase(protocol) || "http".equalsIgnoreCase(protocol)) {
+                return url;
+            }
+        } catch (MalformedURLException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid endpoint URL: " + endpoint + " is provided for pre-connecting.", e);
+            }
+        }
+        return null;
+    }
+
+    private static String getOrigin(URL url) {
+
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache whose entries expire after a per entry time to live.
+ * Expired entries are removed when they are read. When the cache is full, the least recently used entry is evicted
+ * to make room for a new entry, which also drops the expired entries that are not read anymore. The cache is
+ * synchronized, as a read reorders the entries.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, CacheEntry<V>> entries;
+    private final int maxEntries;
+
+    /**
+     * Create an expiring cache.
+     *
+     * @param maxEntries Maximum number of entries kept in the cache.
+     */
+    public ExpiringCache(int maxEntries) {
+
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -3618208441785309421L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+
+                return size() > ExpiringCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the value cached for the key.
+     *
+     * @param key Key.
+     * @return Cached value or null if there is no live entry for the key.
+     */
+    public synchronized V get(K key) {
+
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Cache the value for the key.
+     *
+     * @param key        Key.
+     * @param value      Value.
+     * @param timeToLive Time in milliseconds the entry is valid.
+     * @return True if the value was cached, false if the time to live is not positive.
+     */
+    public synchronized boolean put(K key, V value, long timeToLive) {
+
+        if (timeToLive <= 0) {
+            return false;
+        }
+        entries.put(key, new CacheEntry<>(value, System.currentTimeMillis() + timeToLive));
+        return true;
+    }
+
+    /**
+     * Remove the entry of the key.
+     *
+     * @param key Key.
+     */
+    public synchronized void remove(K key) {
+
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public synchronized void clear() {
+
+        entries.clear();
+    }
+
+    /**
+     * Get the number of entries including the expired entries that are not removed yet.
+     *
+     * @return Number of entries.
+     */
+    public synchronized int size() {
+
+        return entries.size();
+    }
+
+    private static class CacheEntry<V> {
+
+        private final V value;
+        private final long expiryTime;
+
+        private CacheEntry(V value, long expiryTime) {
+
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired(long currentTime) {
+
+            return currentTime >= expiryTime;
+        }
+    }
+}
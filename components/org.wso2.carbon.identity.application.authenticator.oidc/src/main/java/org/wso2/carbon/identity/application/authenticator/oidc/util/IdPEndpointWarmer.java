@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants;
+import org.wso2.carbon.identity.application.common.model.FederatedAuthenticatorConfig;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.application.common.model.Property;
+import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
+import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
+import org.wso2.carbon.idp.mgt.IdentityProviderManager;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up the server side endpoints of the OIDC federated IdPs of a tenant.
+ * The host names of the token and user info endpoints are resolved and a connection is opened to each endpoint, so
+ * that the first logins after a node start or a tenant load do not pay for the DNS resolution and the TLS
+ * handshakes. Endpoints are warmed with bounded parallelism and each warm-up is bounded by a timeout.
+ * The JDK closes an idle connection within seconds, hence what outlives the warm-up is mostly the DNS cache entry, the
+ * TLS session available for resumption and the initialized HTTP client classes.
+ */
+public class IdPEndpointWarmer {
+
+    private static final Log log = LogFactory.getLog(IdPEndpointWarmer.class);
+
+    private final EndpointPreConnector preConnector;
+    private final boolean ownsPreConnector;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final long timeoutMillis;
+    private final AtomicInteger pendingWarmups = new AtomicInteger();
+
+    /**
+     * Create an IdP endpoint warmer.
+     *
+     * @param preConnector  Pre-connector used to open the connections.
+     * @param parallelism   Maximum number of endpoints warmed at a time.
+     * @param timeoutMillis Maximum time in milliseconds a tenant warm-up may take.
+     */
+    public IdPEndpointWarmer(EndpointPreConnector preConnector, int parallelism, long timeoutMillis) {
+
+        this(preConnector, false, parallelism, timeoutMillis);
+    }
+
+    /**
+     * Create an IdP endpoint warmer with its own pre-connector, which is stopped along with the warmer.
+     *
+     * @param connectTimeoutMillis Connect and read timeout in milliseconds of a connection to an endpoint.
+     * @param parallelism          Maximum number of endpoints warmed at a time.
+     * @param timeoutMillis        Maximum time in milliseconds a tenant warm-up may take.
+     */
+    public IdPEndpointWarmer(int connectTimeoutMillis, int parallelism, long timeoutMillis) {
+
+        // The pre-connector is only used for synchronous connects, hence it needs a single thread at most.
+        this(new EndpointPreConnector(0, connectTimeoutMillis, 1), true, parallelism, timeoutMillis);
+    }
+
+    private IdPEndpointWarmer(EndpointPreConnector preConnector, boolean ownsPreConnector, int parallelism,
+                              long timeoutMillis) {
+
+        this.preConnector = preConnector;
+        this.ownsPreConnector = ownsPreConnector;
+        this.timeoutMillis = timeoutMillis;
+        this.coordinator = Executors.newSingleThreadExecutor(new WarmupThreadFactory("oidc-idp-warmup"));
+        this.workers = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                new WarmupThreadFactory("oidc-idp-warmup-worker"));
+    }
+
+    /**
+     * Asynchronously warm up the OIDC IdP endpoints of the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void warmup(String tenantDomain) {
+
+        pendingWarmups.incrementAndGet();
+        try {
+            coordinator.execute(() -> {
+                try {
+                    warmupTenant(tenantDomain);
+                } finally {
+                    if (pendingWarmups.decrementAndGet() == 0) {
+                        log.info("All the requested warm-ups of the OIDC IdP endpoints are completed or timed out.");
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingWarmups.decrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Skipped warming up the IdP endpoints of the tenant: " + tenantDomain, e);
+            }
+        }
+    }
+
+    /**
+     * Check whether all the requested warm-ups are completed or timed out.
+     *
+     * @return True if no warm-up is pending.
+     */
+    public boolean isWarm() {
+
+        return pendingWarmups.get() == 0;
+    }
+
+    /**
+     * Get the number of tenant warm-ups requested and not yet completed or timed out.
+     *
+     * @return Number of pending warm-ups.
+     */
+    public int getPendingWarmupCount() {
+
+        return pendingWarmups.get();
+    }
+
+    /**
+     * Stop the warmer. Warm-ups in progress are interrupted.
+     */
+    public void shutdown() {
+
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+        if (ownsPreConnector) {
+            preConnector.shutdown();
+        }
+    }
+
+    private void warmupTenant(String tenantDomain) {
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Set<String> endpoints = getEndpoints(tenantDomain);
+        List<Future<?>> futures = new ArrayList<>(endpoints.size());
+        for (String endpoint : endpoints) {
+            futures.add(workers.submit(() -> warmupEndpoint(endpoint)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Warmed up " + endpoints.size() + " OIDC IdP endpoints of the tenant: " + tenantDomain);
+            }
+        } catch (TimeoutException e) {
+            log.warn("Warming up the OIDC IdP endpoints of the tenant: " + tenantDomain + " did not complete " +
+                    "within " + timeoutMillis + " ms.");
+        } catch (ExecutionException e) {
+            log.warn("Error while warming up the OIDC IdP endpoints of the tenant: " + tenantDomain, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Get the token and user info endpoints of the enabled OIDC IdPs of the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Endpoint URLs.
+     */
+    protected Set<String> getEndpoints(String tenantDomain) {
+
+        Set<String> endpoints = new LinkedHashSet<>();
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain, true);
+            IdentityProviderManager identityProviderManager = IdentityProviderManager.getInstance();
+            for (IdentityProvider basicIdentityProvider : identityProviderManager.getIdPs(tenantDomain)) {
+                if (!basicIdentityProvider.isEnable()) {
+                    continue;
+                }
+                IdentityProvider identityProvider =
+                        identityProviderManager.getIdPByName(basicIdentityProvider.getIdentityProviderName(),
+                                tenantDomain);
+                addEndpoints(identityProvider, endpoints);
+            }
+        } catch (IdentityProviderManagementException e) {
+            log.warn("Error while retrieving the identity providers of the tenant: " + tenantDomain +
+                    " for warming up.", e);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+        return endpoints;
+    }
+
+    private void addEndpoints(IdentityProvider identityProvider, Set<String> endpoints) {
+
+        if (identityProvider == null || identityProvider.getFederatedAuthenticatorConfigs() == null) {
+            return;
+        }
+        for (FederatedAuthenticatorConfig authenticatorConfig : identityProvider.getFederatedAuthenticatorConfigs()) {
+            if (!OIDCAuthenticatorConstants.AUTHENTICATOR_NAME.equals(authenticatorConfig.getName()) ||
+                    !authenticatorConfig.isEnabled() || ArrayUtils.isEmpty(authenticatorConfig.getProperties())) {
+                continue;
+            }
+            for (Property property : authenticatorConfig.getProperties()) {
+                if (property != null && StringUtils.isNotBlank(property.getValue()) &&
+                        (OIDCAuthenticatorConstants.OAUTH2_TOKEN_URL.equals(property.getName()) ||
+                                IdentityApplicationConstants.Authenticator.OIDC.USER_INFO_URL
+                                        .equals(property.getName()))) {
+                    endpoints.add(property.getValue().trim());
+                }
+            }
+        }
+    }
+
+    private void warmupEndpoint(String endpoint) {
+
+        try {
+            // Populates the JVM DNS cache with all the addresses of the host.
+            InetAddress.getAllByName(new URL(endpoint).getHost());
+        } catch (MalformedURLException | UnknownHostException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while resolving the host of the endpoint: " + endpoint, e);
+            }
+            return;
+        }
+        preConnector.connect(endpoint);
+    }
+
+    private static class WarmupThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private WarmupThreadFactory(String namePrefix) {
+
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
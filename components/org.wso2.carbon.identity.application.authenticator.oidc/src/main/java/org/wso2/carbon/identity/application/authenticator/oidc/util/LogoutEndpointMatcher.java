@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.OIDC_BACKCHANNEL_BATCH_LOGOUT_ENDPOINT_PATH;
+import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_PATH;
+
+/**
+ * Matches request URIs against the back-channel logout endpoints.
+ * The framework asks every request factory and processor whether it can handle each identity request, hence the
+ * matching is done with plain string searches which allocate nothing and fail fast, rather than with regular
+ * expressions.
+ */
+public final class LogoutEndpointMatcher {
+
+    private LogoutEndpointMatcher() {
+
+    }
+
+    /**
+     * Check whether the URI is of the back-channel logout endpoint or one of its sub paths.
+     *
+     * @param requestURI Request URI.
+     * @return True if the URI contains the back-channel logout endpoint path.
+     */
+    public static boolean isLogoutEndpoint(String requestURI) {
+
+        return requestURI != null && requestURI.indexOf(OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_PATH) >= 0;
+    }
+
+    /**
+     * Check whether the URI is of the back-channel batch logout endpoint, with or without a trailing slash.
+     *
+     * @param requestURI Request URI.
+     * @return True if the URI ends with the back-channel batch logout endpoint path.
+     */
+    public static boolean isBatchLogoutEndpoint(String requestURI) {
+
+        if (requestURI == null) {
+            return false;
+        }
+        int end = requestURI.length();
+        if (end > 0 && requestURI.charAt(end - 1) == '/') {
+            end--;
+        }
+        int start = end - OIDC_BACKCHANNEL_BATCH_LOGOUT_ENDPOINT_PATH.length();
+        return start >= 0 && requestURI.startsWith(OIDC_BACKCHANNEL_BATCH_LOGOUT_ENDPOINT_PATH, start);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.AUTHENTICATOR_NAME;
+
+/**
+ * Utility methods to read the OIDC authenticator parameters configured in the application-authentication.xml.
+ */
+public class OIDCAuthenticatorConfigUtil {
+
+    private static final Log log = LogFactory.getLog(OIDCAuthenticatorConfigUtil.class);
+
+    private OIDCAuthenticatorConfigUtil() {
+
+    }
+
+    /**
+     * Get the parameters configured for the OIDC authenticator.
+     *
+     * @return Parameter map of the authenticator config. An empty map if the authenticator is not configured.
+     */
+    public static Map<String, String> getParameterMap() {
+
+        AuthenticatorConfig authConfig = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(AUTHENTICATOR_NAME);
+        if (authConfig == null || authConfig.getParameterMap() == null) {
+            return Collections.emptyMap();
+        }
+        return authConfig.getParameterMap();
+    }
+
+    /**
+     * Read a boolean parameter.
+     *
+     * @param parameters   Authenticator parameters.
+     * @param name         Parameter name.
+     * @param defaultValue Value to use when the parameter is not configured.
+     * @return Configured value or the default value.
+     */
+    public static boolean getBooleanParameter(Map<String, String> parameters, String name, boolean defaultValue) {
+
+        String value = parameters == null ? null : parameters.get(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Read an integer parameter.
+     *
+     * @param parameters   Authenticator parameters.
+     * @param name         Parameter name.
+     * @param defaultValue Value to use when the parameter is not configured or invalid.
+     * @return Configured value or the default value.
+     */
+    public static int getIntParameter(Map<String, String> parameters, String name, int defaultValue) {
+
+        String value = parameters == null ? null : parameters.get(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid value: " + value + " is configured for the parameter: " + name +
+                        ". Hence using the default value: " + defaultValue);
+            }
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Read a long parameter.
+     *
+     * @param parameters   Authenticator parameters.
+     * @param name         Parameter name.
+     * @param defaultValue Value to use when the parameter is not configured or invalid.
+     * @return Configured value or the default value.
+     */
+    public static long getLongParameter(Map<String, String> parameters, String name, long defaultValue) {
+
+        String value = parameters == null ? null : parameters.get(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid value: " + value + " is configured for the parameter: " + name +
+                        ". Hence using the default value: " + defaultValue);
+            }
+            return defaultValue;
+        }
+    }
+}
@@ -59,6 +59,16 @@ public class OIDCErrorConstants {
         LOGOUT_TOKEN_ISS_CLAIM_VALIDATION_FAILED("OID-60014",
                 "Error while validating the iss claim in the logout token"),
         LOGOUT_CLIENT_EXCEPTION("OID-60015", "Back channel logout failed due to client error"),
+        LOGOUT_TOKEN_SIZE_LIMIT_EXCEEDED("OID-60016",
+                "Logout token exceeds the maximum allowed length"),
+        BATCH_LOGOUT_NOT_ENABLED("OID-60017",
+                "Batch back-channel logout is not enabled"),
+        LOGOUT_TOKEN_COUNT_LIMIT_EXCEEDED("OID-60018",
+                "Number of logout tokens exceeds the maximum allowed in a batch"),
+        LOGOUT_RATE_LIMIT_EXCEEDED("OID-60019",
+                "Logout request rate limit exceeded for the issuer. Retry later"),
+        IDENTITY_PROVIDER_NOT_FOUND("OID-60020",
+                "No identity provider found with the name: %s"),
 
         RETRIEVING_AUTHENTICATOR_PROPERTIES_FAILED("OID-65001",
                 "Error while retrieving properties. Authenticator Properties cannot be null"),
@@ -88,7 +98,13 @@ public class OIDCErrorConstants {
                 "Error while terminating the sessions for the user: %s"),
         RETRIEVING_USER_ID_FAILED("OID-65014",
                 "Error while retrieving user Id mapping for sub: %s"),
-        LOGOUT_SERVER_EXCEPTION("OID-65015", "Back channel logout failed due to server error");
+        LOGOUT_SERVER_EXCEPTION("OID-65015", "Back channel logout failed due to server error"),
+        LOGOUT_TOKEN_VALIDATION_INCOMPLETE("OID-65016",
+                "Logout token validation did not complete within the allowed time"),
+        USER_SESSION_TERMINATION_INCOMPLETE("OID-65017",
+                "Not all the sessions of the user: %s were terminated within the allowed time"),
+        LOGOUT_CONCURRENCY_LIMIT_EXCEEDED("OID-65018",
+                "Maximum number of concurrent back-channel logout requests exceeded. Retry later");
 
         private final String code;
         private final String message;
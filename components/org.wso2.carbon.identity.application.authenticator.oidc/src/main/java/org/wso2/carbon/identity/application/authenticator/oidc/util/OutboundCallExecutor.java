@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+
+import java.lang.reflect.Method;
+import java.net.URLConnection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes blocking outbound calls to federated IdPs which the calling thread does not wait for right away, such as
+ * a user info request overlapping with the id token processing. Calls the caller would only wait for are better
+ * made on the calling thread, as handing them over only adds a thread per call and a timeout to the blocked caller.
+ * On JVMs that support virtual threads, each call runs on its own virtual thread, otherwise on a daemon platform
+ * thread. The OAuth client and the URL connection hold monitors while blocked on the network, which pins a virtual
+ * thread to its carrier, hence the number of calls in flight is bounded by a semaphore to keep the carrier threads
+ * from being exhausted. The tenant of the calling thread is propagated to the Carbon context of the executing thread.
+ * A call given up by the caller is cancelled by interrupting its thread, which aborts the blocked socket I/O of a
+ * virtual thread. Socket I/O of a platform thread is not interruptible, hence the connections opened by the calls
+ * should be bounded with {@link #applyTimeouts(URLConnection)}. A call keeps its permit until its thread is done.
+ */
+public class OutboundCallExecutor {
+
+    private static final Log log = LogFactory.getLog(OutboundCallExecutor.class);
+
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+
+    /**
+     * Create an outbound call executor.
+     *
+     * @param preferVirtualThreads Use virtual threads if the JVM supports them.
+     * @param maxConcurrency       Maximum number of outbound calls in flight at a time.
+     * @param timeoutMillis        Maximum time in milliseconds to wait for a permit and for the call to complete.
+     */
+    public OutboundCallExecutor(boolean preferVirtualThreads, int maxConcurrency, long timeoutMillis) {
+
+        ExecutorService virtualThreadExecutor = preferVirtualThreads ? createVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.executor = virtualThreads ? virtualThreadExecutor : createPlatformThreadExecutor();
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Start the call without waiting for its result.
+     *
+     * @param operation Outbound call.
+     * @param <V>       Result type.
+     * @param <E>       Exception type thrown by the call.
+     * @return Future completed with the result of the call.
+     * @throws TimeoutException If the call could not be started within the timeout.
+     */
+    public <V, E extends Exception> Future<V> submit(SingleFlight.Operation<V, E> operation)
+            throws TimeoutException {
+
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Maximum number of concurrent outbound calls exceeded.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting to start the outbound call.");
+        }
+
+        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        // Claimed either by the call when it starts, or by a cancellation before it started, to release the permit
+        // exactly once and only when no thread executes the call.
+        AtomicBoolean claimed = new AtomicBoolean();
+        FutureTask<V> task = new FutureTask<V>(() -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                if (tenantDomain != null) {
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain, true);
+                }
+                return operation.execute();
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+                permits.release();
+            }
+        }) {
+            @Override
+            protected void done() {
+
+                if (isCancelled() && claimed.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            if (claimed.compareAndSet(false, true)) {
+                permits.release();
+            }
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * Wait for the result of a call started with {@link #submit(SingleFlight.Operation)}.
+     *
+     * @param future Future of the call.
+     * @param <V>    Result type.
+     * @param <E>    Exception type thrown by the call.
+     * @return Result of the call.
+     * @throws E                If the call failed.
+     * @throws TimeoutException If the call did not complete within the timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public <V, E extends Exception> V await(Future<V> future) throws E, TimeoutException {
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new TimeoutException("Interrupted while waiting for the outbound call.");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            TimeoutException timeoutException = new TimeoutException("Outbound call was cancelled.");
+            timeoutException.initCause(e);
+            throw timeoutException;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * Bound the connect and read time of a connection opened by a call to the call timeout, so that the connection
+     * of a call given up by the caller is aborted even if its thread can not be interrupted.
+     *
+     * @param connection Connection opened by a call.
+     */
+    public void applyTimeouts(URLConnection connection) {
+
+        int timeout = (int) Math.min(Integer.MAX_VALUE, Math.max(1, timeoutMillis));
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+    }
+
+    /**
+     * Check whether the calls are executed on virtual threads.
+     *
+     * @return True if virtual threads are used.
+     */
+    public boolean isVirtualThreads() {
+
+        return virtualThreads;
+    }
+
+    /**
+     * Get the number of outbound calls in flight.
+     *
+     * @return Number of calls in flight.
+     */
+    public int getActiveCount() {
+
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Stop the executor. Calls in progress are interrupted.
+     */
+    public void shutdown() {
+
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+
+        try {
+            Method factoryMethod = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY_METHOD);
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual threads are not supported by the JVM. Using platform threads for the outbound " +
+                        "calls.", e);
+            }
+            return null;
+        }
+    }
+
+    private static ExecutorService createPlatformThreadExecutor() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-outbound-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes independent tasks of a request in parallel on a fixed number of daemon threads. The tasks are expected
+ * to block on I/O, such as token validation against remote key sets and session store updates, so the parallelism
+ * is sized by the concurrent calls the backing services can absorb rather than by the number of processors.
+ * The tenant of the calling thread is propagated to the Carbon context of the executing threads.
+ */
+public class ParallelTaskExecutor {
+
+    private final ExecutorService executor;
+
+    /**
+     * Create a parallel task executor.
+     *
+     * @param parallelism      Number of threads executing the tasks.
+     * @param threadNamePrefix Prefix of the thread names.
+     */
+    public ParallelTaskExecutor(int parallelism, String threadNamePrefix) {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Execute the tasks and wait until all of them complete or the timeout expires. Tasks that did not complete
+     * within the timeout are cancelled.
+     *
+     * @param tasks         Tasks to execute.
+     * @param timeoutMillis Maximum time in milliseconds to wait for the tasks.
+     * @param <V>           Result type.
+     * @return Futures of the tasks, in the order of the tasks.
+     * @throws InterruptedException If interrupted while waiting for the tasks.
+     */
+    public <V> List<Future<V>> invokeAll(List<? extends Callable<V>> tasks, long timeoutMillis)
+            throws InterruptedException {
+
+        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        List<Callable<V>> tenantTasks = new ArrayList<>(tasks.size());
+        for (Callable<V> task : tasks) {
+            tenantTasks.add(() -> {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    if (tenantDomain != null) {
+                        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain, true);
+                    }
+                    return task.call();
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            });
+        }
+        return executor.invokeAll(tenantTasks, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the executor. Tasks in progress are interrupted.
+     */
+    public void shutdown() {
+
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter with a bucket per key.
+ * Each bucket holds up to the burst size of permits and is refilled at a constant rate. The number of buckets is
+ * bounded, as the keys may come from unauthenticated input. When the limit is reached, the bucket of the least
+ * recently used key is evicted to make room for a new key, hence a key is never limited by the traffic of other keys.
+ * An evicted key starts again with a full bucket.
+ */
+public class RateLimiter {
+
+    private final Map<String, Bucket> buckets;
+    private final double permitsPerNano;
+    private final double burst;
+    private final int maxKeys;
+    private final AtomicLong permittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Create a rate limiter.
+     *
+     * @param permitsPerSecond Rate at which the permits of a key are refilled.
+     * @param burst            Maximum number of permits a key can accumulate.
+     * @param maxKeys          Maximum number of keys tracked at a time.
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 6142793457164939206L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+
+                return size() > RateLimiter.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Take a permit of the key.
+     *
+     * @param key Key.
+     * @return 0 if a permit was taken, otherwise the time in milliseconds until a permit is available.
+     */
+    public long tryAcquire(String key) {
+
+        long currentTime = System.nanoTime();
+        long waitTimeNanos = getBucket(key, currentTime).tryAcquire(currentTime);
+        if (waitTimeNanos == 0) {
+            permittedCount.incrementAndGet();
+            return 0;
+        }
+        rejectedCount.incrementAndGet();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitTimeNanos));
+    }
+
+    public long getPermittedCount() {
+
+        return permittedCount.get();
+    }
+
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+    /**
+     * Get the number of keys with a bucket.
+     *
+     * @return Number of tracked keys.
+     */
+    public int getTrackedKeyCount() {
+
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    private Bucket getBucket(String key, long currentTime) {
+
+        // Only the lookup is synchronized on the buckets. The permits are taken under the lock of the bucket.
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(burst, currentTime);
+                buckets.put(key, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    private class Bucket {
+
+        private double permits;
+        private long lastRefillTime;
+
+        private Bucket(double permits, long lastRefillTime) {
+
+            this.permits = permits;
+            this.lastRefillTime = lastRefillTime;
+        }
+
+        private synchronized long tryAcquire(long currentTime) {
+
+            refill(currentTime);
+            if (permits >= 1) {
+                permits--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - permits) / permitsPerNano);
+        }
+
+        private void refill(long currentTime) {
+
+            if (currentTime > lastRefillTime) {
+                permits = Math.min(burst, permits + (currentTime - lastRefillTime) * permitsPerNano);
+                lastRefillTime = currentTime;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.logging.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs errors sampled and rate limited per error code, so that an outage of a federated IdP does not make the
+ * synchronous log I/O a bottleneck.
+ * Within each window, up to the limit of errors of an error code are logged, of which only the first with its stack
+ * trace, and the rest are suppressed. The number of suppressed errors of a window is logged along with the first
+ * error of the error code in a later window. The counts of the errors are exact regardless of the sampling.
+ */
+public class SampledErrorLogger {
+
+    private final Map<String, ErrorCounter> counters = new ConcurrentHashMap<>();
+    private final long windowMillis;
+    private final int maxErrorsPerWindow;
+
+    /**
+     * Create a sampled error logger.
+     *
+     * @param windowMillis       Length of a window in milliseconds.
+     * @param maxErrorsPerWindow Maximum number of errors of an error code logged per window.
+     */
+    public SampledErrorLogger(long windowMillis, int maxErrorsPerWindow) {
+
+        this.windowMillis = windowMillis;
+        this.maxErrorsPerWindow = Math.max(1, maxErrorsPerWindow);
+    }
+
+    /**
+     * Log the error unless the limit of the error code is reached in the current window.
+     *
+     * @param log       Log to write to.
+     * @param errorCode Error code the errors are sampled by.
+     * @param message   Error message.
+     * @param e         Cause of the error.
+     */
+    public void error(Log log, String errorCode, String message, Throwable e) {
+
+        ErrorCounter counter = counters.computeIfAbsent(errorCode, key -> new ErrorCounter());
+        counter.errorCount.increment();
+        long currentTime = System.currentTimeMillis();
+        long suppressedInLastWindow = 0;
+        int loggedInWindow;
+        synchronized (counter) {
+            if (currentTime - counter.windowStartTime >= windowMillis) {
+                suppressedInLastWindow = counter.suppressedInWindow;
+                counter.windowStartTime = currentTime;
+                counter.loggedInWindow = 0;
+                counter.suppressedInWindow = 0;
+            }
+            loggedInWindow = counter.loggedInWindow;
+            if (loggedInWindow < maxErrorsPerWindow) {
+                counter.loggedInWindow++;
+            } else {
+                counter.suppressedInWindow++;
+            }
+        }
+        if (suppressedInLastWindow > 0) {
+            log.error(suppressedInLastWindow + " errors with the error code: " + errorCode + " were suppressed in " +
+                    "the last " + windowMillis + " ms.");
+        }
+        if (loggedInWindow == 0) {
+            log.error(message, e);
+        } else if (loggedInWindow < maxErrorsPerWindow) {
+            log.error(e != null ? message + " Cause: " + e : message);
+        } else {
+            counter.suppressedCount.increment();
+        }
+    }
+
+    /**
+     * Get the number of errors of the error code, including the suppressed errors.
+     *
+     * @param errorCode Error code.
+     * @return Number of errors.
+     */
+    public long getErrorCount(String errorCode) {
+
+        ErrorCounter counter = counters.get(errorCode);
+        return counter != null ? counter.errorCount.sum() : 0;
+    }
+
+    /**
+     * Get the number of errors of the error code which were not logged.
+     *
+     * @param errorCode Error code.
+     * @return Number of suppressed errors.
+     */
+    public long getSuppressedCount(String errorCode) {
+
+        ErrorCounter counter = counters.get(errorCode);
+        return counter != null ? counter.suppressedCount.sum() : 0;
+    }
+
+    private static class ErrorCounter {
+
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder suppressedCount = new LongAdder();
+        // Window state, guarded by the counter.
+        private long windowStartTime = Long.MIN_VALUE / 2;
+        private int loggedInWindow;
+        private long suppressedInWindow;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent executions of the same operation.
+ * The first caller for a key runs the operation, while the callers arriving during the execution wait for it and
+ * receive the same result. A successful result can optionally be retained for a short period, so that
+ * near-simultaneous duplicates are also served from the first execution. Failures are never retained.
+ * A caller waits for the execution it joined up to a maximum wait, after which it executes the operation itself, so
+ * that a stuck execution does not hold every caller of the key.
+ *
+ * @param <K> Key type.
+ * @param <V> Result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Call<V>> calls = new ConcurrentHashMap<>();
+    private final long retentionPeriodMillis;
+    private final int maxRetainedResults;
+    private final long maxWaitMillis;
+    private volatile long lastPurgeTime;
+
+    /**
+     * Operation executed by the single flight.
+     *
+     * @param <V> Result type.
+     * @param <E> Exception type thrown by the operation.
+     */
+    public interface Operation<V, E extends Exception> {
+
+        V execute() throws E;
+    }
+
+    /**
+     * Create a single flight that only coalesces concurrent executions.
+     *
+     * @param maxWaitMillis Maximum time in milliseconds a caller waits for the execution it joined.
+     */
+    public SingleFlight(long maxWaitMillis) {
+
+        this(0, 0, maxWaitMillis);
+    }
+
+    /**
+     * Create a single flight that retains successful results.
+     *
+     * @param retentionPeriodMillis Time in milliseconds a successful result is served to later callers.
+     * @param maxRetainedResults    Maximum number of results retained at a time.
+     * @param maxWaitMillis         Maximum time in milliseconds a caller waits for the execution it joined.
+     */
+    public SingleFlight(long retentionPeriodMillis, int maxRetainedResults, long maxWaitMillis) {
+
+        this.retentionPeriodMillis = retentionPeriodMillis;
+        this.maxRetainedResults = maxRetainedResults;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Execute the operation for the key, or join an execution that is in progress or recently completed.
+     *
+     * @param key       Key identifying the operation.
+     * @param operation Operation to execute.
+     * @param <E>       Exception type thrown by the operation.
+     * @return Result of the operation.
+     * @throws E If the operation failed.
+     */
+    public <E extends Exception> V execute(K key, Operation<V, E> operation) throws E {
+
+        long currentTime = System.currentTimeMillis();
+        purgeExpiredResults(currentTime);
+
+        Call<V> call = new Call<>();
+        Call<V> existingCall;
+        while ((existingCall = calls.putIfAbsent(key, call)) != null) {
+            if (!existingCall.isExpired(currentTime)) {
+                return join(existingCall, operation);
+            }
+            calls.remove(key, existingCall);
+        }
+
+        try {
+            V result = operation.execute();
+            if (retentionPeriodMillis > 0 && calls.size() <= maxRetainedResults) {
+                call.expiryTime = System.currentTimeMillis() + retentionPeriodMillis;
+            } else {
+                calls.remove(key, call);
+            }
+            call.future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            calls.remove(key, call);
+            call.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of executions in progress and retained results.
+     *
+     * @return Number of tracked calls.
+     */
+    public int size() {
+
+        return calls.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V join(Call<V> call, Operation<V, E> operation) throws E {
+
+        try {
+            return call.future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // Do not keep an interrupted caller waiting. Proceed without coalescing.
+            Thread.currentThread().interrupt();
+            return operation.execute();
+        } catch (TimeoutException e) {
+            // The joined execution may be stuck. Proceed without coalescing.
+            return operation.execute();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    private void purgeExpiredResults(long currentTime) {
+
+        if (retentionPeriodMillis <= 0 || currentTime - lastPurgeTime < retentionPeriodMillis) {
+            return;
+        }
+        lastPurgeTime = currentTime;
+        Iterator<Map.Entry<K, Call<V>>> iterator = calls.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isExpired(currentTime)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Call<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long expiryTime = Long.MAX_VALUE;
+
+        private boolean isExpired(long currentTime) {
+
+            return currentTime > expiryTime;
+        }
+    }
+}
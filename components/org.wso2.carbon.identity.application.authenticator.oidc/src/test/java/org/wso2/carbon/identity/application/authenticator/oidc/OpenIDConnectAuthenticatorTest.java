@@ -18,6 +18,7 @@
 
 package org.wso2.carbon.identity.application.authenticator.oidc;
 
+import com.ctc.wstx.stax.WstxInputFactory;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.LogFactory;
@@ -28,6 +29,7 @@ import org.apache.oltu.oauth2.client.response.OAuthClientResponse;
 import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
 import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
 import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
@@ -39,13 +41,16 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.ObjectFactory;
 import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.ExternalIdPConfig;
 import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
 import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
 import org.wso2.carbon.identity.application.authentication.framework.exception.FrameworkException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.OutboundCallExecutor;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataManagementService;
@@ -66,13 +71,18 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.xml.stream.XMLInputFactory;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -88,7 +98,8 @@ import static org.testng.Assert.assertTrue;
  */
 @PrepareForTest({LogFactory.class, OAuthClient.class, URL.class, FrameworkUtils.class,
         OpenIDConnectAuthenticatorDataHolder.class, OAuthAuthzResponse.class, OAuthClientRequest.class,
-        OAuthClientResponse.class, IdentityUtil.class, OpenIDConnectAuthenticator.class, ServiceURLBuilder.class})
+        OAuthClientResponse.class, IdentityUtil.class, OpenIDConnectAuthenticator.class, ServiceURLBuilder.class,
+        XMLInputFactory.class})
 public class OpenIDConnectAuthenticatorTest extends PowerMockTestCase {
 
     @Mock
@@ -170,6 +181,9 @@ public class OpenIDConnectAuthenticatorTest extends PowerMockTestCase {
     @BeforeTest
     public void init() {
 
+        mockStatic(XMLInputFactory.class);
+        when(XMLInputFactory.newInstance()).thenReturn(new WstxInputFactory());
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
         openIDConnectAuthenticator = new OpenIDConnectAuthenticator();
         authenticatorProperties = new HashMap<>();
         authenticatorProperties.put("callbackUrl", "http://localhost:8080/playground2/oauth2client");
@@ -451,6 +465,104 @@ public class OpenIDConnectAuthenticatorTest extends PowerMockTestCase {
                 mockServletResponse, mockAuthenticationContext);
     }
 
+    @Test
+    public void testProcessAuthenticationResponseWithAsyncUserInfo() throws Exception {
+
+        setupTest();
+        OutboundCallExecutor outboundCallExecutor = new OutboundCallExecutor(false, 2, 5000);
+        Map<String, String> parameters = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(OIDCAuthenticatorConstants.AUTHENTICATOR_NAME).getParameterMap();
+        parameters.put(OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_ASYNC_USER_INFO_REQUEST, "true");
+        try {
+            when(openIDConnectAuthenticatorDataHolder.getOutboundCallExecutor()).thenReturn(outboundCallExecutor);
+            when(openIDConnectAuthenticatorDataHolder.getClaimMetadataManagementService()).thenReturn
+                    (claimMetadataManagementService);
+            when(mockAuthenticationContext.getExternalIdP()).thenReturn(externalIdPConfig);
+            whenNew(OAuthClient.class).withAnyArguments().thenReturn(mockOAuthClient);
+            when(mockOAuthClient.accessToken(Matchers.<OAuthClientRequest>anyObject()))
+                    .thenReturn(mockOAuthJSONAccessTokenResponse);
+            when(mockOAuthJSONAccessTokenResponse.getParam(anyString())).thenReturn(idToken);
+
+            OpenIDConnectAuthenticator authenticator = spy(new OpenIDConnectAuthenticator());
+            String callerThread = Thread.currentThread().getName();
+            String[] userInfoThread = new String[1];
+            doAnswer(invocation -> {
+                userInfoThread[0] = Thread.currentThread().getName();
+                return "{\"email\":\"example@wso2.com\"}";
+            }).when(authenticator).sendRequest(any(String.class), any(String.class));
+
+            authenticator.processAuthenticationResponse(mockServletRequest, mockServletResponse,
+                    mockAuthenticationContext);
+
+            ArgumentCaptor<AuthenticatedUser> subject = ArgumentCaptor.forClass(AuthenticatedUser.class);
+            verify(mockAuthenticationContext).setSubject(subject.capture());
+            assertEquals(subject.getValue().getUserAttributes().get(ClaimMapping.build("email", "email", null,
+                    false)), "example@wso2.com", "The user info claims are not added to the subject.");
+            assertNotNull(userInfoThread[0]);
+            assertTrue(!callerThread.equals(userInfoThread[0]), "The user info request is not executed " +
+                    "asynchronously.");
+            assertEquals(outboundCallExecutor.getActiveCount(), 0);
+        } finally {
+            parameters.remove(OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_ASYNC_USER_INFO_REQUEST);
+            outboundCallExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncUserInfoRequestCancelledOnFailure() throws Exception {
+
+        setupTest();
+        OutboundCallExecutor outboundCallExecutor = new OutboundCallExecutor(false, 2, 5000);
+        Map<String, String> parameters = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(OIDCAuthenticatorConstants.AUTHENTICATOR_NAME).getParameterMap();
+        parameters.put(OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_ASYNC_USER_INFO_REQUEST, "true");
+        try {
+            when(openIDConnectAuthenticatorDataHolder.getOutboundCallExecutor()).thenReturn(outboundCallExecutor);
+            when(mockAuthenticationContext.getExternalIdP()).thenReturn(externalIdPConfig);
+            whenNew(OAuthClient.class).withAnyArguments().thenReturn(mockOAuthClient);
+            when(mockOAuthClient.accessToken(Matchers.<OAuthClientRequest>anyObject()))
+                    .thenReturn(mockOAuthJSONAccessTokenResponse);
+            when(mockOAuthJSONAccessTokenResponse.getParam(OIDCAuthenticatorConstants.ACCESS_TOKEN))
+                    .thenReturn(accessToken);
+            // An id token that can not be decoded.
+            when(mockOAuthJSONAccessTokenResponse.getParam(OIDCAuthenticatorConstants.ID_TOKEN))
+                    .thenReturn("malformed");
+
+            OpenIDConnectAuthenticator authenticator = spy(new OpenIDConnectAuthenticator());
+            CountDownLatch userInfoStarted = new CountDownLatch(1);
+            CountDownLatch userInfoInterrupted = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                userInfoStarted.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    userInfoInterrupted.countDown();
+                }
+                return "";
+            }).when(authenticator).sendRequest(any(String.class), any(String.class));
+
+            try {
+                authenticator.processAuthenticationResponse(mockServletRequest, mockServletResponse,
+                        mockAuthenticationContext);
+                Assert.fail("The malformed id token is not rejected.");
+            } catch (RuntimeException e) {
+                // Expected.
+            }
+            if (userInfoStarted.await(1, TimeUnit.SECONDS)) {
+                assertTrue(userInfoInterrupted.await(5, TimeUnit.SECONDS), "The user info request is not " +
+                        "cancelled.");
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (outboundCallExecutor.getActiveCount() != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(outboundCallExecutor.getActiveCount(), 0, "The user info request is leaked.");
+        } finally {
+            parameters.remove(OIDCAuthenticatorConstants.AuthenticatorConfParams.ENABLE_ASYNC_USER_INFO_REQUEST);
+            outboundCallExecutor.shutdown();
+        }
+    }
+
     @Test(dataProvider = "seperator")
     public void testBuildClaimMappings(String separator) throws Exception {
 
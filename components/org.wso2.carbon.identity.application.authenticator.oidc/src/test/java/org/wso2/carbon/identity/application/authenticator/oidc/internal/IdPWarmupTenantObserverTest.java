@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.internal;
+
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.IdPEndpointWarmer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit test class for IdPWarmupTenantObserver.
+ */
+@PrepareForTest({PrivilegedCarbonContext.class, OpenIDConnectAuthenticatorDataHolder.class})
+@PowerMockIgnore("jdk.internal.reflect.*")
+public class IdPWarmupTenantObserverTest extends PowerMockTestCase {
+
+    private static final String TENANT_DOMAIN = "wso2.com";
+
+    @Test
+    public void testWarmupOnTenantLoad() {
+
+        IdPEndpointWarmer idPEndpointWarmer = mock(IdPEndpointWarmer.class);
+        mockDataHolder(idPEndpointWarmer);
+        mockTenantDomain();
+
+        new IdPWarmupTenantObserver().createdConfigurationContext(null);
+
+        verify(idPEndpointWarmer).warmup(TENANT_DOMAIN);
+    }
+
+    @Test
+    public void testNoWarmupWhenDisabled() {
+
+        mockDataHolder(null);
+        PrivilegedCarbonContext privilegedCarbonContext = mockTenantDomain();
+
+        // Must not fail when the IdP warm-up is not enabled.
+        new IdPWarmupTenantObserver().createdConfigurationContext(null);
+
+        verify(privilegedCarbonContext, never()).getTenantDomain();
+    }
+
+    private void mockDataHolder(IdPEndpointWarmer idPEndpointWarmer) {
+
+        mockStatic(OpenIDConnectAuthenticatorDataHolder.class);
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mock(OpenIDConnectAuthenticatorDataHolder.class);
+        when(OpenIDConnectAuthenticatorDataHolder.getInstance()).thenReturn(dataHolder);
+        when(dataHolder.getIdPEndpointWarmer()).thenReturn(idPEndpointWarmer);
+    }
+
+    private PrivilegedCarbonContext mockTenantDomain() {
+
+        mockStatic(PrivilegedCarbonContext.class);
+        PrivilegedCarbonContext privilegedCarbonContext = mock(PrivilegedCarbonContext.class);
+        when(PrivilegedCarbonContext.getThreadLocalCarbonContext()).thenReturn(privilegedCarbonContext);
+        when(privilegedCarbonContext.getTenantDomain()).thenReturn(TENANT_DOMAIN);
+        return privilegedCarbonContext;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for FederatedSessionIndexJournal.
+ */
+public class FederatedSessionIndexJournalTest {
+
+    private static final String IDP_NAME = "Federated-IdP";
+    private static final long TIME_TO_LIVE = 60000;
+    private static final long MEMORY_BUDGET = 1024 * 1024;
+    private static final int JOURNAL_SIZE = 4096;
+    private static final long SNAPSHOT_INTERVAL = 3600000;
+    // Long enough for the queued changes to be only journaled when the tests flush them.
+    private static final long FLUSH_INTERVAL = 3600000;
+
+    @Test
+    public void testRecoverFromSnapshot() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE);
+            journal.start(SNAPSHOT_INTERVAL);
+            // Enough changes to rotate the journal a few times.
+            for (int i = 0; i < 200; i++) {
+                index.put(IDP_NAME, "sid-" + i, "session-" + i);
+            }
+            index.remove(IDP_NAME, "sid-0");
+            journal.shutdown();
+
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            assertNull(recoveredIndex.getSessionId(IDP_NAME, "sid-0"));
+            for (int i = 1; i < 200; i++) {
+                assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-" + i), "session-" + i);
+            }
+            recoveredJournal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testRecoverFromJournalWithoutShutdown() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE);
+            journal.start(SNAPSHOT_INTERVAL);
+            index.put(IDP_NAME, "sid-1", "session-1");
+            index.put(IDP_NAME, "sid-2", "session-2");
+            index.remove(IDP_NAME, "sid-2");
+
+            // The node stops without a final snapshot.
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-1"), "session-1");
+            assertNull(recoveredIndex.getSessionId(IDP_NAME, "sid-2"));
+            recoveredJournal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testCorruptedSnapshotIsIgnored() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE);
+            journal.start(SNAPSHOT_INTERVAL);
+            index.put(IDP_NAME, "sid-1", "session-1");
+            journal.shutdown();
+
+            Path snapshot = directory.resolve("snapshot.dat");
+            assertTrue(Files.exists(snapshot));
+            byte[] content = Files.readAllBytes(snapshot);
+            content[content.length / 2] ^= 0x1;
+            Files.write(snapshot, content);
+
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            assertNull(recoveredIndex.getSessionId(IDP_NAME, "sid-1"));
+            recoveredJournal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testWriteBehindChangesAreRecoveredAfterFlush() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE,
+                    FLUSH_INTERVAL, 100);
+            journal.start(SNAPSHOT_INTERVAL);
+            index.put(IDP_NAME, "sid-1", "session-1");
+            index.put(IDP_NAME, "sid-2", "session-2");
+            index.remove(IDP_NAME, "sid-2");
+            // The queued changes are visible to the lookups before they are journaled.
+            assertEquals(index.getSessionId(IDP_NAME, "sid-1"), "session-1");
+            assertNull(index.getSessionId(IDP_NAME, "sid-2"));
+            journal.flush();
+
+            // The node stops without a final snapshot.
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-1"), "session-1");
+            assertNull(recoveredIndex.getSessionId(IDP_NAME, "sid-2"));
+            recoveredJournal.shutdown();
+            journal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testWriteBehindKeepsTheOrderOfChangesWhenTheQueueIsFull() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE,
+                    FLUSH_INTERVAL, 2);
+            journal.start(SNAPSHOT_INTERVAL);
+            index.put(IDP_NAME, "sid-1", "session-1");
+            index.put(IDP_NAME, "sid-2", "session-2");
+            // Does not fit in the queue, hence appended right after the queued changes.
+            index.remove(IDP_NAME, "sid-1");
+            index.put(IDP_NAME, "sid-3", "session-3");
+            journal.flush();
+
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            assertNull(recoveredIndex.getSessionId(IDP_NAME, "sid-1"));
+            assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-2"), "session-2");
+            assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-3"), "session-3");
+            recoveredJournal.shutdown();
+            journal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    @Test
+    public void testWriteBehindChangesAreSnapshottedOnShutdown() throws Exception {
+
+        Path directory = Files.createTempDirectory("federated-session-index");
+        try {
+            OffHeapFederatedSessionIndex index = new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal journal = new FederatedSessionIndexJournal(index, directory, JOURNAL_SIZE,
+                    FLUSH_INTERVAL, 1000);
+            journal.start(SNAPSHOT_INTERVAL);
+            // Enough changes to rotate the journal a few times.
+            for (int i = 0; i < 200; i++) {
+                index.put(IDP_NAME, "sid-" + i, "session-" + i);
+            }
+            journal.shutdown();
+
+            OffHeapFederatedSessionIndex recoveredIndex =
+                    new OffHeapFederatedSessionIndex(TIME_TO_LIVE, MEMORY_BUDGET);
+            FederatedSessionIndexJournal recoveredJournal =
+                    new FederatedSessionIndexJournal(recoveredIndex, directory, JOURNAL_SIZE);
+            recoveredJournal.start(SNAPSHOT_INTERVAL);
+            for (int i = 0; i < 200; i++) {
+                assertEquals(recoveredIndex.getSessionId(IDP_NAME, "sid-" + i), "session-" + i);
+            }
+            recoveredJournal.shutdown();
+        } finally {
+            deleteDirectory(directory.toFile());
+        }
+    }
+
+    private void deleteDirectory(File directory) {
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Unit test class for FederatedUserIdCache.
+ */
+public class FederatedUserIdCacheTest {
+
+    @Test
+    public void testUserIdLookup() {
+
+        FederatedUserIdCache cache = new FederatedUserIdCache(60000, 10);
+        cache.put(-1234, 1, "alice", "user-1");
+        cache.put(-1234, 2, "alice", "user-2");
+        cache.put(1, 1, "alice", "user-3");
+
+        assertEquals(cache.getUserId(-1234, 1, "alice"), "user-1");
+        assertEquals(cache.getUserId(-1234, 2, "alice"), "user-2");
+        assertEquals(cache.getUserId(1, 1, "alice"), "user-3");
+        assertNull(cache.getUserId(-1234, 1, "bob"));
+
+        cache.clear();
+        assertNull(cache.getUserId(-1234, 1, "alice"));
+    }
+
+    @Test
+    public void testExpiredUserIdIsNotReturned() throws Exception {
+
+        FederatedUserIdCache cache = new FederatedUserIdCache(1, 10);
+        cache.put(-1234, 1, "alice", "user-1");
+        Thread.sleep(5);
+        assertNull(cache.getUserId(-1234, 1, "alice"));
+    }
+}
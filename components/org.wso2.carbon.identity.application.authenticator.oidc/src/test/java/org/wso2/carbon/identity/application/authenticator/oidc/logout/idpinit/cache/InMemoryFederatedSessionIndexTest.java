@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Unit test class for InMemoryFederatedSessionIndex.
+ */
+public class InMemoryFederatedSessionIndexTest {
+
+    private static final String IDP_NAME = "Federated-IdP";
+
+    @Test
+    public void testSessionLookupAndRemoval() {
+
+        FederatedSessionIndex index = new InMemoryFederatedSessionIndex(60000, 10);
+        index.put(IDP_NAME, "sid-1", "session-1");
+        index.put(IDP_NAME, "sid-2", "session-1");
+        index.put(IDP_NAME, "sid-3", "session-2");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-1"), "session-1");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-3"), "session-2");
+
+        index.removeSession("session-1");
+        assertNull(index.getSessionId(IDP_NAME, "sid-1"));
+        assertNull(index.getSessionId(IDP_NAME, "sid-2"));
+        assertEquals(index.getSessionId(IDP_NAME, "sid-3"), "session-2");
+        assertEquals(index.size(), 1);
+        assertNull(index.getSessionId("Other-IdP", "sid-3"));
+
+        index.remove(IDP_NAME, "sid-3");
+        assertNull(index.getSessionId(IDP_NAME, "sid-3"));
+    }
+
+    @Test
+    public void testIndexIsBounded() {
+
+        FederatedSessionIndex index = new InMemoryFederatedSessionIndex(60000, 2);
+        index.put(IDP_NAME, "sid-1", "session-1");
+        index.put(IDP_NAME, "sid-2", "session-2");
+        index.put(IDP_NAME, "sid-3", "session-3");
+        assertEquals(index.size(), 2);
+        // The least recently used sid is evicted to make room for the new sid.
+        assertNull(index.getSessionId(IDP_NAME, "sid-1"));
+        assertEquals(index.getSessionId(IDP_NAME, "sid-3"), "session-3");
+    }
+
+    @Test
+    public void testIndexStaysBoundedUnderChurn() {
+
+        FederatedSessionIndex index = new InMemoryFederatedSessionIndex(60000, 100);
+        for (int i = 0; i < 10000; i++) {
+            index.put(IDP_NAME, "sid-" + i, "session-" + i);
+        }
+        assertEquals(index.size(), 100);
+        assertNull(index.getSessionId(IDP_NAME, "sid-0"));
+        assertEquals(index.getSessionId(IDP_NAME, "sid-9999"), "session-9999");
+
+        // The sids of a recent session are still removed with the session.
+        index.removeSession("session-9999");
+        assertNull(index.getSessionId(IDP_NAME, "sid-9999"));
+        assertEquals(index.size(), 99);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache.ResolvedIdP;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for IssuerIdPCacheInvalidationListener.
+ */
+public class IssuerIdPCacheInvalidationListenerTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String OTHER_TENANT_DOMAIN = "other.tenant";
+    private static final String ISSUER = "https://federated.example.com";
+
+    private IssuerIdPCache issuerIdPCache;
+    private IssuerIdPCacheInvalidationListener listener;
+
+    @BeforeMethod
+    public void setUp() {
+
+        issuerIdPCache = new IssuerIdPCache(60000, 60000, 10, 2);
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setIssuerIdPCache(issuerIdPCache);
+        listener = new IssuerIdPCacheInvalidationListener();
+        cacheIssuer(TENANT_DOMAIN);
+        cacheIssuer(OTHER_TENANT_DOMAIN);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setIssuerIdPCache(null);
+    }
+
+    @Test
+    public void testInvalidatedOnAdd() throws Exception {
+
+        assertTrue(listener.doPostAddIdP(new IdentityProvider(), TENANT_DOMAIN));
+        assertInvalidated();
+    }
+
+    @Test
+    public void testInvalidatedOnUpdate() throws Exception {
+
+        assertTrue(listener.doPostUpdateIdP("Federated-IdP", new IdentityProvider(), TENANT_DOMAIN));
+        assertInvalidated();
+    }
+
+    @Test
+    public void testInvalidatedOnDelete() throws Exception {
+
+        assertTrue(listener.doPostDeleteIdP("Federated-IdP", TENANT_DOMAIN));
+        assertInvalidated();
+    }
+
+    @Test
+    public void testInvalidatedOnResidentIdPUpdate() throws Exception {
+
+        assertTrue(listener.doPostUpdateResidentIdP(new IdentityProvider(), TENANT_DOMAIN));
+        assertInvalidated();
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder.getInstance().setIssuerIdPCache(null);
+        assertTrue(listener.doPostUpdateIdP("Federated-IdP", new IdentityProvider(), TENANT_DOMAIN));
+    }
+
+    private void cacheIssuer(String tenantDomain) {
+
+        IdentityProvider identityProvider = new IdentityProvider();
+        identityProvider.setId("1");
+        issuerIdPCache.put(issuerIdPCache.getTenantCache(tenantDomain), ISSUER,
+                new ResolvedIdP(identityProvider, "client"));
+    }
+
+    private void assertInvalidated() {
+
+        assertNull(issuerIdPCache.getTenantCache(TENANT_DOMAIN).get(ISSUER));
+        assertNotNull(issuerIdPCache.getTenantCache(OTHER_TENANT_DOMAIN).get(ISSUER));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache.ResolvedIdP;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache.TenantCache;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit test class for IssuerIdPCache.
+ */
+public class IssuerIdPCacheTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String ISSUER = "https://federated.example.com";
+
+    @Test
+    public void testResolvedIssuerLookup() {
+
+        IssuerIdPCache cache = new IssuerIdPCache(60000, 60000, 10, 2);
+        ResolvedIdP resolvedIdP = createResolvedIdP("1");
+        TenantCache tenantCache = cache.getTenantCache(TENANT_DOMAIN);
+        assertNull(tenantCache.get(ISSUER));
+
+        cache.put(tenantCache, ISSUER, resolvedIdP);
+        assertSame(cache.getTenantCache(TENANT_DOMAIN).get(ISSUER), resolvedIdP);
+        assertNull(cache.getTenantCache("other.tenant").get(ISSUER));
+    }
+
+    @Test
+    public void testUnknownIssuersDoNotEvictResolvedIssuers() {
+
+        IssuerIdPCache cache = new IssuerIdPCache(60000, 60000, 10, 2);
+        TenantCache tenantCache = cache.getTenantCache(TENANT_DOMAIN);
+        ResolvedIdP resolvedIdP = createResolvedIdP("1");
+        cache.put(tenantCache, ISSUER, resolvedIdP);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(tenantCache, "https://unknown-" + i, ResolvedIdP.unresolved());
+        }
+        assertSame(tenantCache.get(ISSUER), resolvedIdP);
+        // Only the most recent unknown issuers are kept.
+        assertSame(tenantCache.get("https://unknown-99"), ResolvedIdP.unresolved());
+        assertNull(tenantCache.get("https://unknown-0"));
+    }
+
+    @Test
+    public void testUnknownIssuerExpires() throws Exception {
+
+        IssuerIdPCache cache = new IssuerIdPCache(60000, 1, 10, 2);
+        TenantCache tenantCache = cache.getTenantCache(TENANT_DOMAIN);
+        cache.put(tenantCache, ISSUER, ResolvedIdP.unresolved());
+        Thread.sleep(5);
+        assertNull(tenantCache.get(ISSUER));
+    }
+
+    @Test
+    public void testResolvedIssuerReplacesUnknownIssuer() {
+
+        IssuerIdPCache cache = new IssuerIdPCache(60000, 60000, 10, 2);
+        TenantCache tenantCache = cache.getTenantCache(TENANT_DOMAIN);
+        cache.put(tenantCache, ISSUER, ResolvedIdP.unresolved());
+        assertFalse(tenantCache.get(ISSUER).isResolved());
+
+        ResolvedIdP resolvedIdP = createResolvedIdP("1");
+        cache.put(tenantCache, ISSUER, resolvedIdP);
+        assertSame(tenantCache.get(ISSUER), resolvedIdP);
+    }
+
+    @Test
+    public void testInvalidationDiscardsTenantCache() {
+
+        IssuerIdPCache cache = new IssuerIdPCache(60000, 60000, 10, 2);
+        TenantCache tenantCache = cache.getTenantCache(TENANT_DOMAIN);
+        TenantCache otherTenantCache = cache.getTenantCache("other.tenant");
+        cache.put(tenantCache, ISSUER, createResolvedIdP("1"));
+        cache.put(otherTenantCache, ISSUER, createResolvedIdP("2"));
+
+        cache.invalidate(TENANT_DOMAIN);
+        assertNotSame(cache.getTenantCache(TENANT_DOMAIN), tenantCache);
+        assertNull(cache.getTenantCache(TENANT_DOMAIN).get(ISSUER));
+        assertSame(cache.getTenantCache("other.tenant"), otherTenantCache);
+
+        // A resolution that was in progress during the invalidation only populates the discarded cache.
+        cache.put(tenantCache, ISSUER, createResolvedIdP("3"));
+        assertNull(cache.getTenantCache(TENANT_DOMAIN).get(ISSUER));
+
+        cache.invalidateAll();
+        assertNull(cache.getTenantCache("other.tenant").get(ISSUER));
+    }
+
+    private static ResolvedIdP createResolvedIdP(String id) {
+
+        IdentityProvider identityProvider = new IdentityProvider();
+        identityProvider.setId(id);
+        identityProvider.setIdentityProviderName("Federated-IdP-" + id);
+        return new ResolvedIdP(identityProvider, "client-" + id);
+    }
+}
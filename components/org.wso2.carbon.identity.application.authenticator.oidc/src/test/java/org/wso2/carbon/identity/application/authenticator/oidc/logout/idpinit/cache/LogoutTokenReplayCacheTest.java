@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for LogoutTokenReplayCache.
+ */
+public class LogoutTokenReplayCacheTest {
+
+    @Test
+    public void testProcessedLogoutTokenIsRemembered() {
+
+        LogoutTokenReplayCache cache = new LogoutTokenReplayCache(60000, 10);
+        long expiryTime = System.currentTimeMillis() + 30000;
+        assertTrue(cache.add("issuer\njti-1", expiryTime));
+
+        assertTrue(cache.contains("issuer\njti-1"));
+        assertFalse(cache.contains("issuer\njti-2"));
+        assertFalse(cache.contains("other-issuer\njti-1"));
+    }
+
+    @Test
+    public void testExpiryIsLimitedToMaxTimeToLive() throws Exception {
+
+        LogoutTokenReplayCache cache = new LogoutTokenReplayCache(50, 10);
+        assertTrue(cache.add("issuer\njti-1", System.currentTimeMillis() + 60000));
+        Thread.sleep(100);
+        assertFalse(cache.contains("issuer\njti-1"));
+        assertFalse(cache.add("issuer\njti-2", System.currentTimeMillis() - 1));
+    }
+
+    @Test
+    public void testExpiredEntriesAreRemoved() throws Exception {
+
+        LogoutTokenReplayCache cache = new LogoutTokenReplayCache(100, 10);
+        assertTrue(cache.add("issuer\njti-1", System.currentTimeMillis() + 100));
+        assertEquals(cache.size(), 1);
+        // Wait until the wheel advances past the tick of the expiry.
+        Thread.sleep(2100);
+        assertTrue(cache.add("issuer\njti-2", System.currentTimeMillis() + 100));
+        assertEquals(cache.size(), 1);
+        assertTrue(cache.contains("issuer\njti-2"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+
+        LogoutTokenReplayCache cache = new LogoutTokenReplayCache(60000, 2);
+        long expiryTime = System.currentTimeMillis() + 30000;
+        assertTrue(cache.add("issuer\njti-1", expiryTime));
+        assertTrue(cache.add("issuer\njti-2", expiryTime));
+        assertFalse(cache.add("issuer\njti-3", expiryTime));
+        assertFalse(cache.contains("issuer\njti-3"));
+    }
+}
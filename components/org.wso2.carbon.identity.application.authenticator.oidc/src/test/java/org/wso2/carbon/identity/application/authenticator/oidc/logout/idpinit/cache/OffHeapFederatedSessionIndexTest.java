@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for OffHeapFederatedSessionIndex.
+ */
+public class OffHeapFederatedSessionIndexTest {
+
+    private static final String IDP_NAME = "Federated-IdP";
+
+    @Test
+    public void testPutGetAndRemove() {
+
+        FederatedSessionIndex index = new OffHeapFederatedSessionIndex(60000, 1024 * 1024);
+        index.put(IDP_NAME, "sid-1", "session-1");
+        index.put(IDP_NAME, "sid-2", "session-2");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-1"), "session-1");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-2"), "session-2");
+        assertNull(index.getSessionId("Other-IdP", "sid-1"));
+
+        index.put(IDP_NAME, "sid-1", "session-3");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-1"), "session-3");
+        assertEquals(index.size(), 2);
+
+        index.remove(IDP_NAME, "sid-1");
+        assertNull(index.getSessionId(IDP_NAME, "sid-1"));
+        assertEquals(index.size(), 1);
+
+        index.clear();
+        assertNull(index.getSessionId(IDP_NAME, "sid-2"));
+    }
+
+    @Test
+    public void testLongSessionIdIsNotIndexed() {
+
+        FederatedSessionIndex index = new OffHeapFederatedSessionIndex(60000, 1024 * 1024);
+        StringBuilder sessionId = new StringBuilder();
+        for (int i = 0; i <= OffHeapFederatedSessionIndex.MAX_SESSION_ID_LENGTH; i++) {
+            sessionId.append('a');
+        }
+        index.put(IDP_NAME, "sid-1", sessionId.toString());
+        assertNull(index.getSessionId(IDP_NAME, "sid-1"));
+    }
+
+    @Test
+    public void testExpiredEntriesAreReplaced() throws Exception {
+
+        // A single slot per segment.
+        FederatedSessionIndex index = new OffHeapFederatedSessionIndex(50, 64 * OffHeapFederatedSessionIndex.SLOT_SIZE);
+        for (int i = 0; i < 1000; i++) {
+            index.put(IDP_NAME, "sid-" + i, "session-" + i);
+        }
+        assertTrue(index.size() <= 64);
+
+        Thread.sleep(100);
+        index.put(IDP_NAME, "sid-new", "session-new");
+        assertEquals(index.getSessionId(IDP_NAME, "sid-new"), "session-new");
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception {
+
+        FederatedSessionIndex index = new OffHeapFederatedSessionIndex(60000, 4 * 1024 * 1024);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                int writerId = writer;
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        index.put(IDP_NAME, "sid-" + writerId + "-" + i, "session-" + writerId + "-" + i);
+                    }
+                }));
+            }
+            for (int reader = 0; reader < 4; reader++) {
+                int writerId = reader;
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        String sessionId = index.getSessionId(IDP_NAME, "sid-" + writerId + "-" + i);
+                        assertTrue(sessionId == null || sessionId.equals("session-" + writerId + "-" + i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        for (int writer = 0; writer < 4; writer++) {
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(index.getSessionId(IDP_NAME, "sid-" + writer + "-" + i), "session-" + writer + "-" + i);
+            }
+        }
+    }
+}
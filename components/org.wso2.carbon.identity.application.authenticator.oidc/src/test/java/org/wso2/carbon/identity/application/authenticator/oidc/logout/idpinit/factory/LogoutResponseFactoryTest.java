@@ -29,6 +29,7 @@ import org.wso2.carbon.identity.application.authentication.framework.inbound.Htt
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutClientException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutServerException;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.StacklessLogoutClientException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutResponse;
 import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages;
 
@@ -97,4 +98,22 @@ public class LogoutResponseFactoryTest extends PowerMockTestCase {
         assertEquals(reponseBody.get("code"), (long) HttpServletResponse.SC_BAD_REQUEST);
         assertEquals(reponseBody.get("description"), ErrorMessages.LOGOUT_CLIENT_EXCEPTION.getMessage());
     }
+
+    @Test
+    public void testHandleStacklessClientException() throws ParseException {
+
+        LogoutClientException exception = new StacklessLogoutClientException(
+                ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getCode(),
+                ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getMessage());
+        assertEquals(exception.getStackTrace().length, 0);
+
+        HttpIdentityResponse.HttpIdentityResponseBuilder builder = logoutResponseFactory.handleException(exception);
+        JSONParser parser = new JSONParser(JSONParser.MODE_JSON_SIMPLE);
+        JSONObject reponseBody = (JSONObject) parser.parse(builder.build().getBody());
+        assertEquals(reponseBody.get("message"), "Invalid request.");
+        assertEquals(reponseBody.get("code"), (long) HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals(reponseBody.get("description"),
+                ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getMessage());
+        assertTrue(reponseBody.containsKey("traceId"));
+    }
 }
@@ -21,7 +21,9 @@ package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.p
 import com.ctc.wstx.stax.WstxInputFactory;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.lang.StringUtils;
 import org.mockito.Mock;
@@ -36,14 +38,27 @@ import org.testng.annotations.Test;
 import org.wso2.carbon.identity.application.authentication.framework.ServerSessionManagementService;
 import org.wso2.carbon.identity.application.authentication.framework.UserSessionManagementService;
 import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.context.SessionContext;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityRequest;
 import org.wso2.carbon.identity.application.authentication.framework.store.UserSessionStore;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants;
 import org.wso2.carbon.identity.application.authenticator.oidc.TestUtils;
 import org.wso2.carbon.identity.application.authenticator.oidc.internal.OpenIDConnectAuthenticatorDataHolder;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.FederatedSidFilter;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.InMemoryFederatedSessionIndex;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.IssuerIdPCache;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.cache.LogoutTokenReplayCache;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutClientException;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.exception.LogoutServerException;
 import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutRequest;
+import org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.model.LogoutResponse;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.Bulkhead;
 import org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.ParallelTaskExecutor;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.RateLimiter;
+import org.wso2.carbon.identity.application.authenticator.oidc.util.SingleFlight;
 import org.wso2.carbon.identity.application.common.model.FederatedAuthenticatorConfig;
 import org.wso2.carbon.identity.application.common.model.IdentityProvider;
 import org.wso2.carbon.identity.application.common.model.IdentityProviderProperty;
@@ -68,16 +83,26 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 import javax.xml.stream.XMLInputFactory;
 
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.wso2.carbon.identity.application.authenticator.oidc.util.OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_AUD_CLAIM_VALIDATION_FAILED;
@@ -110,6 +135,10 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
     private static Map<String, BasicDataSource> dataSourceMap = new HashMap<>();
     private static final String DB_NAME = "testOIDCSLO";
     private static final String BACK_CHANNEL_LOGOUT_EVENT = "http://schemas.openid.net/event/backchannel-logout";
+    private static final String ISSUER = "https://federatedwso2.com:9444/oauth2/token";
+    private static final String IDP_NAME = "Federated-IdP";
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String TRACE_ID = "batch-logout-trace-id";
     private static final String logoutToken =
             "eyJ4NXQiOiJPV0psWmpJME5qSTROR0ZpTVRBNU9UZ3dPR00xTTJJeE5UWmpNekk0TldJeE5EY3dOMkV5TVRNNE5HWmlaVGxoTXpJMFl6a" +
                     "GpaRFJrWXpoaVl6ZGhPQSIsImtpZCI6Ik9XSmxaakkwTmpJNE5HRmlNVEE1T1Rnd09HTTFNMkl4TlRaak16STROV0l4TkRjd0" +
@@ -167,7 +196,7 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
         when(mockIdentityProvider.getDefaultAuthenticatorConfig()).thenReturn(federatedAuthenticatorConfig);
         try {
             WhiteboxImpl.invokeMethod(logoutProcessor, "validateAudience", auds,
-                    mockIdentityProvider);
+                    WhiteboxImpl.<String>invokeMethod(logoutProcessor, "getClientId", mockIdentityProvider));
         } catch (LogoutClientException e) {
             fail();
         }
@@ -187,7 +216,7 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
         when(mockIdentityProvider.getDefaultAuthenticatorConfig()).thenReturn(federatedAuthenticatorConfig);
         try {
             WhiteboxImpl.invokeMethod(logoutProcessor, "validateAudience", auds,
-                    mockIdentityProvider);
+                    WhiteboxImpl.<String>invokeMethod(logoutProcessor, "getClientId", mockIdentityProvider));
             fail();
         } catch (LogoutClientException e) {
             assertEquals(e.getMessage(), LOGOUT_TOKEN_AUD_CLAIM_VALIDATION_FAILED.getMessage());
@@ -286,12 +315,38 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
         }
     }
 
+    @Test()
+    public void testValidateNullEvent() throws Exception {
+
+        try {
+            WhiteboxImpl.invokeMethod(logoutProcessor, "validateEventClaim", (JSONObject) null);
+            fail();
+        } catch (LogoutClientException e) {
+            assertEquals(e.getMessage(),
+                    OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_EVENT_CLAIM_VALIDATION_FAILED.getMessage());
+        }
+    }
+
+    @Test()
+    public void testOversizedLogoutToken() throws Exception {
+
+        LogoutRequest logoutRequest = mock(LogoutRequest.class);
+        when(logoutRequest.getParameter("logout_token")).thenReturn(StringUtils.repeat("a", 16385));
+        try {
+            logoutProcessor.handleOIDCFederatedLogoutRequest(logoutRequest);
+            fail();
+        } catch (LogoutClientException e) {
+            assertEquals(e.getMessage(),
+                    OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_SIZE_LIMIT_EXCEEDED.getMessage());
+        }
+    }
+
     @Test()
     public void testValidIat() throws Exception {
 
         try {
-            WhiteboxImpl.invokeMethod(logoutProcessor, "validateIat",
-                    new Date());
+            WhiteboxImpl.invokeMethod(logoutProcessor, "validateIat", new Date(),
+                    logoutProcessor.getAuthenticatorConfig().getParameterMap());
         } catch (LogoutClientException e) {
             fail();
         }
@@ -303,7 +358,8 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
         try {
             Date currentDate = new Date();
             Date pastTime = new Date(currentDate.getTime() - (40 * 60 * 1000));
-            WhiteboxImpl.invokeMethod(logoutProcessor, "validateIat", pastTime);
+            WhiteboxImpl.invokeMethod(logoutProcessor, "validateIat", pastTime,
+                    logoutProcessor.getAuthenticatorConfig().getParameterMap());
             fail();
         } catch (LogoutClientException e) {
             assertEquals(e.getMessage(),
@@ -563,4 +619,596 @@ public class FederatedIdpInitLogoutProcessorTest extends PowerMockTestCase {
 
         assertNotNull(logoutProcessor.handleOIDCFederatedLogoutRequest(mockLogoutRequest));
     }
+
+    @Test
+    public void testIdentityProviderResolvedFromCache() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        when(dataHolder.getIssuerIdPCache()).thenReturn(new IssuerIdPCache(60000, 60000, 10, 10));
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        IdentityProviderManager identityProviderManager = mockIdentityProviderManager(identityProvider);
+        String sid = UUID.randomUUID().toString();
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminCache", true, sid));
+
+        // The first logout token resolves the identity provider and the second one is served from the cache.
+        for (int i = 0; i < 2; i++) {
+            federatedSessionIndex.put(IDP_NAME, sid, "session-" + i);
+            LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+            assertEquals(logoutResponse.getStatusCode(), 200);
+            assertEquals(logoutResponse.getMessage(), OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+        }
+        verify(identityProviderManager, times(1)).getIdPByMetadataProperty(
+                IdentityApplicationConstants.IDP_ISSUER_NAME, ISSUER, TENANT_DOMAIN, false);
+    }
+
+    @Test
+    public void testUnknownIssuerResolvedFromCache() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        when(dataHolder.getIssuerIdPCache()).thenReturn(new IssuerIdPCache(60000, 60000, 10, 10));
+        IdentityProviderManager identityProviderManager = mockIdentityProviderManager(null);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminUnknownIssuer", true,
+                UUID.randomUUID().toString()));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                logoutProcessor.handleOIDCFederatedLogoutRequest(logoutRequest);
+                fail("A logout token of an unknown issuer is accepted.");
+            } catch (LogoutServerException e) {
+                assertEquals(e.getErrorCode(),
+                        OIDCErrorConstants.ErrorMessages.NO_REGISTERED_IDP_FOR_ISSUER.getCode());
+            }
+        }
+        verify(identityProviderManager, times(1)).getIdPByName(ISSUER, TENANT_DOMAIN);
+    }
+
+    @Test
+    public void testSessionLookupSkippedBySidFilter() throws Exception {
+
+        String sessionId = UUID.randomUUID().toString();
+        String sid = UUID.randomUUID().toString();
+        setupSessionStore(UUID.randomUUID().toString(), "adminSidFilter", sessionId, sid);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenAnswer(invocation -> getConnection(DB_NAME));
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        FederatedSidFilter federatedSidFilter = mock(FederatedSidFilter.class);
+        when(dataHolder.getFederatedSidFilter()).thenReturn(federatedSidFilter);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminSidFilter", true, sid));
+
+        // A sid rejected by the filter is not looked up, even though its session is in the session store.
+        when(federatedSidFilter.mightContain(sid)).thenReturn(false);
+        LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+        assertEquals(logoutResponse.getStatusCode(), 200);
+        assertEquals(logoutResponse.getMessage(), StringUtils.EMPTY);
+        verify(serverSessionManagementService, never()).removeSession(anyString());
+        verify(federatedSidFilter, never()).recordLookup(anyBoolean());
+
+        // A sid passed by the filter is looked up in the session store.
+        when(federatedSidFilter.mightContain(sid)).thenReturn(true);
+        logoutResponse = handleLogoutRequest(logoutRequest);
+        assertEquals(logoutResponse.getMessage(), OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+        verify(serverSessionManagementService).removeSession(sessionId);
+        verify(federatedSidFilter).recordLookup(true);
+    }
+
+    @Test
+    public void testStaleIndexedSessionFallsBackToSessionStore() throws Exception {
+
+        String sessionId = UUID.randomUUID().toString();
+        String sid = UUID.randomUUID().toString();
+        setupSessionStore(UUID.randomUUID().toString(), "adminStaleIndex", sessionId, sid);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenAnswer(invocation -> getConnection(DB_NAME));
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        // The indexed session ended on another node, where a later login through the same IdP session mapped the sid
+        // to a new session.
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, sid, "ended-session");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        when(FrameworkUtils.getSessionContextFromCache("ended-session", TENANT_DOMAIN)).thenReturn(null);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminStaleIndex", true, sid));
+
+        LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+
+        assertEquals(logoutResponse.getStatusCode(), 200);
+        assertEquals(logoutResponse.getMessage(), OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+        verify(serverSessionManagementService).removeSession(sessionId);
+        verify(serverSessionManagementService, never()).removeSession("ended-session");
+        assertNull(federatedSessionIndex.getSessionId(IDP_NAME, sid));
+    }
+
+    @Test
+    public void testBatchLogoutTerminatesEachSessionOnce() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-a", "batch-session-a");
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-b", "batch-session-b");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        IdentityProviderManager identityProviderManager = mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareBatchLogoutRequest(
+                generateLogoutToken("adminBatch", true, "batch-sid-a"),
+                generateLogoutToken("adminBatch", true, "batch-sid-a"),
+                generateLogoutToken("adminBatch", true, "batch-sid-b"),
+                new JWTClaimsSet.Builder(generateLogoutToken("adminBatch", true, "batch-sid-c"))
+                        .issuer("https://unknown.com/oauth2/token").build(),
+                new JWTClaimsSet.Builder(generateLogoutToken("adminBatch", true, "batch-sid-d"))
+                        .claim("nonce", "batch-nonce").build());
+
+        JSONArray results = handleBatchLogoutRequest(logoutRequest);
+        assertEquals(results.size(), 5);
+        assertBatchLogoutResult(results, 0, 200, null);
+        assertBatchLogoutResult(results, 1, 200, null);
+        assertBatchLogoutResult(results, 2, 200, null);
+        assertBatchLogoutResult(results, 3, 500,
+                OIDCErrorConstants.ErrorMessages.NO_REGISTERED_IDP_FOR_ISSUER.getCode());
+        assertBatchLogoutResult(results, 4, 400,
+                OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_NONCE_CLAIM_VALIDATION_FAILED.getCode());
+        // The identity provider is resolved once per issuer and a session is terminated once per batch.
+        verify(identityProviderManager, times(1)).getIdPByMetadataProperty(
+                IdentityApplicationConstants.IDP_ISSUER_NAME, ISSUER, TENANT_DOMAIN, false);
+        verify(serverSessionManagementService, times(1)).removeSession("batch-session-a");
+        verify(serverSessionManagementService, times(1)).removeSession("batch-session-b");
+    }
+
+    @Test
+    public void testBatchLogoutSessionTerminationFailureIsolated() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        when(serverSessionManagementService.removeSession("batch-session-b"))
+                .thenThrow(new IllegalStateException("Session store unavailable."));
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-a", "batch-session-a");
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-b", "batch-session-b");
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-c", "batch-session-c");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareBatchLogoutRequest(
+                generateLogoutToken("adminBatch", true, "batch-sid-a"),
+                generateLogoutToken("adminBatch", true, "batch-sid-b"),
+                generateLogoutToken("adminBatch", true, "batch-sid-c"));
+
+        JSONArray results = handleBatchLogoutRequest(logoutRequest);
+        assertBatchLogoutResult(results, 0, 200, null);
+        assertBatchLogoutResult(results, 1, 500,
+                OIDCErrorConstants.ErrorMessages.FEDERATED_SESSION_TERMINATION_FAILED.getCode());
+        assertBatchLogoutResult(results, 2, 200, null);
+        verify(serverSessionManagementService).removeSession("batch-session-c");
+        // The index still maps the sid of the session which could not be removed, so that a retry finds it.
+        assertEquals(federatedSessionIndex.getSessionId(IDP_NAME, "batch-sid-b"), "batch-session-b");
+    }
+
+    @Test
+    public void testBatchLogoutTerminatesSessionsOfUserOnce() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        UserSessionManagementService userSessionManagementService = mock(UserSessionManagementService.class);
+        when(dataHolder.getUserSessionManagementService()).thenReturn(userSessionManagementService);
+        mockStatic(UserSessionStore.class);
+        UserSessionStore userSessionStore = mock(UserSessionStore.class);
+        when(UserSessionStore.getInstance()).thenReturn(userSessionStore);
+        when(userSessionStore.getFederatedUserId("adminBatchUser", -1234, 1)).thenReturn("batch-user-id");
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareBatchLogoutRequest(
+                generateLogoutToken("adminBatchUser", false, null),
+                generateLogoutToken("adminBatchUser", false, null));
+
+        JSONArray results = handleBatchLogoutRequest(logoutRequest);
+        assertBatchLogoutResult(results, 0, 200, null);
+        assertBatchLogoutResult(results, 1, 200, null);
+        verify(userSessionManagementService, times(1)).terminateSessionsByUserId("batch-user-id");
+    }
+
+    @Test
+    public void testBatchLogoutValidationTimeout() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-a", "batch-session-a");
+        federatedSessionIndex.put(IDP_NAME, "batch-sid-b", "batch-session-b");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        ParallelTaskExecutor batchLogoutExecutor = new ParallelTaskExecutor(2, "batch-logout-test");
+        when(dataHolder.getBatchLogoutExecutor()).thenReturn(batchLogoutExecutor);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareBatchLogoutRequest(
+                generateLogoutToken("adminBatch", true, "batch-sid-a"),
+                generateLogoutToken("adminBatch", true, "batch-sid-b"));
+        // The signature validation of the second logout token does not complete within the timeout.
+        SignedJWT slowSignedJWT = SignedJWT.parse("batch-logout-token-1");
+        when(JWTSignatureValidationUtils.validateSignature(slowSignedJWT, identityProvider)).thenAnswer(invocation -> {
+            Thread.sleep(10000);
+            return true;
+        });
+        Map<String, String> parameters = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(OIDCAuthenticatorConstants.AUTHENTICATOR_NAME).getParameterMap();
+        parameters.put(OIDCAuthenticatorConstants.BackchannelLogout.BATCH_LOGOUT_VALIDATION_TIMEOUT, "200");
+        try {
+            long startTime = System.currentTimeMillis();
+            JSONArray results = handleBatchLogoutRequest(logoutRequest);
+            assertTrue(System.currentTimeMillis() - startTime < 5000, "The batch waited for the slow validation.");
+            assertBatchLogoutResult(results, 0, 200, null);
+            assertBatchLogoutResult(results, 1, 500,
+                    OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_VALIDATION_INCOMPLETE.getCode());
+            verify(serverSessionManagementService).removeSession("batch-session-a");
+            verify(serverSessionManagementService, never()).removeSession("batch-session-b");
+        } finally {
+            parameters.remove(OIDCAuthenticatorConstants.BackchannelLogout.BATCH_LOGOUT_VALIDATION_TIMEOUT);
+            batchLogoutExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReplayedLogoutTokenAcknowledged() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        LogoutTokenReplayCache logoutTokenReplayCache = new LogoutTokenReplayCache(60000, 10);
+        when(dataHolder.getLogoutTokenReplayCache()).thenReturn(logoutTokenReplayCache);
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "replay-sid", "replay-session");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminReplay", true, "replay-sid"));
+
+        for (int i = 0; i < 2; i++) {
+            LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+            assertEquals(logoutResponse.getStatusCode(), 200);
+            assertEquals(logoutResponse.getMessage(), OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+        }
+        // The redelivered logout token is acknowledged without terminating the session again.
+        verify(serverSessionManagementService, times(1)).removeSession("replay-session");
+        assertEquals(logoutTokenReplayCache.size(), 1);
+    }
+
+    @Test
+    public void testFailedLogoutTokenNotRemembered() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        UserSessionManagementService userSessionManagementService = mock(UserSessionManagementService.class);
+        when(dataHolder.getUserSessionManagementService()).thenReturn(userSessionManagementService);
+        LogoutTokenReplayCache logoutTokenReplayCache = new LogoutTokenReplayCache(60000, 10);
+        when(dataHolder.getLogoutTokenReplayCache()).thenReturn(logoutTokenReplayCache);
+        mockStatic(UserSessionStore.class);
+        UserSessionStore userSessionStore = mock(UserSessionStore.class);
+        when(UserSessionStore.getInstance()).thenReturn(userSessionStore);
+        // The federated user is only found by the redelivery of the logout token.
+        when(userSessionStore.getFederatedUserId("adminReplayFailed", -1234, 1)).thenReturn(null)
+                .thenReturn("replay-failed-user-id");
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminReplayFailed", false, null));
+
+        assertEquals(handleLogoutRequest(logoutRequest).getStatusCode(), 500);
+        // The logout token of a logout which did not complete is processed again when it is redelivered.
+        assertEquals(logoutTokenReplayCache.size(), 0);
+        LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+        assertEquals(logoutResponse.getStatusCode(), 200);
+        assertEquals(logoutTokenReplayCache.size(), 1);
+        verify(userSessionManagementService, times(1)).terminateSessionsByUserId("replay-failed-user-id");
+    }
+
+    @Test
+    public void testConcurrentLogoutsOfSidAreCoalesced() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        when(dataHolder.getLogoutSingleFlight()).thenReturn(new SingleFlight<>(10000));
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "coalesced-sid", "coalesced-session");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        mockIdentityProviderManager(identityProvider);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(serverSessionManagementService.removeSession("coalesced-session")).thenAnswer(invocation -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        LogoutRequest logoutRequest = prepareLogoutRequest(
+                generateLogoutToken("adminCoalesced", true, "coalesced-sid"));
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<LogoutResponse> firstLogout = executorService.submit(() -> handleLogoutRequest(logoutRequest));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            LogoutResponse[] joinedLogout = new LogoutResponse[1];
+            Thread joiningThread = new Thread(() -> {
+                try {
+                    joinedLogout[0] = handleLogoutRequest(logoutRequest);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            joiningThread.start();
+            // Release the termination once the second logout waits for it.
+            long deadline = System.currentTimeMillis() + 10000;
+            while (joiningThread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            joiningThread.join(10000);
+
+            // Both logouts get the outcome of the single termination.
+            assertEquals(firstLogout.get(10, TimeUnit.SECONDS).getMessage(),
+                    OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+            assertNotNull(joinedLogout[0]);
+            assertEquals(joinedLogout[0].getMessage(), OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_SUCCESS);
+            verify(serverSessionManagementService, times(1)).removeSession("coalesced-session");
+        } finally {
+            release.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRateLimitedLogoutRejected() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        RateLimiter logoutRateLimiter = new RateLimiter(0.001, 1, 10);
+        when(dataHolder.getLogoutRateLimiter()).thenReturn(logoutRateLimiter);
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "rate-limited-sid", "rate-limited-session");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        IdentityProviderManager identityProviderManager = mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(
+                generateLogoutToken("adminRateLimited", true, "rate-limited-sid"));
+
+        assertEquals(handleLogoutRequest(logoutRequest).getStatusCode(), 200);
+        LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+
+        // Without the issuer cache, the issuer is throttled with the unverified issuers before the identity provider
+        // is resolved or the session is looked up.
+        assertEquals(logoutResponse.getStatusCode(),
+                OIDCAuthenticatorConstants.BackchannelLogout.TOO_MANY_REQUESTS_STATUS_CODE);
+        assertEquals(logoutResponse.getMessage(),
+                OIDCErrorConstants.ErrorMessages.LOGOUT_RATE_LIMIT_EXCEEDED.getMessage());
+        assertTrue(logoutResponse.getRetryAfter() >= 1);
+        verify(identityProviderManager, times(1)).getIdPByMetadataProperty(
+                IdentityApplicationConstants.IDP_ISSUER_NAME, ISSUER, TENANT_DOMAIN, false);
+        verify(serverSessionManagementService, times(1)).removeSession("rate-limited-session");
+        assertEquals(logoutRateLimiter.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testForgedLogoutTokensDoNotThrottleIssuer() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        RateLimiter logoutRateLimiter = new RateLimiter(0.001, 2, 10);
+        when(dataHolder.getLogoutRateLimiter()).thenReturn(logoutRateLimiter);
+        when(dataHolder.getIssuerIdPCache()).thenReturn(new IssuerIdPCache(60000, 60000, 10, 10));
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminForged", true, "forged-sid"));
+        SignedJWT signedJWT = SignedJWT.parse(logoutToken);
+
+        federatedSessionIndex.put(IDP_NAME, "forged-sid", "forged-session-0");
+        assertEquals(handleLogoutRequest(logoutRequest).getStatusCode(), 200);
+        // Logout tokens spoofing the cached issuer take neither the shared permits nor the permits of the issuer.
+        when(JWTSignatureValidationUtils.validateSignature(signedJWT, identityProvider)).thenReturn(false);
+        for (int i = 0; i < 3; i++) {
+            try {
+                logoutProcessor.handleOIDCFederatedLogoutRequest(logoutRequest);
+                fail("A logout token with an invalid signature is accepted.");
+            } catch (LogoutClientException e) {
+                assertEquals(e.getErrorCode(),
+                        OIDCErrorConstants.ErrorMessages.LOGOUT_TOKEN_SIGNATURE_VALIDATION_FAILED.getCode());
+            }
+        }
+        when(JWTSignatureValidationUtils.validateSignature(signedJWT, identityProvider)).thenReturn(true);
+        federatedSessionIndex.put(IDP_NAME, "forged-sid", "forged-session-1");
+        assertEquals(handleLogoutRequest(logoutRequest).getStatusCode(), 200);
+
+        LogoutResponse logoutResponse = handleLogoutRequest(logoutRequest);
+        assertEquals(logoutResponse.getStatusCode(),
+                OIDCAuthenticatorConstants.BackchannelLogout.TOO_MANY_REQUESTS_STATUS_CODE);
+        assertEquals(logoutRateLimiter.getRejectedCount(), 1);
+        // One bucket is shared by the unverified issuers of the tenant and one is used by the verified issuer.
+        assertEquals(logoutRateLimiter.getTrackedKeyCount(), 2);
+    }
+
+    @Test
+    public void testBatchLogoutThrottlesVerifiedIssuer() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        RateLimiter logoutRateLimiter = new RateLimiter(0.001, 2, 10);
+        when(dataHolder.getLogoutRateLimiter()).thenReturn(logoutRateLimiter);
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        for (int i = 0; i < 3; i++) {
+            federatedSessionIndex.put(IDP_NAME, "batch-rate-limited-sid-" + i, "batch-rate-limited-session-" + i);
+        }
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareBatchLogoutRequest(
+                generateLogoutToken("adminBatchRateLimited", true, "batch-rate-limited-sid-0"),
+                generateLogoutToken("adminBatchRateLimited", true, "batch-rate-limited-sid-1"),
+                generateLogoutToken("adminBatchRateLimited", true, "batch-rate-limited-sid-2"));
+
+        JSONArray results = handleBatchLogoutRequest(logoutRequest);
+        // The issuer takes one shared permit to be resolved, and a permit of its own bucket per validated logout token.
+        assertBatchLogoutResult(results, 0, 200, null);
+        assertBatchLogoutResult(results, 1, 200, null);
+        assertBatchLogoutResult(results, 2, OIDCAuthenticatorConstants.BackchannelLogout.TOO_MANY_REQUESTS_STATUS_CODE,
+                OIDCErrorConstants.ErrorMessages.LOGOUT_RATE_LIMIT_EXCEEDED.getCode());
+        verify(serverSessionManagementService).removeSession("batch-rate-limited-session-0");
+        verify(serverSessionManagementService).removeSession("batch-rate-limited-session-1");
+        verify(serverSessionManagementService, never()).removeSession("batch-rate-limited-session-2");
+    }
+
+    @Test
+    public void testLogoutBeyondConcurrencyLimitRejected() throws Exception {
+
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mockDataHolder();
+        ServerSessionManagementService serverSessionManagementService =
+                dataHolder.getServerSessionManagementService();
+        Bulkhead logoutBulkhead = new Bulkhead(1, 0);
+        when(dataHolder.getLogoutBulkhead()).thenReturn(logoutBulkhead);
+        FederatedSessionIndex federatedSessionIndex = new InMemoryFederatedSessionIndex(60000, 10);
+        federatedSessionIndex.put(IDP_NAME, "bulkhead-sid", "bulkhead-session");
+        when(dataHolder.getFederatedSessionIndex()).thenReturn(federatedSessionIndex);
+        IdentityProviderManager identityProviderManager = mockIdentityProviderManager(identityProvider);
+        LogoutRequest logoutRequest = prepareLogoutRequest(generateLogoutToken("adminBulkhead", true, "bulkhead-sid"));
+
+        // Hold the only permit, as a logout request in progress would.
+        assertTrue(logoutBulkhead.tryAcquire());
+        LogoutResponse logoutResponse =
+                ((LogoutResponse.LogoutResponseBuilder) logoutProcessor.process(logoutRequest)).build();
+
+        assertEquals(logoutResponse.getStatusCode(), 503);
+        assertEquals(logoutResponse.getMessage(),
+                OIDCErrorConstants.ErrorMessages.LOGOUT_CONCURRENCY_LIMIT_EXCEEDED.getMessage());
+        assertEquals(logoutResponse.getRetryAfter(),
+                OIDCAuthenticatorConstants.BackchannelLogout.LOGOUT_CONCURRENCY_LIMIT_RETRY_AFTER);
+        verify(identityProviderManager, never()).getIdPByMetadataProperty(
+                IdentityApplicationConstants.IDP_ISSUER_NAME, ISSUER, TENANT_DOMAIN, false);
+        verify(serverSessionManagementService, never()).removeSession("bulkhead-session");
+        assertEquals(logoutBulkhead.getRejectedCount(), 1);
+
+        // Once the permit is returned the request is processed, and its own permit is returned when it completes.
+        logoutBulkhead.release();
+        logoutResponse = ((LogoutResponse.LogoutResponseBuilder) logoutProcessor.process(logoutRequest)).build();
+
+        assertEquals(logoutResponse.getStatusCode(), 200);
+        verify(serverSessionManagementService, times(1)).removeSession("bulkhead-session");
+        assertEquals(logoutBulkhead.getActiveCount(), 0);
+    }
+
+    /**
+     * Mock the data holder with a server session management service which removes any session, and a session store
+     * in which any session exists. The optimizations are disabled unless the test enables them on the returned data
+     * holder.
+     *
+     * @return Mocked data holder.
+     */
+    private OpenIDConnectAuthenticatorDataHolder mockDataHolder() throws Exception {
+
+        mockStatic(OpenIDConnectAuthenticatorDataHolder.class);
+        OpenIDConnectAuthenticatorDataHolder dataHolder = mock(OpenIDConnectAuthenticatorDataHolder.class);
+        when(OpenIDConnectAuthenticatorDataHolder.getInstance()).thenReturn(dataHolder);
+        ServerSessionManagementService serverSessionManagementService = mock(ServerSessionManagementService.class);
+        when(serverSessionManagementService.removeSession(anyString())).thenReturn(true);
+        when(dataHolder.getServerSessionManagementService()).thenReturn(serverSessionManagementService);
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(-1234);
+        mockStatic(FrameworkUtils.class);
+        when(FrameworkUtils.getSessionContextFromCache(anyString(), anyString())).thenReturn(new SessionContext());
+        when(FrameworkUtils.getCorrelation()).thenReturn(TRACE_ID);
+        return dataHolder;
+    }
+
+    private IdentityProviderManager mockIdentityProviderManager(IdentityProvider identityProvider)
+            throws Exception {
+
+        mockStatic(IdentityProviderManager.class);
+        IdentityProviderManager identityProviderManager = mock(IdentityProviderManager.class);
+        when(IdentityProviderManager.getInstance()).thenReturn(identityProviderManager);
+        when(identityProviderManager.getIdPByMetadataProperty(IdentityApplicationConstants.IDP_ISSUER_NAME, ISSUER,
+                TENANT_DOMAIN, false)).thenReturn(identityProvider);
+        return identityProviderManager;
+    }
+
+    /**
+     * Prepare a logout request with a logout token of the claims, whose signature is valid.
+     *
+     * @param claimsSet Claims of the logout token.
+     * @return Logout request.
+     */
+    private LogoutRequest prepareLogoutRequest(JWTClaimsSet claimsSet) throws Exception {
+
+        mockStatic(SignedJWT.class);
+        SignedJWT signedJWT = mock(SignedJWT.class);
+        when(SignedJWT.parse(logoutToken)).thenReturn(signedJWT);
+        when(signedJWT.getJWTClaimsSet()).thenReturn(claimsSet);
+        mockStatic(JWTSignatureValidationUtils.class);
+        when(JWTSignatureValidationUtils.validateSignature(signedJWT, identityProvider)).thenReturn(true);
+
+        LogoutRequest logoutRequest = mock(LogoutRequest.class);
+        when(logoutRequest.getParameter("logout_token")).thenReturn(logoutToken);
+        when(logoutRequest.getTenantDomain()).thenReturn(TENANT_DOMAIN);
+        return logoutRequest;
+    }
+
+    /**
+     * Prepare a batch logout request with a logout token per claim set, whose signatures are valid. The logout token
+     * of the claim set at index i is batch-logout-token-i.
+     *
+     * @param claimsSets Claims of the logout tokens.
+     * @return Logout request.
+     */
+    private LogoutRequest prepareBatchLogoutRequest(JWTClaimsSet... claimsSets) throws Exception {
+
+        mockStatic(SignedJWT.class);
+        mockStatic(JWTSignatureValidationUtils.class);
+        String[] logoutTokens = new String[claimsSets.length];
+        for (int i = 0; i < claimsSets.length; i++) {
+            logoutTokens[i] = "batch-logout-token-" + i;
+            SignedJWT signedJWT = mock(SignedJWT.class);
+            when(SignedJWT.parse(logoutTokens[i])).thenReturn(signedJWT);
+            when(signedJWT.getJWTClaimsSet()).thenReturn(claimsSets[i]);
+            when(JWTSignatureValidationUtils.validateSignature(signedJWT, identityProvider)).thenReturn(true);
+        }
+        Map<String, String[]> parameterMap = new HashMap<>();
+        parameterMap.put("logout_token", logoutTokens);
+
+        LogoutRequest logoutRequest = mock(LogoutRequest.class);
+        when(logoutRequest.getParameterMap()).thenReturn(parameterMap);
+        when(logoutRequest.getTenantDomain()).thenReturn(TENANT_DOMAIN);
+        return logoutRequest;
+    }
+
+    /**
+     * Handle the batch logout request with batch logout enabled.
+     *
+     * @param logoutRequest Batch logout request.
+     * @return Results of the logout tokens in the response body.
+     */
+    private JSONArray handleBatchLogoutRequest(LogoutRequest logoutRequest) throws Exception {
+
+        Map<String, String> parameters = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(OIDCAuthenticatorConstants.AUTHENTICATOR_NAME).getParameterMap();
+        parameters.put(OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_BATCH_LOGOUT, "true");
+        try {
+            LogoutResponse logoutResponse = ((LogoutResponse.LogoutResponseBuilder) logoutProcessor
+                    .handleOIDCFederatedBatchLogoutRequest(logoutRequest)).build();
+            assertEquals(logoutResponse.getStatusCode(), 200);
+            JSONObject responseBody = (JSONObject) JSONValue.parse(logoutResponse.getMessage());
+            assertEquals(responseBody.get("traceId"), TRACE_ID);
+            return (JSONArray) responseBody.get("results");
+        } finally {
+            parameters.remove(OIDCAuthenticatorConstants.BackchannelLogout.ENABLE_BATCH_LOGOUT);
+        }
+    }
+
+    private void assertBatchLogoutResult(JSONArray results, int index, int status, String code) {
+
+        JSONObject result = (JSONObject) results.get(index);
+        assertEquals(((Number) result.get("index")).intValue(), index);
+        assertEquals(((Number) result.get("status")).intValue(), status);
+        assertEquals(result.get("code"), code);
+    }
+
+    private LogoutResponse handleLogoutRequest(LogoutRequest logoutRequest) throws Exception {
+
+        return ((LogoutResponse.LogoutResponseBuilder) logoutProcessor.handleOIDCFederatedLogoutRequest(
+                logoutRequest)).build();
+    }
 }
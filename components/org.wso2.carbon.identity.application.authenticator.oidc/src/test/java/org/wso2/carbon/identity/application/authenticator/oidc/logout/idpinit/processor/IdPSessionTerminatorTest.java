@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.logout.idpinit.processor;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for IdPSessionTerminator.
+ */
+public class IdPSessionTerminatorTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String IDP_NAME = "partner-idp";
+
+    @Test
+    public void testAllSessionsAreTerminatedInPages() throws Exception {
+
+        Path directory = Files.createTempDirectory("idp-session-termination");
+        TestSessionTerminator terminator = new TestSessionTerminator(directory, createSessions(2500));
+        try {
+            IdPSessionTerminator.Job job = terminator.start(TENANT_DOMAIN, -1234, IDP_NAME, 1);
+            waitUntilEnded(job);
+
+            assertEquals(job.getState(), IdPSessionTerminator.State.COMPLETED);
+            assertEquals(job.getTerminatedCount(), 2500);
+            assertEquals(job.getFailedCount(), 0);
+            assertEquals(job.getPageCount(), 3);
+            assertTrue(terminator.sessions.isEmpty());
+            assertEquals(countFiles(directory), 0);
+        } finally {
+            terminator.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedJobResumesFromCheckpoint() throws Exception {
+
+        Path directory = Files.createTempDirectory("idp-session-termination");
+        NavigableMap<String, String> sessions = createSessions(2500);
+        TestSessionTerminator failingTerminator = new TestSessionTerminator(directory, sessions);
+        failingTerminator.failReadAfterPages = 1;
+        try {
+            IdPSessionTerminator.Job job = failingTerminator.start(TENANT_DOMAIN, -1234, IDP_NAME, 1);
+            waitUntilEnded(job);
+
+            assertEquals(job.getState(), IdPSessionTerminator.State.FAILED);
+            assertEquals(job.getTerminatedCount(), 1000);
+            assertEquals(countFiles(directory), 1);
+        } finally {
+            failingTerminator.shutdown();
+        }
+
+        TestSessionTerminator terminator = new TestSessionTerminator(directory, sessions);
+        try {
+            terminator.resume();
+            assertEquals(terminator.getJobs().size(), 1);
+            IdPSessionTerminator.Job job = terminator.getJobs().get(0);
+            waitUntilEnded(job);
+
+            assertEquals(job.getState(), IdPSessionTerminator.State.COMPLETED);
+            assertEquals(job.getTenantDomain(), TENANT_DOMAIN);
+            assertEquals(job.getIdPName(), IDP_NAME);
+            assertEquals(job.getTerminatedCount(), 2500);
+            assertEquals(terminator.terminations.get(), 1500);
+            assertTrue(sessions.isEmpty());
+            assertEquals(countFiles(directory), 0);
+        } finally {
+            terminator.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedTerminationsAreCounted() throws Exception {
+
+        Path directory = Files.createTempDirectory("idp-session-termination");
+        TestSessionTerminator terminator = new TestSessionTerminator(directory, createSessions(100));
+        terminator.failingSessionIds.put(sessionId(10), Boolean.TRUE);
+        terminator.failingSessionIds.put(sessionId(20), Boolean.TRUE);
+        try {
+            IdPSessionTerminator.Job job = terminator.start(TENANT_DOMAIN, -1234, IDP_NAME, 1);
+            waitUntilEnded(job);
+
+            assertEquals(job.getState(), IdPSessionTerminator.State.COMPLETED);
+            assertEquals(job.getTerminatedCount(), 98);
+            assertEquals(job.getFailedCount(), 2);
+            assertEquals(terminator.sessions.size(), 2);
+        } finally {
+            terminator.shutdown();
+        }
+    }
+
+    @Test
+    public void testRateLimitWaitDoesNotExpirePage() throws Exception {
+
+        Path directory = Files.createTempDirectory("idp-session-termination");
+        TestSessionTerminator terminator = new TestSessionTerminator(directory, createSessions(300), 100, 500, 100);
+        try {
+            IdPSessionTerminator.Job job = terminator.start(TENANT_DOMAIN, -1234, IDP_NAME, 1);
+            waitUntilEnded(job);
+
+            assertEquals(job.getState(), IdPSessionTerminator.State.COMPLETED);
+            assertEquals(job.getTerminatedCount(), 300);
+            assertEquals(job.getFailedCount(), 0);
+            assertTrue(terminator.sessions.isEmpty());
+        } finally {
+            terminator.shutdown();
+        }
+    }
+
+    private static NavigableMap<String, String> createSessions(int count) {
+
+        NavigableMap<String, String> sessions = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < count; i++) {
+            sessions.put(sessionId(i), "user-" + (i % 10));
+        }
+        return sessions;
+    }
+
+    private static String sessionId(int index) {
+
+        return String.format("session-%06d", index);
+    }
+
+    private static void waitUntilEnded(IdPSessionTerminator.Job job) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (job.getState() == IdPSessionTerminator.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static long countFiles(Path directory) throws Exception {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static class TestSessionTerminator extends IdPSessionTerminator {
+
+        private final NavigableMap<String, String> sessions;
+        private final Map<String, Boolean> failingSessionIds = new ConcurrentHashMap<>();
+        private final AtomicInteger terminations = new AtomicInteger();
+        private final AtomicInteger pageReads = new AtomicInteger();
+        private int failReadAfterPages = -1;
+
+        private TestSessionTerminator(Path directory, NavigableMap<String, String> sessions) {
+
+            this(directory, sessions, 1000, 1000000, 10000);
+        }
+
+        private TestSessionTerminator(Path directory, NavigableMap<String, String> sessions, int pageSize,
+                                      double sessionsPerSecond, long pageTimeoutMillis) {
+
+            super(4, pageSize, sessionsPerSecond, pageTimeoutMillis, directory);
+            this.sessions = sessions;
+        }
+
+        @Override
+        protected Map<String, String> readSessions(int tenantId, int idpId, String afterSessionId, int limit)
+                throws SQLException {
+
+            if (pageReads.getAndIncrement() == failReadAfterPages) {
+                throw new SQLException("Session store is not available.");
+            }
+            Map<String, String> page = new LinkedHashMap<>();
+            NavigableMap<String, String> remaining = afterSessionId == null ? sessions :
+                    sessions.tailMap(afterSessionId, false);
+            for (Map.Entry<String, String> session : remaining.entrySet()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.put(session.getKey(), session.getValue());
+            }
+            return page;
+        }
+
+        @Override
+        protected void terminateSession(String userId, String sessionId) {
+
+            if (failingSessionIds.containsKey(sessionId)) {
+                throw new IllegalStateException("Session could not be terminated.");
+            }
+            terminations.incrementAndGet();
+            sessions.remove(sessionId);
+        }
+    }
+}
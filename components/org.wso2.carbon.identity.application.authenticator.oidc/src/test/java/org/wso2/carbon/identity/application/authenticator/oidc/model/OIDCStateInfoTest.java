@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.model;
+
+import org.apache.commons.lang.StringUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for OIDCStateInfo.
+ */
+public class OIDCStateInfoTest {
+
+    private static final String ID_TOKEN = "eyJhbGciOiJSUzI1NiJ9." + StringUtils.repeat("eyJzdWIiOiJhZG1pbiJ9", 100) +
+            ".c2lnbmF0dXJl";
+
+    @DataProvider(name = "stateInfoDataProvider")
+    public Object[][] getStateInfoData() {
+
+        return new Object[][]{
+                {null, -1},
+                {ID_TOKEN, -1},
+                {ID_TOKEN, 0},
+                {ID_TOKEN, ID_TOKEN.length() + 1}
+        };
+    }
+
+    @Test(dataProvider = "stateInfoDataProvider")
+    public void testSerialization(String idToken, int compressionThreshold) throws Exception {
+
+        OIDCStateInfo stateInfo = new OIDCStateInfo();
+        stateInfo.setIdTokenHint(idToken);
+        stateInfo.setCompressionThreshold(compressionThreshold);
+
+        OIDCStateInfo deserialized = (OIDCStateInfo) deserialize(serialize(stateInfo));
+        if (idToken == null) {
+            assertNull(deserialized.getIdTokenHint());
+        } else {
+            assertEquals(deserialized.getIdTokenHint(), idToken);
+        }
+    }
+
+    @Test
+    public void testCompressedStateIsSmaller() throws Exception {
+
+        OIDCStateInfo plainStateInfo = new OIDCStateInfo();
+        plainStateInfo.setIdTokenHint(ID_TOKEN);
+        OIDCStateInfo compressedStateInfo = new OIDCStateInfo();
+        compressedStateInfo.setIdTokenHint(ID_TOKEN);
+        compressedStateInfo.setCompressionThreshold(0);
+
+        assertTrue(serialize(compressedStateInfo).length < serialize(plainStateInfo).length);
+    }
+
+    @DataProvider(name = "legacyStateInfoDataProvider")
+    public Object[][] getLegacyStateInfoData() {
+
+        return new Object[][]{
+                {null},
+                {ID_TOKEN}
+        };
+    }
+
+    @Test(dataProvider = "legacyStateInfoDataProvider")
+    public void testReadLegacyState(String idToken) throws Exception {
+
+        org.wso2.carbon.identity.application.authenticator.oidc.model.legacy.OIDCStateInfo legacyStateInfo =
+                new org.wso2.carbon.identity.application.authenticator.oidc.model.legacy.OIDCStateInfo();
+        legacyStateInfo.setIdTokenHint(idToken);
+
+        Object deserialized = deserialize(serialize(legacyStateInfo), OIDCStateInfo.class);
+        assertTrue(deserialized instanceof OIDCStateInfo);
+        assertEquals(((OIDCStateInfo) deserialized).getIdTokenHint(), idToken);
+    }
+
+    @Test(dataProvider = "legacyStateInfoDataProvider")
+    public void testStateReadableByLegacyNodes(String idToken) throws Exception {
+
+        OIDCStateInfo stateInfo = new OIDCStateInfo();
+        stateInfo.setIdTokenHint(idToken);
+
+        Object deserialized = deserialize(serialize(stateInfo),
+                org.wso2.carbon.identity.application.authenticator.oidc.model.legacy.OIDCStateInfo.class);
+        assertEquals(((org.wso2.carbon.identity.application.authenticator.oidc.model.legacy.OIDCStateInfo)
+                deserialized).getIdTokenHint(), idToken);
+    }
+
+    private byte[] serialize(Object object) throws IOException {
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            outputStream.writeObject(object);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return inputStream.readObject();
+        }
+    }
+
+    /**
+     * Deserialize the state info as the given class, as another release of the state info would.
+     */
+    private Object deserialize(byte[] bytes, Class<?> stateInfoClass) throws IOException, ClassNotFoundException {
+
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+
+                if (desc.getName().endsWith("." + stateInfoClass.getSimpleName())) {
+                    return stateInfoClass;
+                }
+                return super.resolveClass(desc);
+            }
+        }) {
+            return inputStream.readObject();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.model.legacy;
+
+import org.wso2.carbon.identity.application.authentication.framework.AuthenticatorStateInfo;
+
+/**
+ * OIDC state info as released before the compact session storage, used to test the serialization compatibility.
+ */
+public class OIDCStateInfo extends AuthenticatorStateInfo {
+
+    private static final long serialVersionUID = 520990472713208786L;
+
+    private String idTokenHint;
+
+    public void setIdTokenHint(String idTokenHint) {
+
+        this.idTokenHint = idTokenHint;
+    }
+
+    public String getIdTokenHint() {
+
+        return idTokenHint;
+    }
+}
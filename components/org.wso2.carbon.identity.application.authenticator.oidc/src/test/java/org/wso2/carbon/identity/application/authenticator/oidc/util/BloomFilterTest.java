@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for BloomFilter.
+ */
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedValuesAreFound() {
+
+        BloomFilter bloomFilter = new BloomFilter(1024, 100);
+        assertFalse(bloomFilter.mightContain("sid-1"));
+        for (int i = 0; i < 100; i++) {
+            bloomFilter.add("sid-" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(bloomFilter.mightContain("sid-" + i));
+        }
+        assertEquals(bloomFilter.getInsertions(), 100);
+    }
+
+    @Test
+    public void testFalsePositiveRateWithinBudget() {
+
+        // 64 KB for 50000 values gives a false positive rate below 1%.
+        BloomFilter bloomFilter = new BloomFilter(65536, 50000);
+        for (int i = 0; i < 50000; i++) {
+            bloomFilter.add("sid-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 50000; i++) {
+            if (bloomFilter.mightContain("unknown-sid-" + i)) {
+                falsePositives++;
+            }
+        }
+        double observedFalsePositiveRate = falsePositives / 50000.0;
+        assertTrue(observedFalsePositiveRate < 0.05, "Observed false positive rate: " + observedFalsePositiveRate);
+        assertEquals(bloomFilter.getEstimatedFalsePositiveRate(), observedFalsePositiveRate, 0.01);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for Bulkhead.
+ */
+public class BulkheadTest {
+
+    @Test
+    public void testRequestsBeyondTheLimitAreRejected() {
+
+        Bulkhead bulkhead = new Bulkhead(2, 0);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(bulkhead.getActiveCount(), 2);
+        assertEquals(bulkhead.getRejectedCount(), 1);
+
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+        assertEquals(bulkhead.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testRequestWaitsForAReleasedPermit() throws Exception {
+
+        Bulkhead bulkhead = new Bulkhead(1, 10000);
+        assertTrue(bulkhead.tryAcquire());
+        Thread releasingThread = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bulkhead.release();
+        });
+        releasingThread.start();
+        assertTrue(bulkhead.tryAcquire());
+        releasingThread.join();
+        assertEquals(bulkhead.getRejectedCount(), 0);
+    }
+
+    @Test
+    public void testConcurrencyIsCappedUnderContention() throws Exception {
+
+        int maxConcurrency = 8;
+        int requestCount = 10000;
+        Bulkhead bulkhead = new Bulkhead(maxConcurrency, 0);
+        AtomicInteger inProgress = new AtomicInteger();
+        AtomicInteger maxInProgress = new AtomicInteger();
+        AtomicInteger processedCount = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(requestCount);
+        ExecutorService containerThreads = Executors.newFixedThreadPool(64);
+        try {
+            for (int i = 0; i < requestCount; i++) {
+                containerThreads.execute(() -> {
+                    try {
+                        if (bulkhead.tryAcquire()) {
+                            try {
+                                int current = inProgress.incrementAndGet();
+                                maxInProgress.accumulateAndGet(current, Math::max);
+                                Thread.yield();
+                                inProgress.decrementAndGet();
+                                processedCount.incrementAndGet();
+                            } finally {
+                                bulkhead.release();
+                            }
+                        }
+                    } finally {
+                        completed.countDown();
+                    }
+                });
+            }
+            assertTrue(completed.await(60, TimeUnit.SECONDS));
+        } finally {
+            containerThreads.shutdownNow();
+        }
+
+        assertTrue(maxInProgress.get() <= maxConcurrency, "Concurrency exceeded: " + maxInProgress.get());
+        assertEquals(processedCount.get() + bulkhead.getRejectedCount(), requestCount);
+        assertEquals(bulkhead.getActiveCount(), 0);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for EndpointPreConnector.
+ */
+public class EndpointPreConnectorTest {
+
+    private HttpServer server;
+    private HttpServer keepAliveServer;
+    private String endpoint;
+    private String keepAliveEndpoint;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger keepAliveRequestCount = new AtomicInteger();
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth2/token", exchange -> {
+            requestCount.incrementAndGet();
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+        });
+        server.start();
+        endpoint = "http://localhost:" + server.getAddress().getPort() + "/oauth2/token";
+
+        keepAliveServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        keepAliveServer.createContext("/oauth2/token", exchange -> {
+            keepAliveRequestCount.incrementAndGet();
+            exchange.getResponseHeaders().add("Keep-Alive", "timeout=60, max=100");
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+        });
+        keepAliveServer.start();
+        keepAliveEndpoint = "http://localhost:" + keepAliveServer.getAddress().getPort() + "/oauth2/token";
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        server.stop(0);
+        keepAliveServer.stop(0);
+    }
+
+    @Test
+    public void testConnect() {
+
+        EndpointPreConnector preConnector = new EndpointPreConnector(60000, 2000, 1);
+        try {
+            assertTrue(preConnector.connect(endpoint));
+            assertFalse(preConnector.connect("ftp://localhost/oauth2/token"));
+            assertFalse(preConnector.connect("invalid-url"));
+            assertFalse(preConnector.connect(null));
+        } finally {
+            preConnector.shutdown();
+        }
+    }
+
+    @Test(dependsOnMethods = "testConnect")
+    public void testPreConnectIsRateLimited() throws Exception {
+
+        EndpointPreConnector preConnector = new EndpointPreConnector(60000, 2000, 1);
+        try {
+            int initialCount = requestCount.get();
+            for (int i = 0; i < 5; i++) {
+                preConnector.preConnect(endpoint);
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (requestCount.get() == initialCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            // Allow any unexpected additional pre-connect to reach the server.
+            Thread.sleep(200);
+            assertEquals(requestCount.get(), initialCount + 1);
+        } finally {
+            preConnector.shutdown();
+        }
+    }
+
+    @Test(dependsOnMethods = "testPreConnectIsRateLimited")
+    public void testPreConnectSkippedWhenConnectionIsNotKeptAlive() throws Exception {
+
+        EndpointPreConnector preConnector = new EndpointPreConnector(0, 2000, 1, 30000);
+        try {
+            assertTrue(preConnector.connect(endpoint));
+            // No keep-alive timeout is advertised, hence the JDK keeps the connection only for 5 seconds.
+            assertEquals(preConnector.getKeepAliveTime(endpoint), 5000);
+            int initialCount = requestCount.get();
+            for (int i = 0; i < 5; i++) {
+                preConnector.preConnect(endpoint);
+            }
+            Thread.sleep(200);
+            assertEquals(requestCount.get(), initialCount);
+        } finally {
+            preConnector.shutdown();
+        }
+    }
+
+    @Test
+    public void testPreConnectWhenConnectionIsKeptAlive() throws Exception {
+
+        EndpointPreConnector preConnector = new EndpointPreConnector(0, 2000, 1, 30000);
+        try {
+            assertEquals(preConnector.getKeepAliveTime(keepAliveEndpoint), -1);
+            assertTrue(preConnector.connect(keepAliveEndpoint));
+            assertEquals(preConnector.getKeepAliveTime(keepAliveEndpoint), 60000);
+            int initialCount = keepAliveRequestCount.get();
+            preConnector.preConnect(keepAliveEndpoint);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (keepAliveRequestCount.get() == initialCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(keepAliveRequestCount.get(), initialCount + 1);
+        } finally {
+            preConnector.shutdown();
+        }
+    }
+}
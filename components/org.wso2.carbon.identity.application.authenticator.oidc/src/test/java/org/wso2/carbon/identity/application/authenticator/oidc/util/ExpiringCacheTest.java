@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for ExpiringCache.
+ */
+public class ExpiringCacheTest {
+
+    @Test
+    public void testEntryExpires() throws Exception {
+
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        assertTrue(cache.put("key", "value", 50));
+        assertEquals(cache.get("key"), "value");
+
+        Thread.sleep(100);
+        assertNull(cache.get("key"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testNonPositiveTimeToLiveIsNotCached() {
+
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        assertFalse(cache.put("key", "value", 0));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryEvicted() {
+
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2);
+        assertTrue(cache.put("first", "value", 60000));
+        assertTrue(cache.put("second", "value", 60000));
+        // Reading the first entry makes the second entry the least recently used one.
+        assertEquals(cache.get("first"), "value");
+        assertTrue(cache.put("third", "value", 60000));
+        assertEquals(cache.size(), 2);
+        assertNull(cache.get("second"));
+        assertEquals(cache.get("first"), "value");
+        assertEquals(cache.get("third"), "value");
+
+        // Updating an existing key does not evict another entry.
+        assertTrue(cache.put("first", "updated", 60000));
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.get("first"), "updated");
+        assertEquals(cache.get("third"), "value");
+    }
+
+    @Test
+    public void testBoundedUnderDistinctKeys() {
+
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(100);
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(cache.put(i, i, 60000));
+        }
+        assertEquals(cache.size(), 100);
+        assertEquals(cache.get(9999), Integer.valueOf(9999));
+        assertNull(cache.get(0));
+    }
+}
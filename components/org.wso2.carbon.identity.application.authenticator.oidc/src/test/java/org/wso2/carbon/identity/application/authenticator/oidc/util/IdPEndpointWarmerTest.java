@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for IdPEndpointWarmer.
+ */
+public class IdPEndpointWarmerTest {
+
+    private HttpServer server;
+    private String tokenEndpoint;
+    private String userInfoEndpoint;
+    private String slowEndpoint;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final CountDownLatch slowRequestReleased = new CountDownLatch(1);
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth2/", exchange -> {
+            requestCount.incrementAndGet();
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                slowRequestReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        tokenEndpoint = baseUrl + "/oauth2/token";
+        userInfoEndpoint = baseUrl + "/oauth2/userinfo";
+        slowEndpoint = baseUrl + "/slow";
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        slowRequestReleased.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testWarmup() throws Exception {
+
+        IdPEndpointWarmer warmer = new TestIdPEndpointWarmer(2000, 2, 5000, tokenEndpoint, userInfoEndpoint);
+        try {
+            int initialCount = requestCount.get();
+            assertTrue(warmer.isWarm());
+            warmer.warmup("carbon.super");
+            awaitWarm(warmer, 5000);
+            assertTrue(warmer.isWarm());
+            assertEquals(warmer.getPendingWarmupCount(), 0);
+            assertEquals(requestCount.get(), initialCount + 2);
+        } finally {
+            warmer.shutdown();
+        }
+    }
+
+    @Test
+    public void testWarmupTimeout() throws Exception {
+
+        IdPEndpointWarmer warmer = new TestIdPEndpointWarmer(10000, 1, 200, slowEndpoint);
+        try {
+            warmer.warmup("carbon.super");
+            assertFalse(warmer.isWarm());
+            assertEquals(warmer.getPendingWarmupCount(), 1);
+            // The node is considered warm once the warm-up timed out, even though the endpoint did not respond.
+            awaitWarm(warmer, 5000);
+            assertTrue(warmer.isWarm());
+        } finally {
+            warmer.shutdown();
+        }
+    }
+
+    @Test
+    public void testWarmupAfterShutdown() {
+
+        IdPEndpointWarmer warmer = new TestIdPEndpointWarmer(2000, 1, 5000, tokenEndpoint);
+        warmer.shutdown();
+        int initialCount = requestCount.get();
+        warmer.warmup("carbon.super");
+        assertTrue(warmer.isWarm());
+        assertEquals(requestCount.get(), initialCount);
+    }
+
+    private void awaitWarm(IdPEndpointWarmer warmer, long timeoutMillis) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!warmer.isWarm() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * IdP endpoint warmer with fixed endpoints.
+     */
+    private static class TestIdPEndpointWarmer extends IdPEndpointWarmer {
+
+        private final Set<String> endpoints;
+
+        private TestIdPEndpointWarmer(int connectTimeoutMillis, int parallelism, long timeoutMillis,
+                                      String... endpoints) {
+
+            super(connectTimeoutMillis, parallelism, timeoutMillis);
+            this.endpoints = new LinkedHashSet<>(Arrays.asList(endpoints));
+        }
+
+        @Override
+        protected Set<String> getEndpoints(String tenantDomain) {
+
+            return endpoints;
+        }
+    }
+}
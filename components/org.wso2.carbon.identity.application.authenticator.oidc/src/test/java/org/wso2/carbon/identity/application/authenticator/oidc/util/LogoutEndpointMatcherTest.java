@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.wso2.carbon.identity.application.authenticator.oidc.OIDCAuthenticatorConstants.OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN;
+
+/**
+ * Unit test class for LogoutEndpointMatcher.
+ */
+public class LogoutEndpointMatcherTest {
+
+    private static final Pattern BATCH_LOGOUT_ENDPOINT_URL_PATTERN =
+            Pattern.compile("(.*)/identity/oidc/slo/batch/?");
+
+    @DataProvider(name = "requestURIDataProvider")
+    public Object[][] getRequestURIs() {
+
+        return new Object[][]{
+                {"/identity/oidc/slo"},
+                {"/identity/oidc/slo/"},
+                {"https://localhost:9443/identity/oidc/slo"},
+                {"https://localhost:9443/t/federated.com/identity/oidc/slo"},
+                {"https://localhost:9443/identity/oidc/slo/batch"},
+                {"https://localhost:9443/identity/oidc/slo/batch/"},
+                {"https://localhost:9443/t/federated.com/identity/oidc/slo/batch"},
+                {"https://localhost:9443/identity/oidc/slo/batch/extra"},
+                {"https://localhost:9443/identity/oidc/slo/batch//"},
+                {"https://localhost:9443/identity/oidc/sl"},
+                {"https://localhost:9443/identity/oidc/bclogout"},
+                {"https://localhost:9443/identity/oidc/SLO"},
+                {"https://localhost:9443/oauth2/authorize"},
+                {"https://localhost:9443/commonauth"},
+                {"https://localhost:9443/t/federated.com/oauth2/token"},
+                {"https://localhost:9443/samlsso?SAMLRequest=" + StringUtils.repeat("a", 8192)},
+                {"https://localhost:9443/identity/oidc/" + StringUtils.repeat("/identity/oidc/sl", 512)},
+                {"/batch"},
+                {"/"},
+                {""},
+        };
+    }
+
+    @Test(dataProvider = "requestURIDataProvider")
+    public void testMatchingIsConsistentWithTheEndpointPatterns(String requestURI) {
+
+        assertEquals(LogoutEndpointMatcher.isLogoutEndpoint(requestURI),
+                OIDC_BACKCHANNEL_LOGOUT_ENDPOINT_URL_PATTERN.matcher(requestURI).matches(), requestURI);
+        assertEquals(LogoutEndpointMatcher.isBatchLogoutEndpoint(requestURI),
+                BATCH_LOGOUT_ENDPOINT_URL_PATTERN.matcher(requestURI).matches(), requestURI);
+    }
+
+    @Test
+    public void testNullURIIsNotMatched() {
+
+        assertFalse(LogoutEndpointMatcher.isLogoutEndpoint(null));
+        assertFalse(LogoutEndpointMatcher.isBatchLogoutEndpoint(null));
+    }
+}
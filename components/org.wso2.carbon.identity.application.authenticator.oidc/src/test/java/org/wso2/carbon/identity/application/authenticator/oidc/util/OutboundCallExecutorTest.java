@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit test class for OutboundCallExecutor.
+ */
+public class OutboundCallExecutorTest {
+
+    @Test
+    public void testPermitReleasedAfterCall() throws Exception {
+
+        OutboundCallExecutor executor = new OutboundCallExecutor(false, 2, 5000);
+        try {
+            assertEquals(executor.<String, RuntimeException>await(executor.submit(() -> "result")), "result");
+            try {
+                executor.<String, IllegalStateException>await(executor.submit(() -> {
+                    throw new IllegalStateException("failed");
+                }));
+                fail("The failure of the call is not propagated.");
+            } catch (IllegalStateException e) {
+                assertEquals(e.getMessage(), "failed");
+            }
+            assertEquals(executor.getActiveCount(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimedOutCallIsInterrupted() throws Exception {
+
+        OutboundCallExecutor executor = new OutboundCallExecutor(false, 1, 200);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            try {
+                executor.<String, RuntimeException>await(executor.submit(() -> {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "late";
+                }));
+                fail("The call is expected to time out.");
+            } catch (TimeoutException e) {
+                // Expected.
+            }
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The timed out call is not interrupted.");
+            waitForIdle(executor);
+            assertEquals(executor.<String, RuntimeException>await(executor.submit(() -> "next")), "next");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitTimesOutWhenPermitsExhausted() throws Exception {
+
+        OutboundCallExecutor executor = new OutboundCallExecutor(false, 1, 200);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<String> running = executor.submit(() -> {
+                release.await();
+                return "first";
+            });
+            assertEquals(executor.getActiveCount(), 1);
+            try {
+                executor.submit(() -> "second");
+                fail("A call is started beyond the maximum concurrency.");
+            } catch (TimeoutException e) {
+                // Expected.
+            }
+            release.countDown();
+            assertEquals(running.get(5, TimeUnit.SECONDS), "first");
+            waitForIdle(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelledCallReleasesPermitOnce() throws Exception {
+
+        OutboundCallExecutor executor = new OutboundCallExecutor(false, 2, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Future<String> future = executor.submit(() -> {
+                started.countDown();
+                Thread.sleep(10000);
+                return "late";
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(executor.getActiveCount(), 1);
+            assertTrue(future.cancel(true));
+            waitForIdle(executor);
+            // Cancelling again must not release the permit of another call.
+            future.cancel(true);
+            assertEquals(executor.getActiveCount(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void waitForIdle(OutboundCallExecutor executor) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getActiveCount() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(executor.getActiveCount(), 0);
+    }
+}
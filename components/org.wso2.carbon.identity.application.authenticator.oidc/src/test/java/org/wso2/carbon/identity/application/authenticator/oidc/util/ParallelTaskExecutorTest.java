@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for ParallelTaskExecutor.
+ */
+public class ParallelTaskExecutorTest {
+
+    @Test
+    public void testResultsAreInTaskOrder() throws Exception {
+
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(4, "test-parallel-");
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int value = i;
+                tasks.add(() -> value * value);
+            }
+            List<Future<Integer>> futures = executor.invokeAll(tasks, 10000);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(futures.get(i).get().intValue(), i * i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTasksNotCompletedWithinTimeoutAreCancelled() throws Exception {
+
+        ParallelTaskExecutor executor = new ParallelTaskExecutor(2, "test-parallel-");
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            tasks.add(() -> "fast");
+            tasks.add(() -> {
+                Thread.sleep(10000);
+                return "slow";
+            });
+            List<Future<String>> futures = executor.invokeAll(tasks, 200);
+            assertEquals(futures.get(0).get(), "fast");
+            assertTrue(futures.get(1).isCancelled());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test class for RateLimiter.
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testBurstIsPermittedAndExcessIsRejected() {
+
+        RateLimiter rateLimiter = new RateLimiter(1, 3, 10);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(rateLimiter.tryAcquire("issuer"), 0);
+        }
+        long retryAfter = rateLimiter.tryAcquire("issuer");
+        assertTrue(retryAfter > 0 && retryAfter <= 1000, "Unexpected retry after: " + retryAfter);
+        assertEquals(rateLimiter.getPermittedCount(), 3);
+        assertEquals(rateLimiter.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testKeysAreLimitedIndependently() {
+
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 10);
+        assertEquals(rateLimiter.tryAcquire("issuer1"), 0);
+        assertTrue(rateLimiter.tryAcquire("issuer1") > 0);
+        assertEquals(rateLimiter.tryAcquire("issuer2"), 0);
+        assertEquals(rateLimiter.getTrackedKeyCount(), 2);
+    }
+
+    @Test
+    public void testPermitsAreRefilled() throws Exception {
+
+        RateLimiter rateLimiter = new RateLimiter(100, 1, 10);
+        assertEquals(rateLimiter.tryAcquire("issuer"), 0);
+        assertTrue(rateLimiter.tryAcquire("issuer") > 0);
+        Thread.sleep(50);
+        assertEquals(rateLimiter.tryAcquire("issuer"), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() {
+
+        RateLimiter rateLimiter = new RateLimiter(0.001, 1, 2);
+        assertEquals(rateLimiter.tryAcquire("issuer1"), 0);
+        assertEquals(rateLimiter.tryAcquire("issuer2"), 0);
+        assertTrue(rateLimiter.tryAcquire("issuer1") > 0);
+        // A new key is not limited by the other keys, and evicts the least recently used one.
+        assertEquals(rateLimiter.tryAcquire("issuer3"), 0);
+        assertEquals(rateLimiter.getTrackedKeyCount(), 2);
+        assertTrue(rateLimiter.tryAcquire("issuer1") > 0);
+        assertTrue(rateLimiter.tryAcquire("issuer3") > 0);
+        assertEquals(rateLimiter.tryAcquire("issuer2"), 0);
+    }
+
+    @Test
+    public void testTrackedKeysAreBoundedUnderDistinctKeys() {
+
+        RateLimiter rateLimiter = new RateLimiter(0.001, 1, 100);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(rateLimiter.tryAcquire("issuer" + i), 0);
+        }
+        assertEquals(rateLimiter.getTrackedKeyCount(), 100);
+        assertTrue(rateLimiter.tryAcquire("issuer9999") > 0);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.apache.commons.logging.Log;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test class for SampledErrorLogger.
+ */
+public class SampledErrorLoggerTest {
+
+    private static final String ERROR_CODE = "OID-65002";
+    private static final String MESSAGE = "Communication error occurred while accessing user info endpoint";
+
+    @Test
+    public void testOnlyTheFirstErrorOfAWindowIsLoggedWithTheStackTrace() {
+
+        Log log = mock(Log.class);
+        Exception exception = new Exception("Connection refused");
+        SampledErrorLogger sampledErrorLogger = new SampledErrorLogger(60000, 3);
+        for (int i = 0; i < 3; i++) {
+            sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+        }
+
+        verify(log, times(1)).error(MESSAGE, exception);
+        verify(log, times(2)).error(MESSAGE + " Cause: " + exception);
+        assertEquals(sampledErrorLogger.getErrorCount(ERROR_CODE), 3);
+        assertEquals(sampledErrorLogger.getSuppressedCount(ERROR_CODE), 0);
+    }
+
+    @Test
+    public void testErrorsBeyondTheLimitAreSuppressedAndCounted() {
+
+        Log log = mock(Log.class);
+        Exception exception = new Exception("Connection refused");
+        SampledErrorLogger sampledErrorLogger = new SampledErrorLogger(60000, 2);
+        for (int i = 0; i < 10; i++) {
+            sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+        }
+
+        verify(log, times(1)).error(MESSAGE, exception);
+        verify(log, times(1)).error(anyString());
+        assertEquals(sampledErrorLogger.getErrorCount(ERROR_CODE), 10);
+        assertEquals(sampledErrorLogger.getSuppressedCount(ERROR_CODE), 8);
+    }
+
+    @Test
+    public void testErrorCodesAreLimitedIndependently() {
+
+        Log log = mock(Log.class);
+        Exception exception = new Exception("Connection refused");
+        SampledErrorLogger sampledErrorLogger = new SampledErrorLogger(60000, 1);
+        sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+        sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+        sampledErrorLogger.error(log, "OID-65015", MESSAGE, exception);
+
+        verify(log, times(2)).error(MESSAGE, exception);
+        assertEquals(sampledErrorLogger.getSuppressedCount(ERROR_CODE), 1);
+        assertEquals(sampledErrorLogger.getSuppressedCount("OID-65015"), 0);
+        assertEquals(sampledErrorLogger.getErrorCount("OID-65016"), 0);
+    }
+
+    @Test
+    public void testSuppressedErrorsAreSummarizedInTheNextWindow() throws Exception {
+
+        Log log = mock(Log.class);
+        Exception exception = new Exception("Connection refused");
+        SampledErrorLogger sampledErrorLogger = new SampledErrorLogger(50, 1);
+        for (int i = 0; i < 4; i++) {
+            sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+        }
+        Thread.sleep(100);
+        sampledErrorLogger.error(log, ERROR_CODE, MESSAGE, exception);
+
+        verify(log, times(1)).error(contains("3 errors with the error code: " + ERROR_CODE + " were suppressed"));
+        verify(log, times(2)).error(eq(MESSAGE), eq(exception));
+        assertEquals(sampledErrorLogger.getErrorCount(ERROR_CODE), 5);
+        assertEquals(sampledErrorLogger.getSuppressedCount(ERROR_CODE), 3);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.oidc.util;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit test class for SingleFlight.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(10000);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executorService.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                release.await();
+                return executions.incrementAndGet();
+            })));
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executorService.submit(() -> singleFlight.execute("key", executions::incrementAndGet)));
+            }
+            // Give the followers time to join the in-flight execution.
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(result.get(5, TimeUnit.SECONDS), Integer.valueOf(1));
+            }
+            assertEquals(executions.get(), 1);
+            assertEquals(singleFlight.size(), 0);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitForJoinedExecutionIsBounded() throws Exception {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> stuckResult = executorService.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                release.await();
+                return 1;
+            }));
+            started.await();
+            // The follower gives up on the stuck execution and executes the operation itself.
+            long startTime = System.currentTimeMillis();
+            assertEquals(singleFlight.execute("key", () -> 2), Integer.valueOf(2));
+            assertTrue(System.currentTimeMillis() - startTime < 5000);
+
+            release.countDown();
+            assertEquals(stuckResult.get(5, TimeUnit.SECONDS), Integer.valueOf(1));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResultRetainedForRetentionPeriod() throws Exception {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(60000, 10, 10000);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertEquals(singleFlight.execute("key", executions::incrementAndGet), Integer.valueOf(1));
+        assertEquals(singleFlight.execute("key", executions::incrementAndGet), Integer.valueOf(1));
+        assertEquals(singleFlight.execute("otherKey", executions::incrementAndGet), Integer.valueOf(2));
+        assertEquals(singleFlight.size(), 2);
+    }
+
+    @Test
+    public void testFailureIsNotRetained() throws Exception {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(60000, 10, 10000);
+        try {
+            singleFlight.execute("key", () -> {
+                throw new Exception("Token request failed.");
+            });
+            fail("Expected the operation failure to be propagated.");
+        } catch (Exception e) {
+            assertEquals(e.getMessage(), "Token request failed.");
+        }
+        assertEquals(singleFlight.size(), 0);
+        assertEquals(singleFlight.execute("key", () -> 1), Integer.valueOf(1));
+    }
+}